@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter.intern;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.cyclop.common.AppConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Rows per second written by CSV export - compares {@link CsvWriter} with the previous export path, which prepared
+ * every value trough regex and string concatenation and appended it to {@link PrintWriter}. Both write the same
+ * content into discarding stream, so that only formatting and encoding is measured. Run it with
+ * {@code gradle :cyclop-webapp:jmh}.
+ *
+ * @author Maciej Miklas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(CsvExportBenchmark.ROWS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CsvExportBenchmark {
+
+	static final int ROWS = 10000;
+
+	private static final int COLUMNS = 8;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private AppConfig.QueryExport conf;
+
+	private String[][] values;
+
+	private List<List<String>> collections;
+
+	@Setup
+	public void setup() {
+		conf = new AppConfig.QueryExport("export.csv", "yyyy-MM-dd", "CR====CR", "CR", ";", ",", "=", "\"", "\"", 10,
+				true, true, "UTF-8", 16, 4, false, 6, 1024, "export.cqlc", 100, "export.jsonl");
+
+		values = new String[ROWS][COLUMNS];
+		ImmutableList.Builder<List<String>> collBuild = ImmutableList.builder();
+		for (int row = 0; row < ROWS; row++) {
+			for (int col = 0; col < COLUMNS; col++) {
+				// every fourth value contains line break, which has to be removed
+				values[row][col] = col % 4 == 0 ? " value\n" + row + "-" + col + " " : "value-" + row + "-" + col;
+			}
+			collBuild.add(ImmutableList.of("first-" + row, "second-" + row, "third\r\n" + row));
+		}
+		collections = collBuild.build();
+	}
+
+	@Benchmark
+	public void csvWriter() throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(ByteStreams.nullOutputStream(),
+				Charset.forName(conf.encoding)), BUFFER_SIZE);
+		try (CsvWriter out = new CsvWriter(writer, conf)) {
+			for (int row = 0; row < ROWS; row++) {
+				for (String val : values[row]) {
+					out.value(val).raw(conf.separatorColumn);
+				}
+				out.startValue();
+				Iterator<String> it = collections.get(row).iterator();
+				while (it.hasNext()) {
+					out.value(it.next());
+					if (it.hasNext()) {
+						out.separator(conf.separatorList);
+					}
+				}
+				out.endValue();
+				out.raw(conf.separatorRow);
+			}
+		}
+	}
+
+	@Benchmark
+	public void previousPrintWriter() {
+		PrintWriter out = new PrintWriter(ByteStreams.nullOutputStream());
+		for (int row = 0; row < ROWS; row++) {
+			for (String val : values[row]) {
+				out.append(esc(val));
+				out.append(conf.separatorColumn);
+			}
+			StringBuilder listBuild = new StringBuilder();
+			Iterator<String> it = collections.get(row).iterator();
+			while (it.hasNext()) {
+				listBuild.append(esc(it.next()));
+				if (it.hasNext()) {
+					listBuild.append(conf.separatorList);
+				}
+			}
+			out.append(esc(listBuild.toString()));
+			out.append(conf.separatorRow);
+		}
+		out.flush();
+		out.close();
+	}
+
+	private String prep(String val) {
+		if (val == null) {
+			val = "";
+		}
+		if (conf.trim) {
+			val = val.trim();
+		}
+		if (conf.removeCrChars) {
+			val = val.replaceAll("[\n\r]", "");
+		}
+		return val;
+	}
+
+	private String esc(String val) {
+		return conf.valueBracketStart + prep(val) + conf.valueBracketEnd;
+	}
+}
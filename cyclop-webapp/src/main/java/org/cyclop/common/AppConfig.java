@@ -25,6 +25,7 @@ import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
@@ -94,10 +95,14 @@ public final class AppConfig implements Serializable {
 	@Valid
 	public final QueryImport queryImport;
 
+	@NotNull
+	@Valid
+	public final ExportJobs exportJobs;
+
 	@Inject
 	public AppConfig(Cassandra cassandra, QueryEditor queryEditor, Common common, QueryExport queryExport,
 			Cookies cookie, History history, Favourites favourites, FileStore fileStore, HttpSession httpSession,
-			QueryImport queryImport, Login security) {
+			QueryImport queryImport, Login security, ExportJobs exportJobs) {
 		this.cassandra = cassandra;
 		this.queryEditor = queryEditor;
 		this.common = common;
@@ -109,6 +114,7 @@ public final class AppConfig implements Serializable {
 		this.httpSession = httpSession;
 		this.queryImport = queryImport;
 		this.login = security;
+		this.exportJobs = exportJobs;
 	}
 
 	private static String crs(String cr, String str) throws UnsupportedEncodingException {
@@ -134,7 +140,8 @@ public final class AppConfig implements Serializable {
 		return MoreObjects.toStringHelper(this).add("cassandra", cassandra).add("queryEditor", queryEditor)
 				.add("common", common).add("history", history).add("fileStore", fileStore)
 				.add("favourites", favourites).add("queryExport", queryExport).add("httpSession", httpSession)
-				.add("cookie", cookie).add("queryImport", queryImport).add("security", login).toString();
+				.add("cookie", cookie).add("queryImport", queryImport).add("security", login)
+				.add("exportJobs", exportJobs).toString();
 	}
 
 	@Named
@@ -150,6 +157,9 @@ public final class AppConfig implements Serializable {
 		@Min(1)
 		public final int columnsLimit;
 
+		@Min(1)
+		public final int metadataSampleRows;
+
 		@NotEmpty
 		public final String hosts;
 
@@ -167,6 +177,20 @@ public final class AppConfig implements Serializable {
 
 		public final boolean useSsl;
 
+		@Min(0)
+		public final long clusterIdleEvictionMillis;
+
+		@Min(1)
+		public final int fetchSize;
+
+		@Min(0)
+		public final long schemaCacheTtlMillis;
+
+		public final boolean preparedStatementsEnabled;
+
+		@Min(1)
+		public final int preparedStatementsCacheSize;
+
 		@Inject
 		public Cassandra(
 				@Value("${cassandra.hosts}") String hosts,
@@ -174,19 +198,31 @@ public final class AppConfig implements Serializable {
 				@Value("${cassandra.port}") int port,
 				@Value("${cassandra.timeoutMillis}") int timeoutMillis,
 				@Value("${cassandra.columnsLimit}") int columnsLimit,
+				@Value("${cassandra.metadataSampleRows}") int metadataSampleRows,
 				@Value("${cassandra.maxConnectionsPerHost}") int maxConnectionsPerHost,
 				@Value("${cassandra.coreConnectionsPerHost}") int coreConnectionsPerHost,
 				@Value("${cassandra.simultaneousRequestsPerConnectionThreshold.max}") int maxSimultaneousRequestsPerConnectionThreshold,
-				@Value("${cassandra.simultaneousRequestsPerConnectionThreshold.min}") int minSimultaneousRequestsPerConnectionThreshold) {
+				@Value("${cassandra.simultaneousRequestsPerConnectionThreshold.min}") int minSimultaneousRequestsPerConnectionThreshold,
+				@Value("${cassandra.clusterIdleEvictionMillis}") long clusterIdleEvictionMillis,
+				@Value("${cassandra.fetchSize}") int fetchSize,
+				@Value("${cassandra.schemaCacheTtlMillis}") long schemaCacheTtlMillis,
+				@Value("${cassandra.preparedStatements.enabled}") boolean preparedStatementsEnabled,
+				@Value("${cassandra.preparedStatements.cacheSize}") int preparedStatementsCacheSize) {
 			this.hosts = hosts;
 			this.useSsl = useSsl;
 			this.port = port;
 			this.timeoutMillis = timeoutMillis;
 			this.columnsLimit = columnsLimit;
+			this.metadataSampleRows = metadataSampleRows;
 			this.maxConnectionsPerHost = maxConnectionsPerHost;
 			this.coreConnectionsPerHost = coreConnectionsPerHost;
 			this.maxSimultaneousRequestsPerConnectionThreshold = maxSimultaneousRequestsPerConnectionThreshold;
 			this.minSimultaneousRequestsPerConnectionThreshold = minSimultaneousRequestsPerConnectionThreshold;
+			this.clusterIdleEvictionMillis = clusterIdleEvictionMillis;
+			this.fetchSize = fetchSize;
+			this.schemaCacheTtlMillis = schemaCacheTtlMillis;
+			this.preparedStatementsEnabled = preparedStatementsEnabled;
+			this.preparedStatementsCacheSize = preparedStatementsCacheSize;
 		}
 
 		@Override
@@ -196,12 +232,18 @@ public final class AppConfig implements Serializable {
 					.add("port", port)
 					.add("timeoutMillis", timeoutMillis)
 					.add("columnsLimit", columnsLimit)
+					.add("metadataSampleRows", metadataSampleRows)
 					.add("hosts", hosts)
 					.add("maxConnectionsPerHost", maxConnectionsPerHost)
 					.add("coreConnectionsPerHost", coreConnectionsPerHost)
 					.add("maxSimultaneousRequestsPerConnectionThreshold", maxSimultaneousRequestsPerConnectionThreshold)
 					.add("minSimultaneousRequestsPerConnectionThreshold", minSimultaneousRequestsPerConnectionThreshold)
-					.add("useSsl", useSsl).toString();
+					.add("useSsl", useSsl)
+					.add("clusterIdleEvictionMillis", clusterIdleEvictionMillis)
+					.add("fetchSize", fetchSize)
+					.add("schemaCacheTtlMillis", schemaCacheTtlMillis)
+					.add("preparedStatementsEnabled", preparedStatementsEnabled)
+					.add("preparedStatementsCacheSize", preparedStatementsCacheSize).toString();
 		}
 	}
 
@@ -294,24 +336,36 @@ public final class AppConfig implements Serializable {
 		@Min(1)
 		public final int rowsLimit;
 
+		@Min(0)
+		public final int completionDelayMillis;
+
+		@Min(1)
+		public final int completionHintLimit;
+
 		@Inject
 		protected QueryEditor(@Value("${queryEditor.maxColumnEmbeddedDisplayChars}") int maxColumnEmbeddedDisplayChars,
 				@Value("${queryEditor.maxColumnDisplayChars}") int maxColumnDisplayChars,
 				@Value("${queryEditor.maxColumnTooltipDisplayChars}") int maxColumnTooltipDisplayChars,
-				@Value("${queryEditor.rowsLimit}") int rowsLimit
+				@Value("${queryEditor.rowsLimit}") int rowsLimit,
+				@Value("${queryEditor.completionDelayMillis}") int completionDelayMillis,
+				@Value("${queryEditor.completionHintLimit}") int completionHintLimit
 
 		) {
 			this.maxColumnEmbeddedDisplayChars = maxColumnEmbeddedDisplayChars;
 			this.maxColumnDisplayChars = maxColumnDisplayChars;
 			this.maxColumnTooltipDisplayChars = maxColumnTooltipDisplayChars;
 			this.rowsLimit = rowsLimit;
+			this.completionDelayMillis = completionDelayMillis;
+			this.completionHintLimit = completionHintLimit;
 		}
 
 		@Override
 		public String toString() {
 			return MoreObjects.toStringHelper(this).add("maxColumnEmbeddedDisplayChars", maxColumnEmbeddedDisplayChars)
 					.add("maxColumnDisplayChars", maxColumnDisplayChars).add("rowsLimit", rowsLimit)
-					.add("maxColumnTooltipDisplayChars", maxColumnTooltipDisplayChars).toString();
+					.add("maxColumnTooltipDisplayChars", maxColumnTooltipDisplayChars)
+					.add("completionDelayMillis", completionDelayMillis)
+					.add("completionHintLimit", completionHintLimit).toString();
 		}
 	}
 
@@ -355,6 +409,30 @@ public final class AppConfig implements Serializable {
 
 		public final boolean removeCrChars;
 
+		@Min(1)
+		public final int tokenRangeSplits;
+
+		@Min(1)
+		public final int tokenRangeParallelism;
+
+		public final boolean gzip;
+
+		@Min(0)
+		@Max(9)
+		public final int gzipLevel;
+
+		@Min(1)
+		public final int gzipFlushBytes;
+
+		@NotEmpty
+		public final String columnarFileName;
+
+		@Min(1)
+		public final int columnarRowGroupSize;
+
+		@NotEmpty
+		public final String jsonLinesFileName;
+
 		@Inject
 		public QueryExport(@Value("${queryExport.fileName}") String fileName,
 				@Value("${queryExport.fileName.date}") String fileNameDate,
@@ -367,8 +445,14 @@ public final class AppConfig implements Serializable {
 				@Value("${queryExport.valueBracket.end}") String valueBracketEnd,
 				@Value("${queryExport.crCharCode}") int crCharCode,
 				@Value("${queryExport.removeCrChars}") boolean removeCrChars,
-				@Value("${queryExport.trim}") boolean trim, @Value("${queryExport.encoding}") String encoding)
-				throws UnsupportedEncodingException {
+				@Value("${queryExport.trim}") boolean trim, @Value("${queryExport.encoding}") String encoding,
+				@Value("${queryExport.tokenRanges.splits}") int tokenRangeSplits,
+				@Value("${queryExport.tokenRanges.parallelism}") int tokenRangeParallelism,
+				@Value("${queryExport.gzip.enabled}") boolean gzip, @Value("${queryExport.gzip.level}") int gzipLevel,
+				@Value("${queryExport.gzip.flushBytes}") int gzipFlushBytes,
+				@Value("${queryExport.columnar.fileName}") String columnarFileName,
+				@Value("${queryExport.columnar.rowGroupSize}") int columnarRowGroupSize,
+				@Value("${queryExport.jsonLines.fileName}") String jsonLinesFileName) throws UnsupportedEncodingException {
 
 			this.crCharCode = crCharCode;
 			String crChar = String.valueOf((char) crCharCode);
@@ -384,6 +468,14 @@ public final class AppConfig implements Serializable {
 			this.valueBracketEnd = valueBracketEnd;
 			this.trim = trim;
 			this.encoding = encoding;
+			this.tokenRangeSplits = tokenRangeSplits;
+			this.tokenRangeParallelism = tokenRangeParallelism;
+			this.gzip = gzip;
+			this.gzipLevel = gzipLevel;
+			this.gzipFlushBytes = gzipFlushBytes;
+			this.columnarFileName = columnarFileName;
+			this.columnarRowGroupSize = columnarRowGroupSize;
+			this.jsonLinesFileName = jsonLinesFileName;
 		}
 
 		@Override
@@ -394,7 +486,10 @@ public final class AppConfig implements Serializable {
 					.add("crCharCode", crCharCode).add("valueBracketStart", valueBracketStart)
 					.add("fileName", fileName).add("fileNameDate", fileNameDate)
 					.add("valueBracketEnd", valueBracketEnd).add("trim", trim).add("removeCrChars", removeCrChars)
-					.toString();
+					.add("tokenRangeSplits", tokenRangeSplits).add("tokenRangeParallelism", tokenRangeParallelism)
+					.add("gzip", gzip).add("gzipLevel", gzipLevel).add("gzipFlushBytes", gzipFlushBytes)
+					.add("columnarFileName", columnarFileName).add("columnarRowGroupSize", columnarRowGroupSize)
+					.add("jsonLinesFileName", jsonLinesFileName).toString();
 		}
 	}
 
@@ -411,13 +506,17 @@ public final class AppConfig implements Serializable {
 		public final int maxFileSizeMb;
 
 		@Min(1)
-		public final int maxThreadsProImport;
+		public final int maxInFlight;
+
+		@Min(1)
+		public final int maxBatchStatements;
 
 		@Inject
 		public QueryImport(@Value("${queryImport.listSeparatorRegEx}") String listSeparatorRegEx,
 				@Value("${queryImport.encoding}") String encoding,
 				@Value("${queryImport.maxFileSizeMb}") int maxFileSizeMb,
-				@Value("${queryImport.parallel.maxThreadsProImport}") int maxThreadsProImport) {
+				@Value("${queryImport.parallel.maxInFlight}") int maxInFlight,
+				@Value("${queryImport.batch.maxStatements}") int maxBatchStatements) {
 			try {
 				this.listSeparatorRegEx = Pattern.compile(listSeparatorRegEx);
 			} catch (PatternSyntaxException e) {
@@ -426,14 +525,48 @@ public final class AppConfig implements Serializable {
 			}
 			this.encoding = encoding;
 			this.maxFileSizeMb = maxFileSizeMb;
-			this.maxThreadsProImport = maxThreadsProImport;
+			this.maxInFlight = maxInFlight;
+			this.maxBatchStatements = maxBatchStatements;
 		}
 
 		@Override
 		public String toString() {
 			return MoreObjects.toStringHelper(this).add("listSeparatorRegEx", listSeparatorRegEx)
 					.add("encoding", encoding).add("maxFileSizeMb", maxFileSizeMb)
-					.add("maxThreadsProImport", maxThreadsProImport).toString();
+					.add("maxInFlight", maxInFlight).add("maxBatchStatements", maxBatchStatements).toString();
+		}
+	}
+
+	@Named
+	@Immutable
+	public static final class ExportJobs implements Serializable {
+		@Min(1)
+		public final int threads;
+
+		@Min(1)
+		public final int maxQueued;
+
+		@Min(0)
+		public final int maxRowsPerSecond;
+
+		@Min(1)
+		public final long retentionMillis;
+
+		@Inject
+		public ExportJobs(@Value("${exportJobs.threads}") int threads,
+				@Value("${exportJobs.maxQueued}") int maxQueued,
+				@Value("${exportJobs.maxRowsPerSecond}") int maxRowsPerSecond,
+				@Value("${exportJobs.retentionMillis}") long retentionMillis) {
+			this.threads = threads;
+			this.maxQueued = maxQueued;
+			this.maxRowsPerSecond = maxRowsPerSecond;
+			this.retentionMillis = retentionMillis;
+		}
+
+		@Override
+		public String toString() {
+			return MoreObjects.toStringHelper(this).add("threads", threads).add("maxQueued", maxQueued)
+					.add("maxRowsPerSecond", maxRowsPerSecond).add("retentionMillis", retentionMillis).toString();
 		}
 	}
 
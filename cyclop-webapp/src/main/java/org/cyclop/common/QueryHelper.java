@@ -18,6 +18,7 @@ package org.cyclop.common;
 
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
 import org.cyclop.model.CqlKeySpace;
@@ -32,13 +33,18 @@ public class QueryHelper {
 
 	private final static Logger LOG = LoggerFactory.getLogger(QueryHelper.class);
 
+	private final static Pattern SCHEMA_CHANGE = Pattern.compile("(create|alter|drop)\\s");
+
+	private final static String TOKEN_DELIMITERS = ",;()[]{}<>=:'\"";
+
+	/** @return keyspace from {@code USE} query - it keeps its case, because quoted keyspace is case sensitive */
 	public static Optional<CqlKeySpace> extractSpace(CqlQuery query) {
-		String cqlLc = query.partLc.replaceAll("[;]", "");
-		if (!cqlLc.startsWith("use")) {
+		String cql = query.part.trim().replaceAll("[;]", "");
+		if (!cql.toLowerCase().startsWith("use")) {
 			return Optional.empty();
 		}
 
-		String space = cqlLc.substring(3, cqlLc.length()).trim();
+		String space = cql.substring(3, cql.length()).trim();
 		space = StringUtils.trimToNull(space);
 		if (space == null) {
 			return Optional.empty();
@@ -48,6 +54,43 @@ public class QueryHelper {
 		return Optional.of(exspace);
 	}
 
+	/**
+	 * @return name of keyspace as stored in Cassandra - unquoted name is not case sensitive and it's being returned in
+	 *         lower case, quoted name is being returned with its case and without quotes
+	 */
+	public static String keySpaceName(CqlKeySpace space) {
+		String name = space.part.trim();
+		if (name.length() > 1 && name.startsWith("\"") && name.endsWith("\"")) {
+			return name.substring(1, name.length() - 1).replace("\"\"", "\"");
+		}
+		return space.partLc;
+	}
+
+	/** @return true for CREATE, ALTER and DROP queries */
+	public static boolean isSchemaChange(CqlQuery query) {
+		return SCHEMA_CHANGE.matcher(query.partLc).lookingAt();
+	}
+
+	/**
+	 * @param cursorPosition
+	 *            caret position in the editor, -1 for the end of query
+	 * @return lower case word in front of the cursor - it might contain keyspace separated by dot. Empty string when
+	 *         cursor follows white space or delimiter
+	 */
+	public static String extractToken(CqlQuery query, int cursorPosition) {
+		String cql = query.part;
+		int end = cursorPosition < 0 || cursorPosition > cql.length() ? cql.length() : cursorPosition;
+		int start = end;
+		while (start > 0 && !isTokenDelimiter(cql.charAt(start - 1))) {
+			start--;
+		}
+		return cql.substring(start, end).toLowerCase();
+	}
+
+	private static boolean isTokenDelimiter(char ch) {
+		return Character.isWhitespace(ch) || TOKEN_DELIMITERS.indexOf(ch) >= 0;
+	}
+
 	public static Optional<CqlTable> extractTableName(CqlKeyword cqlKeyword, CqlQuery query) {
 		String cqlLc = query.partLc;
 		int kwStart = cqlLc.indexOf(cqlKeyword.valueSp);
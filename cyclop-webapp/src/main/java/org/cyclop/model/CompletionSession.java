@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.model;
+
+import java.io.Serializable;
+import java.util.Optional;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.NotThreadSafe;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Parser state of single query editor, it's being kept between key strokes. Next completion resumes parsing after the
+ * last decision which markers are placed in the part of the query that did not change, instead of parsing whole query
+ * again.
+ *
+ * @author Maciej Miklas
+ */
+@NotThreadSafe
+public final class CompletionSession implements Serializable {
+
+	/** lower case query up to cursor position, as parsed by last completion */
+	private String cqlLc;
+
+	/** position of decision list in parser, -1 if none was found */
+	private int decisionList = -1;
+
+	private ImmutableList<Step> steps = ImmutableList.of();
+
+	public void reset() {
+		update(null, -1, ImmutableList.of());
+	}
+
+	public void update(String cqlLc, int decisionList, ImmutableList<Step> steps) {
+		this.cqlLc = cqlLc;
+		this.decisionList = decisionList;
+		this.steps = steps;
+	}
+
+	public Optional<String> getCqlLc() {
+		return Optional.ofNullable(cqlLc);
+	}
+
+	public int getDecisionList() {
+		return decisionList;
+	}
+
+	/** @return decisions that can be reused, as long as the query does not change before {@link Step#end} */
+	public ImmutableList<Step> getSteps() {
+		return steps;
+	}
+
+	@Override
+	public String toString() {
+		return MoreObjects.toStringHelper(this).add("cqlLc", cqlLc).add("decisionList", decisionList)
+				.add("steps", steps).toString();
+	}
+
+	/** single resolved decision */
+	@Immutable
+	public final static class Step implements Serializable {
+
+		/** query offset where parsing of next decision starts */
+		public final int offset;
+
+		/** position of matching completion within the decision */
+		public final int completion;
+
+		/** position in query after the last matched marker of this decision */
+		public final int end;
+
+		public Step(int offset, int completion, int end) {
+			this.offset = offset;
+			this.completion = completion;
+			this.end = end;
+		}
+
+		@Override
+		public String toString() {
+			return MoreObjects.toStringHelper(this).add("offset", offset).add("completion", completion)
+					.add("end", end).toString();
+		}
+	}
+}
@@ -25,7 +25,6 @@ import javax.validation.constraints.NotNull;
 import net.jcip.annotations.Immutable;
 
 import com.google.common.base.MoreObjects;
-import com.google.common.collect.ImmutableSortedSet;
 
 /** @author Maciej Miklas */
 @Immutable
@@ -46,14 +45,6 @@ public final class ContextCqlCompletion implements Serializable {
 		this.cqlCompletion = cqlCompletion;
 	}
 
-	public ContextCqlCompletion copyFromCompletion(ImmutableSortedSet<? extends CqlPart> fullCompletion,
-			ImmutableSortedSet<? extends CqlPart> minCompletion) {
-
-		CqlCompletion cqlCompletion = new CqlCompletion(fullCompletion, minCompletion);
-		ContextCqlCompletion context = new ContextCqlCompletion(queryName, cqlCompletion);
-		return context;
-	}
-
 	public boolean isEmpty() {
 		return cqlCompletion.isEmpty();
 	}
@@ -19,6 +19,7 @@ package org.cyclop.model;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Objects;
+import java.util.function.Predicate;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -30,6 +31,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Sets;
 
 /** @author Maciej Miklas */
 @Immutable
@@ -84,6 +86,36 @@ public final class CqlCompletion implements Serializable {
 		return fullCompletion.isEmpty();
 	}
 
+	/**
+	 * @return this instance if all parts are accepted by given filter, otherwise copy containing only accepted parts -
+	 *         ordering is preserved, so sets are not being sorted again
+	 */
+	public CqlCompletion filter(Predicate<? super CqlPart> filter) {
+		if (acceptsAll(fullCompletion, filter) && acceptsAll(minCompletion, filter)) {
+			return this;
+		}
+		CqlCompletion filtered = new CqlCompletion(filterParts(fullCompletion, filter),
+				filterParts(minCompletion, filter));
+		LOG.trace("Filtered completion: {}", filtered);
+		return filtered;
+	}
+
+	private static boolean acceptsAll(ImmutableSortedSet<? extends CqlPart> parts, Predicate<? super CqlPart> filter) {
+		// list view is cached by the set, so going over it does not create iterator
+		ImmutableList<? extends CqlPart> partsList = parts.asList();
+		for (int idx = 0; idx < partsList.size(); idx++) {
+			if (!filter.test(partsList.get(idx))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static <T extends CqlPart> ImmutableSortedSet<T> filterParts(ImmutableSortedSet<T> parts,
+			Predicate<? super CqlPart> filter) {
+		return ImmutableSortedSet.copyOfSorted(Sets.filter(parts, filter::test));
+	}
+
 	/** @author Maciej Miklas */
 	public static class Builder {
 
@@ -37,15 +37,28 @@ public class CqlExtendedColumnName extends CqlColumnName {
 	@Valid
 	public final CqlColumnType columnType;
 
+	/**
+	 * position of column in rows of query result, or {@link #NO_INDEX} if column has not been read from result. It's
+	 * not part of equality - the same column has different positions in results of different queries
+	 */
+	public final int index;
+
+	public final static int NO_INDEX = -1;
+
 	public CqlExtendedColumnName(CqlColumnType columnType, CqlDataType dataType, String columnName) {
+		this(columnType, dataType, columnName, NO_INDEX);
+	}
+
+	public CqlExtendedColumnName(CqlColumnType columnType, CqlDataType dataType, String columnName, int index) {
 		super(dataType, columnName);
 		this.columnType = columnType;
+		this.index = index;
 	}
 
 	@Override
 	public String toString() {
 		return MoreObjects.toStringHelper(this).add("columnType", columnType).add("part", part)
-				.add("dataType", dataType).toString();
+				.add("dataType", dataType).add("index", index).toString();
 	}
 
 	@Override
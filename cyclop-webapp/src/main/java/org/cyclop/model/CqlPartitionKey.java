@@ -27,17 +27,21 @@ import com.google.common.base.MoreObjects;
 public final class CqlPartitionKey extends CqlExtendedColumnName {
 
 	protected CqlPartitionKey(CqlDataType dataType, String columnName) {
-		super(CqlColumnType.PARTITION_KEY, dataType, columnName);
+		this(dataType, columnName, NO_INDEX);
+	}
+
+	protected CqlPartitionKey(CqlDataType dataType, String columnName, int index) {
+		super(CqlColumnType.PARTITION_KEY, dataType, columnName, index);
 	}
 
 	public static CqlPartitionKey fromColumn(CqlExtendedColumnName col) {
-		return new CqlPartitionKey(col.dataType, col.part);
+		return new CqlPartitionKey(col.dataType, col.part, col.index);
 	}
 
 	@Override
 	public String toString() {
 		return MoreObjects.toStringHelper(this).add("columnType", columnType).add("part", part)
-				.add("dataType", dataType).toString();
+				.add("dataType", dataType).add("index", index).toString();
 	}
 
 	@Override
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Iterator;
+import java.util.Optional;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -32,6 +33,19 @@ import com.google.common.base.MoreObjects;
 
 /** @author Maciej Miklas */
 public class CqlQueryResult implements Iterable<Row>, Serializable {
+	private final static Paging NO_PAGING = new Paging() {
+
+		@Override
+		public Optional<String> getPagingState() {
+			return Optional.empty();
+		}
+
+		@Override
+		public int getPagingStateOffset() {
+			return 0;
+		}
+	};
+
 	public final static CqlQueryResult EMPTY = new CqlQueryResult();
 
 	@NotNull
@@ -41,15 +55,24 @@ public class CqlQueryResult implements Iterable<Row>, Serializable {
 	@NotNull
 	private final transient Iterator<Row> rows;
 
+	@NotNull
+	private final transient Paging paging;
+
 	@SuppressWarnings("unchecked")
 	CqlQueryResult() {
 		rows = EmptyIterator.INSTANCE;
 		rowMetadata = CqlRowMetadata.EMPTY;
+		paging = NO_PAGING;
 	}
 
 	public CqlQueryResult(Iterator<Row> rowsIt, CqlRowMetadata rowMetadata) {
+		this(rowsIt, rowMetadata, NO_PAGING);
+	}
+
+	public CqlQueryResult(Iterator<Row> rowsIt, CqlRowMetadata rowMetadata, Paging paging) {
 		this.rows = rowsIt;
 		this.rowMetadata = rowMetadata;
+		this.paging = paging;
 	}
 
 	@Override
@@ -57,9 +80,27 @@ public class CqlQueryResult implements Iterable<Row>, Serializable {
 		return rows;
 	}
 
+	/**
+	 * @return driver's paging state pointing right after the last page completely read trough {@link #iterator()}.
+	 *         Query executed again with this state continues from this point - also after this result is gone. Empty
+	 *         if no page has been completely read yet, or there are no more pages.
+	 */
+	public Optional<String> getPagingState() {
+		return paging.getPagingState();
+	}
+
+	/**
+	 * @return amount of rows preceding {@link #getPagingState()} - those are not returned by query resumed with this
+	 *         state
+	 */
+	public int getPagingStateOffset() {
+		return paging.getPagingStateOffset();
+	}
+
 	private void readObject(ObjectInputStream in) throws ClassNotFoundException, IOException {
 		in.defaultReadObject();
 		SerializationUtil.setField(this, "rows", EmptyIterator.INSTANCE);
+		SerializationUtil.setField(this, "paging", NO_PAGING);
 	}
 
 	@Override
@@ -70,4 +111,12 @@ public class CqlQueryResult implements Iterable<Row>, Serializable {
 	public boolean isEmpty() {
 		return !rows.hasNext();
 	}
+
+	/** Position of the driver's paging within rows returned by {@link CqlQueryResult#iterator()} */
+	public interface Paging {
+
+		Optional<String> getPagingState();
+
+		int getPagingStateOffset();
+	}
 }
@@ -44,6 +44,9 @@ public final class UserPreferences implements Serializable {
 	@XmlElement(name = "e_ro")
 	private int resultOrientation = 0;
 
+	@XmlElement(name = "e_eb")
+	private boolean exportInBackground = false;
+
 	@XmlElement(name = "i_hi")
 	@XmlJavaTypeAdapter(BooleanDefaultTrueAdapter.class)
 	private boolean importIncludeInHistory = true;
@@ -56,6 +59,9 @@ public final class UserPreferences implements Serializable {
 	@XmlJavaTypeAdapter(BooleanDefaultTrueAdapter.class)
 	private boolean importParallel = false;
 
+	@XmlElement(name = "i_ba")
+	private boolean importBatch = false;
+
 	@XmlElement(name = "p_ei")
 	private long pagerEditorItems = 5;
 
@@ -100,13 +106,23 @@ public final class UserPreferences implements Serializable {
 		this.resultOrientation = resultOrientation;
 	}
 
+	public boolean isExportInBackground() {
+		return exportInBackground;
+	}
+
+	public UserPreferences setExportInBackground(boolean exportInBackground) {
+		this.exportInBackground = exportInBackground;
+		return this;
+	}
+
 	@Override
 	public String toString() {
 		return MoreObjects.toStringHelper(this).add("showCqlCompletionHint", showCqlCompletionHint)
 				.add("showCqlHelp", showCqlHelp).add("importIncludeInHistory", importIncludeInHistory)
 				.add("importContinueWithErrors", importContinueWithErrors).add("pagerEditorItems", pagerEditorItems)
 				.add("pagerHistoryItems", pagerHistoryItems).add("pagerImportItems", pagerImportItems)
-				.add("resultOrientation", resultOrientation).toString();
+				.add("resultOrientation", resultOrientation).add("exportInBackground", exportInBackground)
+				.add("importBatch", importBatch).toString();
 	}
 
 	public boolean isImportIncludeInHistory() {
@@ -145,6 +161,15 @@ public final class UserPreferences implements Serializable {
 		return this;
 	}
 
+	public boolean isImportBatch() {
+		return importBatch;
+	}
+
+	public UserPreferences setImportBatch(boolean importBatch) {
+		this.importBatch = importBatch;
+		return this;
+	}
+
 	public long getPagerHistoryItems() {
 		return pagerHistoryItems;
 	}
@@ -158,7 +183,7 @@ public final class UserPreferences implements Serializable {
 	public int hashCode() {
 		return java.util.Objects.hash(showCqlCompletionHint, showCqlHelp, importIncludeInHistory,
 				importContinueWithErrors, pagerEditorItems, pagerHistoryItems, pagerImportItems, importParallel,
-				resultOrientation);
+				importBatch, resultOrientation, exportInBackground);
 	}
 
 	@Override
@@ -175,6 +200,8 @@ public final class UserPreferences implements Serializable {
 				&& java.util.Objects.equals(pagerHistoryItems, other.pagerHistoryItems)
 				&& java.util.Objects.equals(pagerImportItems, other.pagerImportItems)
 				&& java.util.Objects.equals(importParallel, other.importParallel)
-				&& java.util.Objects.equals(resultOrientation, other.resultOrientation);
+				&& java.util.Objects.equals(importBatch, other.importBatch)
+				&& java.util.Objects.equals(resultOrientation, other.resultOrientation)
+				&& java.util.Objects.equals(exportInBackground, other.exportInBackground);
 	}
 }
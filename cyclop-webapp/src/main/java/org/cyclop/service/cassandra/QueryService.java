@@ -18,6 +18,7 @@ package org.cyclop.service.cassandra;
 
 import java.util.Optional;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import org.cyclop.model.CqlColumnName;
@@ -28,6 +29,7 @@ import org.cyclop.model.CqlQueryResult;
 import org.cyclop.model.CqlTable;
 
 import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /** @author Maciej Miklas */
 public interface QueryService {
@@ -54,6 +56,26 @@ public interface QueryService {
 	@NotNull
 	CqlQueryResult execute(@NotNull CqlQuery query, boolean updateHistory);
 
+	/**
+	 * Executes query fetching rows in pages of given size - next page is being pulled as result iterator advances.
+	 *
+	 * @param pagingState
+	 *            state returned by {@link CqlQueryResult#getPagingState()} of the same query in order to resume it,
+	 *            or empty to start from the first row
+	 */
+	@NotNull
+	CqlQueryResult execute(@NotNull CqlQuery query, boolean updateHistory, @Min(1) int fetchSize,
+			@NotNull Optional<String> pagingState);
+
+	/**
+	 * Executes query without blocking calling thread. Cancelling returned future cancels query in driver.
+	 * <p>
+	 * History entry is added to in-memory history of current http session once query completes - it will be
+	 * persisted together with the next history update.
+	 */
+	@NotNull
+	ListenableFuture<CqlQueryResult> executeAsync(@NotNull CqlQuery query, boolean updateHistory);
+
 	@NotNull
 	ImmutableSortedSet<CqlTable> findTableNames(@NotNull Optional<CqlKeySpace> keySpace);
 }
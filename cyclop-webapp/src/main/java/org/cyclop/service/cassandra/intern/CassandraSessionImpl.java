@@ -23,7 +23,6 @@ import javax.validation.constraints.NotNull;
 
 import net.jcip.annotations.NotThreadSafe;
 
-import org.cyclop.common.AppConfig;
 import org.cyclop.model.CassandraVersion;
 import org.cyclop.model.exception.AuthenticationRequiredException;
 import org.cyclop.service.cassandra.CassandraSession;
@@ -33,12 +32,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.context.annotation.ScopedProxyMode;
 
-import com.datastax.driver.core.Cluster;
-import com.datastax.driver.core.HostDistance;
-import com.datastax.driver.core.PoolingOptions;
 import com.datastax.driver.core.Session;
-import com.datastax.driver.core.SocketOptions;
-import com.datastax.driver.core.exceptions.InvalidQueryException;
 
 /** @author Maciej Miklas */
 @NotThreadSafe
@@ -48,70 +42,19 @@ import com.datastax.driver.core.exceptions.InvalidQueryException;
 public class CassandraSessionImpl implements CassandraSession {
 	private final static Logger LOG = LoggerFactory.getLogger(CassandraSessionImpl.class);
 
-	private transient Session session;
-
 	@Inject
-	private AppConfig appConfig;
+	private transient ClusterRegistry clusterRegistry;
 
 	private CassandraVersion cassandraVersion;
 
-	private transient Cluster cluster;
+	private transient SessionLease lease;
 
 	public synchronized void authenticate(@NotNull String userName, @NotNull String password) {
-		if (session != null) {
+		if (lease != null) {
 			return;
 		}
-		try {
-			Cluster.Builder builder = Cluster.builder();
-			for (String host : appConfig.cassandra.hosts.split("[,]")) {
-				builder.addContactPoint(host);
-			}
-			builder.withCredentials(userName, password);
-
-			if (appConfig.cassandra.useSsl) {
-				builder.withSSL();
-			}
-
-			SocketOptions socketOptions = new SocketOptions();
-			socketOptions.setConnectTimeoutMillis(appConfig.cassandra.timeoutMillis);
-
-			PoolingOptions pooling = new PoolingOptions();
-			pooling.setCoreConnectionsPerHost(HostDistance.LOCAL, appConfig.cassandra.coreConnectionsPerHost);
-			pooling.setMaxConnectionsPerHost(HostDistance.LOCAL, appConfig.cassandra.maxConnectionsPerHost);
-			pooling.setMinSimultaneousRequestsPerConnectionThreshold(HostDistance.LOCAL,
-					appConfig.cassandra.minSimultaneousRequestsPerConnectionThreshold);
-			pooling.setMaxSimultaneousRequestsPerConnectionThreshold(HostDistance.LOCAL,
-					appConfig.cassandra.maxSimultaneousRequestsPerConnectionThreshold);
-
-			cluster = builder.withPort(appConfig.cassandra.port).withSocketOptions(socketOptions)
-					.withPoolingOptions(pooling).build();
-			session = cluster.connect();
-
-			cassandraVersion = determineVersion(session);
-		} finally {
-			if (session == null) {
-				LOG.debug("Cannot open cassandra session - clean up resources");
-				close();
-			}
-		}
-	}
-
-	private CassandraVersion determineVersion(Session session) {
-		CassandraVersion ver = CassandraVersion.VER_2_1;
-
-		// this way to check version sucks and works at the same time ....
-		try {
-			session.execute("select type_name from system.schema_usertypes");
-		} catch (InvalidQueryException e) {
-			ver = CassandraVersion.VER_2_0;
-		}
-
-		try {
-			session.execute("select type FROM system.schema_columns LIMIT 1 ALLOW FILTERING");
-		} catch (InvalidQueryException e) {
-			ver = CassandraVersion.VER_1_2;
-		}
-		return ver;
+		lease = clusterRegistry.acquire(userName, password);
+		cassandraVersion = lease.getCassandraVersion();
 	}
 
 	@Override
@@ -123,18 +66,34 @@ public class CassandraSessionImpl implements CassandraSession {
 	@Override
 	public synchronized Session getSession() {
 		checkAuthenticated();
-		return session;
+		return lease.getSession();
+	}
+
+	/** Switches this http session to given keyspace - replacement for executing {@code USE} on shared session */
+	public synchronized void useKeyspace(String keyspace) {
+		checkAuthenticated();
+		lease.useKeyspace(keyspace);
+	}
+
+	SchemaCache getSchemaCache() {
+		checkAuthenticated();
+		return lease.getSchemaCache();
+	}
+
+	/** @return lease on cluster shared with other http sessions */
+	public synchronized SessionLease getLease() {
+		checkAuthenticated();
+		return lease;
 	}
 
 	public synchronized void close() {
-		if (cluster != null) {
+		if (lease != null) {
 			try {
-				cluster.close();
+				lease.close();
 			} catch (Exception e) {
-				LOG.warn("Error while shutting down the cluster", e);
+				LOG.warn("Error while releasing the cluster", e);
 			}
-			cluster = null;
-			session = null;
+			lease = null;
 		}
 	}
 
@@ -146,7 +105,7 @@ public class CassandraSessionImpl implements CassandraSession {
 
 	@Override
 	public synchronized boolean isOpen() {
-		return session != null;
+		return lease != null;
 
 	}
 
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.cassandra.intern;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.cyclop.common.AppConfig;
+import org.cyclop.model.CassandraVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.PoolingOptions;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SocketOptions;
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.google.common.base.Charsets;
+import com.google.common.base.MoreObjects;
+import com.google.common.hash.Hashing;
+
+/**
+ * Process wide registry of Cassandra clusters. Each combination of hosts, port, SSL and credentials gets exactly one
+ * {@link Cluster} instance, which is shared by all http sessions logged in with those credentials. Clusters are
+ * reference counted trough {@link SessionLease} and closed by {@link #evictIdle()} once they were not used for
+ * {@link AppConfig.Cassandra#clusterIdleEvictionMillis}.
+ *
+ * @author Maciej Miklas
+ */
+@Named
+@ThreadSafe
+public class ClusterRegistry {
+	private final static Logger LOG = LoggerFactory.getLogger(ClusterRegistry.class);
+
+	private final static int EVICTION_CHECK_MILLIS = 30000;
+
+	private final ConcurrentMap<ClusterKey, SharedCluster> clusters = new ConcurrentHashMap<>();
+
+	@Inject
+	private AppConfig appConfig;
+
+	/**
+	 * @return lease on shared cluster, it has to be closed when http session ends
+	 * @throws com.datastax.driver.core.exceptions.DriverException
+	 *             if cluster could not be connected - like authentication error
+	 */
+	public SessionLease acquire(String userName, String password) {
+		AppConfig.Cassandra conf = appConfig.cassandra;
+		ClusterKey key = new ClusterKey(conf.hosts, conf.port, conf.useSsl, userName, password);
+		while (true) {
+			SharedCluster shared = clusters.get(key);
+			if (shared == null) {
+				// connect blocks on network, so it cannot run within map's lock - concurrent logins might connect at
+				// the same time, and only the first registered cluster is being kept
+				SharedCluster created = connect(userName, password);
+				created.retain();
+				shared = clusters.putIfAbsent(key, created);
+				if (shared == null) {
+					LOG.debug("Acquired new shared cluster: {}", created);
+					return new SessionLease(created);
+				}
+				LOG.debug("Concurrent login has registered cluster already - closing: {}", created);
+				created.close();
+			}
+			if (shared.retain()) {
+				LOG.debug("Acquired shared cluster: {}", shared);
+				return new SessionLease(shared);
+			}
+
+			// cluster has been evicted in the meantime - remove it and create new one
+			clusters.remove(key, shared);
+		}
+	}
+
+	@Scheduled(initialDelay = EVICTION_CHECK_MILLIS, fixedDelay = EVICTION_CHECK_MILLIS)
+	public void evictIdle() {
+		long now = System.currentTimeMillis();
+		long idleMillis = appConfig.cassandra.clusterIdleEvictionMillis;
+		for (Map.Entry<ClusterKey, SharedCluster> entry : clusters.entrySet()) {
+			SharedCluster shared = entry.getValue();
+			if (shared.evictIdle(now, idleMillis)) {
+				LOG.info("Closed idle cluster: {}", shared);
+
+				// concurrent acquire might have replaced closed cluster already - remove only the closed one
+				clusters.remove(entry.getKey(), shared);
+			}
+		}
+	}
+
+	@PreDestroy
+	public void cleanup() {
+		LOG.debug("Closing all shared clusters");
+		clusters.values().forEach(SharedCluster::close);
+		clusters.clear();
+	}
+
+	private SharedCluster connect(String userName, String password) {
+		AppConfig.Cassandra conf = appConfig.cassandra;
+		Cluster.Builder builder = Cluster.builder();
+		for (String host : conf.hosts.split("[,]")) {
+			builder.addContactPoint(host);
+		}
+		builder.withCredentials(userName, password);
+
+		if (conf.useSsl) {
+			builder.withSSL();
+		}
+
+		SocketOptions socketOptions = new SocketOptions();
+		socketOptions.setConnectTimeoutMillis(conf.timeoutMillis);
+
+		PoolingOptions pooling = new PoolingOptions();
+		pooling.setCoreConnectionsPerHost(HostDistance.LOCAL, conf.coreConnectionsPerHost);
+		pooling.setMaxConnectionsPerHost(HostDistance.LOCAL, conf.maxConnectionsPerHost);
+		pooling.setMinSimultaneousRequestsPerConnectionThreshold(HostDistance.LOCAL,
+				conf.minSimultaneousRequestsPerConnectionThreshold);
+		pooling.setMaxSimultaneousRequestsPerConnectionThreshold(HostDistance.LOCAL,
+				conf.maxSimultaneousRequestsPerConnectionThreshold);
+
+		Cluster cluster = builder.withPort(conf.port).withSocketOptions(socketOptions).withPoolingOptions(pooling)
+				.build();
+
+		SharedCluster shared = null;
+		try {
+			Session session = cluster.connect();
+			shared = new SharedCluster(cluster, session, determineVersion(session), userName, new SchemaCache(
+					conf.schemaCacheTtlMillis), new PreparedStatementCache(conf.preparedStatementsCacheSize));
+		} finally {
+			if (shared == null) {
+				LOG.debug("Cannot open cassandra session - clean up resources");
+				cluster.close();
+			}
+		}
+		LOG.info("Created new shared cluster: {}", shared);
+		return shared;
+	}
+
+	private CassandraVersion determineVersion(Session session) {
+		CassandraVersion ver = CassandraVersion.VER_2_1;
+
+		// this way to check version sucks and works at the same time ....
+		try {
+			session.execute("select type_name from system.schema_usertypes");
+		} catch (InvalidQueryException e) {
+			ver = CassandraVersion.VER_2_0;
+		}
+
+		try {
+			session.execute("select type FROM system.schema_columns LIMIT 1 ALLOW FILTERING");
+		} catch (InvalidQueryException e) {
+			ver = CassandraVersion.VER_1_2;
+		}
+		return ver;
+	}
+
+	/** password is not stored in the key - only its hash */
+	private final static class ClusterKey {
+		private final String hosts;
+
+		private final int port;
+
+		private final boolean useSsl;
+
+		private final String userName;
+
+		private final String passwordHash;
+
+		ClusterKey(String hosts, int port, boolean useSsl, String userName, String password) {
+			this.hosts = hosts;
+			this.port = port;
+			this.useSsl = useSsl;
+			this.userName = userName;
+			this.passwordHash = Hashing.sha256().hashString(password, Charsets.UTF_8).toString();
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(hosts, port, useSsl, userName, passwordHash);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			final ClusterKey other = (ClusterKey) obj;
+			return Objects.equals(hosts, other.hosts) && port == other.port && useSsl == other.useSsl
+					&& Objects.equals(userName, other.userName) && Objects.equals(passwordHash, other.passwordHash);
+		}
+
+		@Override
+		public String toString() {
+			return MoreObjects.toStringHelper(this).add("hosts", hosts).add("port", port).add("useSsl", useSsl)
+					.add("userName", userName).toString();
+		}
+	}
+}
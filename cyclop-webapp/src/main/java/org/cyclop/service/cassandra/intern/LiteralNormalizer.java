@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.cassandra.intern;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.jcip.annotations.Immutable;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.utils.Bytes;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.net.InetAddresses;
+
+/**
+ * Replaces literals of DML queries with bind markers, so that queries differing only in literals can share single
+ * prepared statement. Only scalar literals are being replaced - collections, tuples, booleans and literals of
+ * unsupported queries stay in query.
+ *
+ * @author Maciej Miklas
+ */
+final class LiteralNormalizer {
+
+	private final static ImmutableSet<String> SUPPORTED_QUERIES = ImmutableSet.of("select", "insert", "update",
+			"delete");
+
+	private final static Pattern UUID_PATTERN = Pattern
+			.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+	private final static Pattern BLOB_PATTERN = Pattern.compile("0[xX][0-9a-fA-F]*");
+
+	private final static Pattern NUMBER_PATTERN = Pattern.compile("-?\\d+(\\.\\d+)?([eE][-+]?\\d+)?");
+
+	private LiteralNormalizer() {
+	}
+
+	/** @return empty if query is not supported or it does not contain literals */
+	static Optional<NormalizedQuery> normalize(String cql) {
+		String trimmed = cql.trim();
+		int firstSpace = trimmed.indexOf(' ');
+		if (firstSpace <= 0 || !SUPPORTED_QUERIES.contains(trimmed.substring(0, firstSpace).toLowerCase())) {
+			return Optional.empty();
+		}
+
+		StringBuilder normalized = new StringBuilder(trimmed.length());
+		ImmutableList.Builder<Literal> literals = ImmutableList.builder();
+		int nested = 0;
+		int parentheses = 0;
+		int idx = 0;
+		while (idx < trimmed.length()) {
+			char chr = trimmed.charAt(idx);
+			char next = idx + 1 < trimmed.length() ? trimmed.charAt(idx + 1) : 0;
+			boolean replace = nested == 0 && parentheses <= 1;
+
+			if ((chr == '-' && next == '-') || (chr == '/' && (next == '/' || next == '*'))) {
+				// comments are not supported
+				return Optional.empty();
+
+			} else if (chr == '\'') {
+				int end = findQuoteEnd(trimmed, idx, '\'');
+				if (end == -1) {
+					return Optional.empty();
+				}
+				String literal = trimmed.substring(idx, end + 1);
+				idx = append(normalized, literals, replace, literal, Literal.Kind.STRING, idx);
+
+			} else if (chr == '"') {
+				int end = findQuoteEnd(trimmed, idx, '"');
+				if (end == -1) {
+					return Optional.empty();
+				}
+				normalized.append(trimmed, idx, end + 1);
+				idx = end + 1;
+
+			} else if (Character.isLetterOrDigit(chr) || chr == '_' || (chr == '-' && Character.isDigit(next))) {
+				int end = findWordEnd(trimmed, idx);
+				String word = trimmed.substring(idx, end);
+				Optional<Literal.Kind> kind = literalKind(trimmed, idx);
+				if (kind.isPresent()) {
+					Matcher matcher = kind.get().pattern.matcher(trimmed);
+					matcher.region(idx, trimmed.length()).lookingAt();
+					word = matcher.group();
+				}
+				if (kind.isPresent() && isWordEnd(trimmed, idx + word.length())) {
+					idx = append(normalized, literals, replace, word, kind.get(), idx);
+				} else {
+					normalized.append(word);
+					idx += word.length();
+				}
+
+			} else {
+				if (chr == '{' || chr == '[') {
+					nested++;
+				} else if (chr == '}' || chr == ']') {
+					nested--;
+				} else if (chr == '(') {
+					parentheses++;
+				} else if (chr == ')') {
+					parentheses--;
+				}
+				normalized.append(chr);
+				idx++;
+			}
+		}
+
+		ImmutableList<Literal> found = literals.build();
+		if (found.isEmpty()) {
+			return Optional.empty();
+		}
+		return Optional.of(new NormalizedQuery(normalized.toString(), found));
+	}
+
+	private static int append(StringBuilder normalized, ImmutableList.Builder<Literal> literals, boolean replace,
+			String literal, Literal.Kind kind, int idx) {
+		if (replace) {
+			normalized.append('?');
+			literals.add(new Literal(kind, literal));
+		} else {
+			normalized.append(literal);
+		}
+		return idx + literal.length();
+	}
+
+	private static Optional<Literal.Kind> literalKind(String cql, int idx) {
+		if (idx > 0 && (Character.isLetterOrDigit(cql.charAt(idx - 1)) || cql.charAt(idx - 1) == '_')) {
+			return Optional.empty();
+		}
+		for (Literal.Kind kind : Literal.Kind.UNQUOTED) {
+			Matcher matcher = kind.pattern.matcher(cql);
+			if (matcher.region(idx, cql.length()).lookingAt()) {
+				return Optional.of(kind);
+			}
+		}
+		return Optional.empty();
+	}
+
+	private static int findQuoteEnd(String cql, int start, char quote) {
+		int idx = start + 1;
+		while (idx < cql.length()) {
+			if (cql.charAt(idx) == quote) {
+				if (idx + 1 < cql.length() && cql.charAt(idx + 1) == quote) {
+					idx += 2;
+					continue;
+				}
+				return idx;
+			}
+			idx++;
+		}
+		return -1;
+	}
+
+	private static int findWordEnd(String cql, int start) {
+		int idx = start + 1;
+		while (idx < cql.length() && !isWordEnd(cql, idx)) {
+			idx++;
+		}
+		return idx;
+	}
+
+	private static boolean isWordEnd(String cql, int idx) {
+		if (idx >= cql.length()) {
+			return true;
+		}
+		char chr = cql.charAt(idx);
+		return !Character.isLetterOrDigit(chr) && chr != '_';
+	}
+
+	@Immutable
+	static final class NormalizedQuery {
+
+		/** query with bind markers instead of literals */
+		final String cql;
+
+		final ImmutableList<Literal> literals;
+
+		NormalizedQuery(String cql, ImmutableList<Literal> literals) {
+			this.cql = cql;
+			this.literals = literals;
+		}
+
+		@Override
+		public String toString() {
+			return MoreObjects.toStringHelper(this).add("cql", cql).add("literals", literals).toString();
+		}
+	}
+
+	/** Literal as found in query, it will be converted to java type of bind variable */
+	@Immutable
+	static final class Literal {
+
+		enum Kind {
+			STRING(null), UUID(UUID_PATTERN), BLOB(BLOB_PATTERN), NUMBER(NUMBER_PATTERN);
+
+			/** order matters: uuid and blob can start with digit */
+			private final static ImmutableList<Kind> UNQUOTED = ImmutableList.of(UUID, BLOB, NUMBER);
+
+			private final Pattern pattern;
+
+			Kind(Pattern pattern) {
+				this.pattern = pattern;
+			}
+		}
+
+		final Kind kind;
+
+		final String text;
+
+		Literal(Kind kind, String text) {
+			this.kind = kind;
+			this.text = text;
+		}
+
+		/** @throws IllegalArgumentException if literal cannot be converted to given type */
+		Object toValue(DataType type) {
+			switch (kind) {
+			case STRING:
+				return stringValue(type);
+			case UUID:
+				if (type.getName() == DataType.Name.UUID || type.getName() == DataType.Name.TIMEUUID) {
+					return java.util.UUID.fromString(text);
+				}
+				break;
+			case BLOB:
+				if (type.getName() == DataType.Name.BLOB) {
+					return Bytes.fromHexString(text);
+				}
+				break;
+			case NUMBER:
+				return numberValue(type);
+			}
+			throw new IllegalArgumentException("Cannot convert " + this + " to " + type);
+		}
+
+		private Object stringValue(DataType type) {
+			String value = text.substring(1, text.length() - 1).replace("''", "'");
+			switch (type.getName()) {
+			case ASCII:
+			case TEXT:
+			case VARCHAR:
+				return value;
+			case INET:
+				return InetAddresses.forString(value);
+			default:
+				throw new IllegalArgumentException("Cannot convert " + this + " to " + type);
+			}
+		}
+
+		private Object numberValue(DataType type) {
+			switch (type.getName()) {
+			case INT:
+				return Integer.valueOf(text);
+			case BIGINT:
+			case COUNTER:
+				return Long.valueOf(text);
+			case VARINT:
+				return new BigInteger(text);
+			case DECIMAL:
+				return new BigDecimal(text);
+			case FLOAT:
+				return Float.valueOf(text);
+			case DOUBLE:
+				return Double.valueOf(text);
+			case TIMESTAMP:
+				return new Date(Long.parseLong(text));
+			default:
+				throw new IllegalArgumentException("Cannot convert " + this + " to " + type);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return MoreObjects.toStringHelper(this).add("kind", kind).add("text", text).toString();
+		}
+	}
+}
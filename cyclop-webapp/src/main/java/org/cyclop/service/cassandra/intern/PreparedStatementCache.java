@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.cassandra.intern;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.exceptions.DriverException;
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.datastax.driver.core.exceptions.SyntaxError;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * LRU cache of prepared statements of single {@link SharedCluster}. Statements are prepared in context of session's
+ * keyspace, so the keyspace is part of the key. Queries rejected by coordinator as invalid are cached as well, so that
+ * they are not being send to coordinator over and over again. Transient errors, like timeouts or unavailable hosts,
+ * are not cached - such query is being prepared again on next execution.
+ *
+ * @author Maciej Miklas
+ */
+@ThreadSafe
+final class PreparedStatementCache {
+	private final static Logger LOG = LoggerFactory.getLogger(PreparedStatementCache.class);
+
+	private final Cache<StatementKey, Optional<PreparedStatement>> cache;
+
+	PreparedStatementCache(int maxSize) {
+		cache = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+	}
+
+	/** @return empty if query cannot be prepared */
+	Optional<PreparedStatement> prepare(Session session, String cql) {
+		StatementKey key = new StatementKey(session.getLoggedKeyspace(), cql);
+		try {
+			return cache.get(key, () -> prepareIntern(session, cql));
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			if (e.getCause() instanceof DriverException) {
+				LOG.debug("Query cannot be prepared now: {}, reason: {}", cql, e.getCause().getMessage());
+				return Optional.empty();
+			}
+			Throwables.propagateIfPossible(e.getCause());
+			throw new IllegalStateException("Error preparing: " + key, e.getCause());
+		}
+	}
+
+	void invalidateAll() {
+		LOG.debug("Invalidating prepared statements");
+		cache.invalidateAll();
+	}
+
+	/** @throws DriverException on transient error - it's not being cached */
+	private Optional<PreparedStatement> prepareIntern(Session session, String cql) {
+		LOG.debug("Preparing: {}", cql);
+		try {
+			return Optional.of(session.prepare(cql));
+		} catch (InvalidQueryException | SyntaxError e) {
+			LOG.debug("Query cannot be prepared: {}, reason: {}", cql, e.getMessage());
+			return Optional.empty();
+		}
+	}
+
+	private final static class StatementKey {
+		private final String keyspace;
+
+		private final String cql;
+
+		StatementKey(String keyspace, String cql) {
+			this.keyspace = keyspace;
+			this.cql = cql;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(keyspace, cql);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			final StatementKey other = (StatementKey) obj;
+			return Objects.equals(keyspace, other.keyspace) && Objects.equals(cql, other.cql);
+		}
+
+		@Override
+		public String toString() {
+			return MoreObjects.toStringHelper(this).add("keyspace", keyspace).add("cql", cql).toString();
+		}
+	}
+}
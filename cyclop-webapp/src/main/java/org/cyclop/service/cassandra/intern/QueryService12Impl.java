@@ -16,8 +16,6 @@
  */
 package org.cyclop.service.cassandra.intern;
 
-import static org.cyclop.common.QueryHelper.extractTableName;
-
 import java.util.Arrays;
 import java.util.Optional;
 
@@ -28,8 +26,6 @@ import org.cyclop.model.CassandraVersion;
 import org.cyclop.model.CqlColumnName;
 import org.cyclop.model.CqlColumnType;
 import org.cyclop.model.CqlDataType;
-import org.cyclop.model.CqlKeyword;
-import org.cyclop.model.CqlQuery;
 import org.cyclop.model.CqlTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,6 +49,11 @@ class QueryService12Impl extends QueryServiceImpl {
 	private final static Logger LOG = LoggerFactory.getLogger(QueryService12Impl.class);
 
 	private ImmutableSet<String> findPartitionKeyNamesLc(CqlTable table) {
+		Optional<ImmutableSet<String>> fromMetadata = readMetadata(m -> schemaReader.findPartitionKeyNamesLc(m,
+				table, queryScope.getActiveKeySpace()));
+		if (fromMetadata.isPresent()) {
+			return fromMetadata.get();
+		}
 
 		Optional<ResultSet> result = executeSilent("select key_aliases FROM system.schema_columnfamilies where "
 				+ "columnfamily_name='" + table.part + "' allow filtering");
@@ -89,19 +90,13 @@ class QueryService12Impl extends QueryServiceImpl {
 								partitionKey)));
 	}
 
-	protected ImmutableMap<String, CqlColumnType> createTypeMap(CqlQuery query) {
-
-		Optional<CqlTable> table = extractTableName(CqlKeyword.Def.FROM.value, query);
-		if (!table.isPresent()) {
-			LOG.warn("Could not extract table name from: {}. Column type information is not available.");
-			return ImmutableMap.of();
-		}
-
+	@Override
+	protected ImmutableMap<String, CqlColumnType> createTypeMap(CqlTable table) {
 		ImmutableMap.Builder<String, CqlColumnType> types = ImmutableMap.builder();
-		findPartitionKeyNamesLc(table.get()).forEach(pk -> types.put(pk, CqlColumnType.PARTITION_KEY));
+		findPartitionKeyNamesLc(table).forEach(pk -> types.put(pk, CqlColumnType.PARTITION_KEY));
 
 		ResultSet result = execute("select column_name from system.schema_columns where columnfamily_name='"
-				+ table.get().part + "' allow filtering");
+				+ table.part + "' allow filtering");
 		for (Row row : result) {
 			String name = StringUtils.trimToNull(row.getString("column_name"));
 			if (name == null) {
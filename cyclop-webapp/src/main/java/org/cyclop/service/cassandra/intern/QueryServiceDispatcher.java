@@ -32,6 +32,7 @@ import org.cyclop.service.cassandra.QueryService;
 import org.springframework.context.annotation.Primary;
 
 import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /** @author Maciej Miklas */
 @Named
@@ -95,6 +96,16 @@ public class QueryServiceDispatcher implements QueryService {
 		return get().execute(query, updateHistory);
 	}
 
+	@Override
+	public CqlQueryResult execute(CqlQuery query, boolean updateHistory, int fetchSize, Optional<String> pagingState) {
+		return get().execute(query, updateHistory, fetchSize, pagingState);
+	}
+
+	@Override
+	public ListenableFuture<CqlQueryResult> executeAsync(CqlQuery query, boolean updateHistory) {
+		return get().executeAsync(query, updateHistory);
+	}
+
 	@Override
 	public ImmutableSortedSet<CqlColumnName> findColumnNames(Optional<CqlTable> table) {
 		return get().findColumnNames(table);
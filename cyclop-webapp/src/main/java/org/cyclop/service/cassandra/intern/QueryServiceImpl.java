@@ -20,14 +20,24 @@ import static org.cyclop.common.Gullectors.toImmutableMap;
 import static org.cyclop.common.Gullectors.toNaturalImmutableSortedSet;
 import static org.cyclop.common.QueryHelper.extractSpace;
 import static org.cyclop.common.QueryHelper.extractTableName;
+import static org.cyclop.common.QueryHelper.isSchemaChange;
+import static org.cyclop.common.QueryHelper.keySpaceName;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.util.stream.StreamSupport;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Named;
 
@@ -49,6 +59,7 @@ import org.cyclop.model.CqlQueryType;
 import org.cyclop.model.CqlRowMetadata;
 import org.cyclop.model.CqlTable;
 import org.cyclop.model.QueryEntry;
+import org.cyclop.model.QueryHistory;
 import org.cyclop.model.exception.QueryException;
 import org.cyclop.service.cassandra.QueryService;
 import org.cyclop.service.queryprotocoling.HistoryService;
@@ -58,11 +69,20 @@ import org.slf4j.LoggerFactory;
 
 import com.datastax.driver.core.ColumnDefinitions;
 import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.PagingState;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.PagingStateException;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /** @author Maciej Miklas */
 @EnableValidation
@@ -84,9 +104,41 @@ class QueryServiceImpl implements QueryService {
 	@Inject
 	private HistoryService historyService;
 
+	@Inject
+	protected SchemaMetadataReader schemaReader;
+
+	@Inject
+	private StatementFactory statementFactory;
+
+	/**
+	 * converts results of async queries - it cannot run on driver's I/O thread, because reading the first rows might
+	 * fetch next page synchronously
+	 */
+	private ExecutorService resultExecutor;
+
+	@PostConstruct
+	void init() {
+		resultExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+				.setNameFormat("cyclop-query-result-%d").setDaemon(true).build());
+	}
+
+	@PreDestroy
+	void shutdown() {
+		LOG.debug("Stopping async query result conversion");
+		resultExecutor.shutdownNow();
+	}
+
 	@Override
 	public boolean checkTableExists(CqlTable table) {
 		Validate.notNull(table, "null CqlTable");
+		return session.getSchemaCache().get("tableExists", table, () -> loadTableExists(table));
+	}
+
+	private boolean loadTableExists(CqlTable table) {
+		Optional<Boolean> fromMetadata = readMetadata(m -> schemaReader.checkTableExists(m, table));
+		if (fromMetadata.isPresent()) {
+			return fromMetadata.get();
+		}
 
 		StringBuilder cql = new StringBuilder("select columnfamily_name from system.schema_columnfamilies");
 		cql.append(" where columnfamily_name='").append(table.partLc).append("' allow filtering");
@@ -98,6 +150,15 @@ class QueryServiceImpl implements QueryService {
 
 	@Override
 	public ImmutableSortedSet<CqlIndex> findAllIndexes(Optional<CqlKeySpace> keySpace) {
+		return session.getSchemaCache().get("allIndexes", keySpace, () -> loadAllIndexes(keySpace));
+	}
+
+	private ImmutableSortedSet<CqlIndex> loadAllIndexes(Optional<CqlKeySpace> keySpace) {
+		Optional<ImmutableSortedSet<CqlIndex>> fromMetadata = readMetadata(m -> schemaReader.findAllIndexes(m,
+				keySpace));
+		if (fromMetadata.isPresent()) {
+			return fromMetadata.get();
+		}
 
 		StringBuilder cql = new StringBuilder("SELECT index_name FROM system.schema_columns");
 		if (keySpace.isPresent()) {
@@ -116,6 +177,14 @@ class QueryServiceImpl implements QueryService {
 
 	@Override
 	public ImmutableSortedSet<CqlKeySpace> findAllKeySpaces() {
+		return session.getSchemaCache().get("allKeySpaces", null, this::loadAllKeySpaces);
+	}
+
+	private ImmutableSortedSet<CqlKeySpace> loadAllKeySpaces() {
+		Optional<ImmutableSortedSet<CqlKeySpace>> fromMetadata = readMetadata(schemaReader::findAllKeySpaces);
+		if (fromMetadata.isPresent()) {
+			return fromMetadata.get();
+		}
 
 		Optional<ResultSet> result = executeSilent("select keyspace_name from system.schema_keyspaces");
 		if (!result.isPresent()) {
@@ -129,6 +198,15 @@ class QueryServiceImpl implements QueryService {
 
 	@Override
 	public ImmutableSortedSet<CqlTable> findTableNames(Optional<CqlKeySpace> keySpace) {
+		return session.getSchemaCache().get("tableNames", keySpace, () -> loadTableNames(keySpace));
+	}
+
+	private ImmutableSortedSet<CqlTable> loadTableNames(Optional<CqlKeySpace> keySpace) {
+		Optional<ImmutableSortedSet<CqlTable>> fromMetadata = readMetadata(m -> schemaReader.findTableNames(m,
+				keySpace));
+		if (fromMetadata.isPresent()) {
+			return fromMetadata.get();
+		}
 
 		StringBuilder cql = new StringBuilder("select columnfamily_name from system.schema_columnfamilies");
 		if (keySpace.isPresent()) {
@@ -144,9 +222,25 @@ class QueryServiceImpl implements QueryService {
 		return res;
 	}
 
-	private void setActiveKeySpace(CqlQuery query) {
+	/**
+	 * Driver session is shared with other users, so {@code USE} cannot be executed on it - it would change keyspace
+	 * for all of them. Instead this http session switches to driver session bound to given keyspace.
+	 *
+	 * @return true if query was {@code USE} and it has been executed
+	 */
+	private boolean executeUse(CqlQuery query) {
 		Optional<CqlKeySpace> space = extractSpace(query);
+		if (!space.isPresent()) {
+			return false;
+		}
+		LOG.debug("Switching to keyspace: {}", space);
+		try {
+			session.useKeyspace(keySpaceName(space.get()));
+		} catch (Exception e) {
+			throw new QueryException("Error executing CQL: '" + query.part + "', reason: " + e.getMessage(), e);
+		}
 		queryScope.setActiveKeySpace(space);
+		return true;
 	}
 
 	@Override
@@ -157,7 +251,10 @@ class QueryServiceImpl implements QueryService {
 	@Override
 	public void executeSimple(CqlQuery query, boolean updateHistory) {
 		long startTime = System.currentTimeMillis();
-		execute(query.part);
+		if (!executeUse(query)) {
+			execute(createStatement(query, config.cassandra.fetchSize, Optional.empty()));
+			invalidateSchema(query, session.getLease());
+		}
 		if (updateHistory) {
 			updateHistory(query, startTime);
 		}
@@ -165,8 +262,13 @@ class QueryServiceImpl implements QueryService {
 
 	@Override
 	public CqlQueryResult execute(CqlQuery query, boolean updateHistory) {
+		return execute(query, updateHistory, config.cassandra.fetchSize, Optional.empty());
+	}
+
+	@Override
+	public CqlQueryResult execute(CqlQuery query, boolean updateHistory, int fetchSize, Optional<String> pagingState) {
 		long startTime = System.currentTimeMillis();
-		CqlQueryResult result = executeIntern(query);
+		CqlQueryResult result = executeIntern(query, fetchSize, pagingState);
 
 		if (updateHistory) {
 			updateHistory(query, startTime);
@@ -174,23 +276,84 @@ class QueryServiceImpl implements QueryService {
 		return result;
 	}
 
-	private CqlQueryResult executeIntern(CqlQuery query) {
+	@Override
+	public ListenableFuture<CqlQueryResult> executeAsync(CqlQuery query, boolean updateHistory) {
+		LOG.debug("Executing async CQL: {}", query);
+		long startTime = System.currentTimeMillis();
+
+		// history and session are bound to http session - they cannot be accessed from driver's thread
+		Optional<QueryHistory> history = updateHistory ? Optional.of(historyService.read()) : Optional.empty();
+		if (query.type == CqlQueryType.USE && executeUse(query)) {
+			history.ifPresent(h -> h.add(new QueryEntry(query, System.currentTimeMillis() - startTime)));
+			return Futures.immediateFuture(CqlQueryResult.EMPTY);
+		}
+
+		// type map is read before execution, so that transformation does not block driver's thread
+		Map<String, CqlColumnType> typeMap = query.type == CqlQueryType.SELECT ? findTypeMap(query)
+				: ImmutableMap.of();
+
+		int fetchSize = config.cassandra.fetchSize;
+		SessionLease lease = session.getLease();
+		ResultSetFuture future;
+		try {
+			future = session.getSession().executeAsync(createStatement(query, fetchSize, Optional.empty()));
+		} catch (Exception e) {
+			throw new QueryException("Error executing CQL: '" + query.part + "', reason: " + e.getMessage(), e);
+		}
+
+		return Futures.transform(future, (ResultSet cqlResult) -> {
+			invalidateSchema(query, lease);
+			CqlQueryResult result = createResult(cqlResult, typeMap, fetchSize);
+			history.ifPresent(h -> h.add(new QueryEntry(query, System.currentTimeMillis() - startTime)));
+			return result;
+		}, resultExecutor);
+	}
+
+	private CqlQueryResult executeIntern(CqlQuery query, int fetchSize, Optional<String> pagingState) {
 		LOG.debug("Executing CQL: {}", query);
-		if (query.type == CqlQueryType.USE) {
-			setActiveKeySpace(query);
+		if (query.type == CqlQueryType.USE && executeUse(query)) {
+			return CqlQueryResult.EMPTY;
 		}
 
-		ResultSet cqlResult = execute(query.part);
+		ResultSet cqlResult = execute(createStatement(query, fetchSize, pagingState));
+		invalidateSchema(query, session.getLease());
 		if (cqlResult == null || cqlResult.isExhausted()) {
 			return CqlQueryResult.EMPTY;
 		}
 
-		Map<String, CqlColumnType> typeMap = createTypeMap(query);
-		Row firstRow = cqlResult.one();
-		CqlRowMetadata rowMetadata = extractRowMetadata(firstRow, typeMap);
+		Map<String, CqlColumnType> typeMap = findTypeMap(query);
+		return createResult(cqlResult, typeMap, fetchSize);
+	}
+
+	private void invalidateSchema(CqlQuery query, SessionLease lease) {
+		if (isSchemaChange(query)) {
+			LOG.debug("Schema changed by: {}", query);
+			lease.invalidateSchema();
+		}
+	}
 
-		RowIterator rowIterator = new RowIterator(cqlResult.iterator(), firstRow);
-		CqlQueryResult result = new CqlQueryResult(rowIterator, rowMetadata);
+	private Statement createStatement(CqlQuery query, int fetchSize, Optional<String> pagingState) {
+		Statement statement = statementFactory.create(session.getLease(), session.getSession(), query.part);
+		statement.setFetchSize(fetchSize);
+		if (pagingState.isPresent()) {
+			try {
+				statement.setPagingState(PagingState.fromString(pagingState.get()));
+			} catch (PagingStateException e) {
+				throw new QueryException("Cannot resume CQL: '" + query.part + "', reason: " + e.getMessage(), e);
+			}
+		}
+		return statement;
+	}
+
+	private CqlQueryResult createResult(ResultSet cqlResult, Map<String, CqlColumnType> typeMap, int fetchSize) {
+		if (cqlResult == null || cqlResult.isExhausted()) {
+			return CqlQueryResult.EMPTY;
+		}
+		RowIterator rowIterator = new RowIterator(cqlResult, fetchSize);
+		ImmutableList<Row> sample = rowIterator.buffer(config.cassandra.metadataSampleRows);
+		CqlRowMetadata rowMetadata = extractRowMetadata(sample, typeMap);
+
+		CqlQueryResult result = new CqlQueryResult(rowIterator, rowMetadata, rowIterator);
 		return result;
 	}
 
@@ -200,18 +363,24 @@ class QueryServiceImpl implements QueryService {
 		historyService.addAndStore(entry);
 	}
 
-	private CqlRowMetadata extractRowMetadata(Row row, Map<String, CqlColumnType> typeMap) {
+	/**
+	 * @param sample
+	 *            first rows of the result - column is being displayed when it has value in at least one of them, so
+	 *            that sparse tables do not depend on values of the first row
+	 */
+	private CqlRowMetadata extractRowMetadata(List<Row> sample, Map<String, CqlColumnType> typeMap) {
 
 		// collect and count all columns
-		ColumnDefinitions definitions = row.getColumnDefinitions();
+		ColumnDefinitions definitions = sample.get(0).getColumnDefinitions();
 		ImmutableList.Builder<CqlExtendedColumnName> columnsBuild = ImmutableList.builder();
 		CqlPartitionKey partitionKey = null;
+		int columnsCount = 0;
 		for (int colIndex = 0; colIndex < definitions.size(); colIndex++) {
-			if (colIndex > config.cassandra.columnsLimit) {
+			if (columnsCount >= config.cassandra.columnsLimit) {
 				LOG.debug("Reached columns limit: {}", config.cassandra.columnsLimit);
 				break;
 			}
-			if (row.isNull(colIndex)) {
+			if (isNull(sample, colIndex)) {
 				continue;
 			}
 			DataType dataType = definitions.getType(colIndex);
@@ -222,17 +391,28 @@ class QueryServiceImpl implements QueryService {
 				LOG.debug("Column type not found for: {} - using regular", columnNameText);
 			}
 			CqlExtendedColumnName columnName = new CqlExtendedColumnName(columnType, CqlDataType.create(dataType),
-					columnNameText);
+					columnNameText, colIndex);
 			if (columnType == CqlColumnType.PARTITION_KEY) {
 				partitionKey = CqlPartitionKey.fromColumn(columnName);
 			}
 			columnsBuild.add(columnName);
+			columnsCount++;
 		}
 
 		CqlRowMetadata metadata = new CqlRowMetadata(columnsBuild.build(), partitionKey);
+		LOG.debug("Extracted metadata from {} rows: {}", sample.size(), metadata);
 		return metadata;
 	}
 
+	private static boolean isNull(List<Row> sample, int colIndex) {
+		for (Row row : sample) {
+			if (!row.isNull(colIndex)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	private <T extends Comparable<?>> ImmutableSortedSet<T> map(Optional<ResultSet> result, String columnName,
 																Function<String, T> mapper) {
 		ImmutableSortedSet<T> res = StreamSupport.stream(result.get().spliterator(), false)
@@ -241,16 +421,35 @@ class QueryServiceImpl implements QueryService {
 		return res;
 	}
 
-	protected ImmutableMap<String, CqlColumnType> createTypeMap(CqlQuery query) {
-
+	/** type maps are cached pro table - table without keyspace belongs to the active one */
+	private ImmutableMap<String, CqlColumnType> findTypeMap(CqlQuery query) {
 		Optional<CqlTable> table = extractTableName(CqlKeyword.Def.FROM.value, query);
 		if (!table.isPresent()) {
-			LOG.warn("Could not extract table name from: {}. Column type information is not available.");
+			LOG.warn("Could not extract table name from: {}. Column type information is not available.", query);
 			return ImmutableMap.of();
 		}
 
-		Optional<ResultSet> result = executeSilent("select column_name, type from system.schema_columns where "
-				+ "columnfamily_name='" + table.get().part + "' allow filtering");
+		CqlTable resolved = table.get();
+		if (resolved.keySpace == null) {
+			resolved = new CqlTable(queryScope.getActiveKeySpace().orElse(null), resolved.part);
+		}
+		CqlTable typeMapTable = resolved;
+		return session.getSchemaCache().get("typeMap", typeMapTable, () -> createTypeMap(typeMapTable));
+	}
+
+	protected ImmutableMap<String, CqlColumnType> createTypeMap(CqlTable table) {
+		Optional<ImmutableMap<String, CqlColumnType>> fromMetadata = readMetadata(m -> schemaReader.createTypeMap(m,
+				table, Optional.empty()));
+		if (fromMetadata.isPresent()) {
+			return fromMetadata.get();
+		}
+
+		StringBuilder cql = new StringBuilder("select column_name, type from system.schema_columns where ");
+		if (table.keySpace != null) {
+			cql.append("keyspace_name='").append(table.keySpace.partLc).append("' and ");
+		}
+		cql.append("columnfamily_name='").append(table.part).append("' allow filtering");
+		Optional<ResultSet> result = executeSilent(cql.toString());
 		if (!result.isPresent()) {
 			LOG.warn("Could not readIdentifier types for columns of table: " + table);
 			return ImmutableMap.of();
@@ -284,6 +483,15 @@ class QueryServiceImpl implements QueryService {
 
 	@Override
 	public ImmutableSortedSet<CqlColumnName> findColumnNames(Optional<CqlTable> table) {
+		return session.getSchemaCache().get("columnNames", table, () -> loadColumnNames(table));
+	}
+
+	private ImmutableSortedSet<CqlColumnName> loadColumnNames(Optional<CqlTable> table) {
+		Optional<ImmutableSortedSet<CqlColumnName>> fromMetadata = readMetadata(m -> schemaReader.findColumnNames(m,
+				table, config.cassandra.columnsLimit));
+		if (fromMetadata.isPresent()) {
+			return fromMetadata.get();
+		}
 
 		StringBuilder buf = new StringBuilder("select column_name from system.schema_columns");
 		if (table.isPresent()) {
@@ -339,6 +547,17 @@ class QueryServiceImpl implements QueryService {
 		return findColumnNames(Optional.empty());
 	}
 
+	/** @return empty if metadata is not available, or does not contain requested information */
+	protected <T> Optional<T> readMetadata(Function<Metadata, Optional<T>> reader) {
+		try {
+			return reader.apply(session.getSession().getCluster().getMetadata());
+		} catch (Exception e) {
+			LOG.warn("Cannot read driver metadata, reason: " + e.getMessage());
+			LOG.debug(e.getMessage(), e);
+			return Optional.empty();
+		}
+	}
+
 	protected Optional<ResultSet> executeSilent(String cql) {
 
 		LOG.debug("Executing: {}", cql);
@@ -353,45 +572,88 @@ class QueryServiceImpl implements QueryService {
 	}
 
 	protected ResultSet execute(String cql) {
+		return execute(new SimpleStatement(cql));
+	}
+
+	protected ResultSet execute(Statement statement) {
 
-		LOG.debug("Executing: {} ", cql);
+		LOG.debug("Executing: {} ", statement);
 		ResultSet resultSet;
 		try {
-			resultSet = session.getSession().execute(cql);
+			resultSet = session.getSession().execute(statement);
 		} catch (Exception e) {
-			throw new QueryException("Error executing CQL: '" + cql + "', reason: " + e.getMessage(), e);
+			throw new QueryException("Error executing CQL: '" + statement + "', reason: " + e.getMessage(), e);
 		}
 		return resultSet;
 	}
 
-	private class RowIterator implements Iterator<Row> {
+	private class RowIterator implements Iterator<Row>, CqlQueryResult.Paging {
+
+		private final ResultSet resultSet;
 
 		private final Iterator<Row> wrapped;
 
-		private final Row firstRow;
+		/** rows read ahead to discover result columns, they are returned before the remaining rows */
+		private final Deque<Row> buffered = new ArrayDeque<>();
+
+		/** next page is requested in background when there are less rows left in the current one */
+		private final int prefetchThreshold;
+
+		/**
+		 * amount of rows up to the end of each received page - it's being recorded before next page is requested,
+		 * because pages might contain less rows than fetch size
+		 */
+		private final List<Integer> pageEnds = new ArrayList<>();
 
+		/** rows returned to the caller */
 		private int read = 0;
 
-		private RowIterator(Iterator<Row> wrapped, Row firstRow) {
-			this.wrapped = wrapped;
-			this.firstRow = firstRow;
+		/** rows taken from result set - also those that are buffered */
+		private int taken = 0;
+
+		private RowIterator(ResultSet resultSet, int fetchSize) {
+			this.resultSet = resultSet;
+			this.wrapped = resultSet.iterator();
+			this.prefetchThreshold = Math.max(1, fetchSize / 4);
+		}
+
+		/**
+		 * Reads ahead up to given amount of rows, but only those that are already fetched - it does not block on
+		 * next page. Result must not be empty.
+		 *
+		 * @return buffered rows, at least one
+		 */
+		private ImmutableList<Row> buffer(int maxRows) {
+			do {
+				buffered.add(wrapped.next());
+				taken++;
+				prefetch();
+			} while (buffered.size() < maxRows && resultSet.getAvailableWithoutFetching() > 0);
+			return ImmutableList.copyOf(buffered);
 		}
 
 		@Override
 		public boolean hasNext() {
-			boolean has;
-			if (read == 0 && firstRow != null) {
-				has = true;
-
-			} else {
-				has = wrapped.hasNext();
+			if (!buffered.isEmpty()) {
+				return true;
+			}
+			if (resultSet.getAvailableWithoutFetching() == 0 && !resultSet.isFullyFetched()) {
+				// result set fetches next page synchronously
+				recordPageEnd();
 			}
-			return has;
+			return wrapped.hasNext();
 		}
 
 		@Override
 		public Row next() {
-			Row next = read == 0 ? firstRow : wrapped.next();
+			Row next;
+			if (buffered.isEmpty()) {
+				next = wrapped.next();
+				taken++;
+				prefetch();
+			} else {
+				next = buffered.poll();
+			}
 
 			if (next != null) {
 				read++;
@@ -399,6 +661,55 @@ class QueryServiceImpl implements QueryService {
 			return next;
 		}
 
+		private void prefetch() {
+			if (resultSet.isFullyFetched()) {
+				return;
+			}
+			int available = resultSet.getAvailableWithoutFetching();
+			if (available <= prefetchThreshold) {
+				recordPageEnd();
+			}
+			if (available == prefetchThreshold) {
+				LOG.debug("Prefetching next page after {} rows", taken);
+				resultSet.fetchMoreResults();
+			}
+		}
+
+		/**
+		 * Each fetch is preceded by this call, so that the last received page is recorded exactly once: all its rows
+		 * are either taken or available, and following page has not been requested yet.
+		 */
+		private void recordPageEnd() {
+			int pages = resultSet.getAllExecutionInfo().size();
+			if (pageEnds.size() < pages) {
+				pageEnds.add(taken + resultSet.getAvailableWithoutFetching());
+			}
+		}
+
+		/** @return amount of pages that have been completely returned to the caller */
+		private int pagesRead() {
+			int pagesRead = 0;
+			while (pagesRead < pageEnds.size() && pageEnds.get(pagesRead) <= read) {
+				pagesRead++;
+			}
+			return pagesRead;
+		}
+
+		@Override
+		public Optional<String> getPagingState() {
+			int pagesRead = pagesRead();
+			if (pagesRead == 0) {
+				return Optional.empty();
+			}
+			PagingState state = resultSet.getAllExecutionInfo().get(pagesRead - 1).getPagingState();
+			return Optional.ofNullable(state).map(PagingState::toString);
+		}
+
+		@Override
+		public int getPagingStateOffset() {
+			return getPagingState().isPresent() ? pageEnds.get(pagesRead() - 1) : 0;
+		}
+
 		@Override
 		public void remove() {
 			throw new UnsupportedOperationException("Remove is not supported");
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.cassandra.intern;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Schema lookups (keyspaces, tables, columns, indexes) of single {@link SharedCluster}. Entries expire after
+ * configured TTL, so that schema changes done by other clients will be visible, and whole cache is invalidated when
+ * schema is being changed trough this application.
+ *
+ * @author Maciej Miklas
+ */
+@ThreadSafe
+final class SchemaCache {
+	private final static Logger LOG = LoggerFactory.getLogger(SchemaCache.class);
+
+	private final Cache<SchemaKey, Object> cache;
+
+	SchemaCache(long ttlMillis) {
+		cache = CacheBuilder.newBuilder().expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS).build();
+	}
+
+	/**
+	 * @param lookup
+	 *            name of schema lookup - like "tableNames"
+	 * @param param
+	 *            lookup parameter, it has to implement equals and hashCode
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T get(String lookup, Object param, Supplier<T> loader) {
+		SchemaKey key = new SchemaKey(lookup, param);
+		try {
+			return (T) cache.get(key, () -> {
+				LOG.debug("Loading schema: {}", key);
+				return loader.get();
+			});
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			Throwables.propagateIfPossible(e.getCause());
+			throw new IllegalStateException("Error loading schema: " + key, e.getCause());
+		}
+	}
+
+	void invalidateAll() {
+		LOG.debug("Invalidating schema cache");
+		cache.invalidateAll();
+	}
+
+	private final static class SchemaKey {
+		private final String lookup;
+
+		private final Object param;
+
+		SchemaKey(String lookup, Object param) {
+			this.lookup = lookup;
+			this.param = param;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(lookup, param);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			final SchemaKey other = (SchemaKey) obj;
+			return Objects.equals(lookup, other.lookup) && Objects.equals(param, other.param);
+		}
+
+		@Override
+		public String toString() {
+			return MoreObjects.toStringHelper(this).add("lookup", lookup).add("param", param).toString();
+		}
+	}
+}
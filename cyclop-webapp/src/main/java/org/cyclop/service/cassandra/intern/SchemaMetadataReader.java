@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.cassandra.intern;
+
+import static org.cyclop.common.Gullectors.toImmutableSet;
+import static org.cyclop.common.Gullectors.toNaturalImmutableSortedSet;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.inject.Named;
+
+import org.cyclop.model.CqlColumnName;
+import org.cyclop.model.CqlColumnType;
+import org.cyclop.model.CqlDataType;
+import org.cyclop.model.CqlIndex;
+import org.cyclop.model.CqlKeySpace;
+import org.cyclop.model.CqlTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.TableMetadata;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+
+/**
+ * Reads schema from driver's {@link Metadata} - it's kept in memory and updated by schema change events, so there is
+ * no network round trip. Each method returns empty {@link Optional} when requested information is not available in
+ * metadata, in this case caller should fall back to system tables.
+ *
+ * @author Maciej Miklas
+ */
+@Named
+class SchemaMetadataReader {
+	private final static Logger LOG = LoggerFactory.getLogger(SchemaMetadataReader.class);
+
+	public Optional<ImmutableSortedSet<CqlKeySpace>> findAllKeySpaces(Metadata metadata) {
+		List<KeyspaceMetadata> keyspaces = metadata.getKeyspaces();
+		if (keyspaces.isEmpty()) {
+			return Optional.empty();
+		}
+		return Optional.of(keyspaces.stream().map(k -> new CqlKeySpace(k.getName()))
+				.collect(toNaturalImmutableSortedSet()));
+	}
+
+	public Optional<ImmutableSortedSet<CqlTable>> findTableNames(Metadata metadata, Optional<CqlKeySpace> keySpace) {
+		return keyspaces(metadata, keySpace).map(
+				kss -> tables(kss).map(t -> new CqlTable(t.getName())).collect(toNaturalImmutableSortedSet()));
+	}
+
+	public Optional<ImmutableSortedSet<CqlIndex>> findAllIndexes(Metadata metadata, Optional<CqlKeySpace> keySpace) {
+		return keyspaces(metadata, keySpace).map(
+				kss -> tables(kss).flatMap(t -> t.getColumns().stream()).map(ColumnMetadata::getIndex)
+						.filter(Objects::nonNull).map(i -> new CqlIndex(i.getName()))
+						.collect(toNaturalImmutableSortedSet()));
+	}
+
+	/** table is being searched in all keyspaces - keyspace of given table is ignored */
+	public Optional<Boolean> checkTableExists(Metadata metadata, CqlTable table) {
+		boolean exists = tables(metadata.getKeyspaces()).anyMatch(t -> matches(t, table));
+		return exists ? Optional.of(true) : Optional.empty();
+	}
+
+	/** table is being searched in all keyspaces - keyspace of given table is ignored */
+	public Optional<ImmutableSortedSet<CqlColumnName>> findColumnNames(Metadata metadata, Optional<CqlTable> table,
+			int columnsLimit) {
+		List<KeyspaceMetadata> keyspaces = metadata.getKeyspaces();
+		if (keyspaces.isEmpty()) {
+			return Optional.empty();
+		}
+		ImmutableSortedSet<CqlColumnName> columns = tables(keyspaces)
+				.filter(t -> !table.isPresent() || matches(t, table.get())).flatMap(t -> t.getColumns().stream())
+				.limit(columnsLimit).map(c -> new CqlColumnName(CqlDataType.create(DataType.text()), c.getName()))
+				.collect(toNaturalImmutableSortedSet());
+		if (table.isPresent() && columns.isEmpty()) {
+			return Optional.empty();
+		}
+		return Optional.of(columns);
+	}
+
+	/**
+	 * @param activeKeySpace
+	 *            used to find table without keyspace, before searching all keyspaces
+	 */
+	public Optional<ImmutableMap<String, CqlColumnType>> createTypeMap(Metadata metadata, CqlTable table,
+			Optional<CqlKeySpace> activeKeySpace) {
+		Optional<TableMetadata> tableMeta = findTable(metadata, table, activeKeySpace);
+		if (!tableMeta.isPresent()) {
+			return Optional.empty();
+		}
+		TableMetadata meta = tableMeta.get();
+		ImmutableMap.Builder<String, CqlColumnType> types = ImmutableMap.builder();
+		for (ColumnMetadata column : meta.getColumns()) {
+			CqlColumnType type;
+			if (meta.getPartitionKey().contains(column)) {
+				type = CqlColumnType.PARTITION_KEY;
+			} else if (meta.getClusteringColumns().contains(column)) {
+				type = CqlColumnType.CLUSTERING_KEY;
+			} else {
+				type = CqlColumnType.REGULAR;
+			}
+			types.put(column.getName().toLowerCase(), type);
+		}
+		return Optional.of(types.build());
+	}
+
+	public Optional<ImmutableSet<String>> findPartitionKeyNamesLc(Metadata metadata, CqlTable table,
+			Optional<CqlKeySpace> activeKeySpace) {
+		return findTable(metadata, table, activeKeySpace).map(
+				t -> t.getPartitionKey().stream().map(c -> c.getName().toLowerCase()).collect(toImmutableSet()));
+	}
+
+	private Optional<TableMetadata> findTable(Metadata metadata, CqlTable table, Optional<CqlKeySpace> activeKeySpace) {
+		Optional<CqlKeySpace> keySpace = Optional.ofNullable(table.keySpace);
+		if (!keySpace.isPresent()) {
+			keySpace = activeKeySpace;
+		}
+		if (keySpace.isPresent()) {
+			KeyspaceMetadata ksMeta = metadata.getKeyspace(keySpace.get().partLc);
+			if (ksMeta != null) {
+				Optional<TableMetadata> found = ksMeta.getTables().stream().filter(t -> matches(t, table)).findFirst();
+				if (found.isPresent() || table.keySpace != null) {
+					return found;
+				}
+			}
+		}
+		Optional<TableMetadata> found = tables(metadata.getKeyspaces()).filter(t -> matches(t, table)).findFirst();
+		LOG.debug("Found metadata for {}: {}", table, found.isPresent());
+		return found;
+	}
+
+	private Optional<Collection<KeyspaceMetadata>> keyspaces(Metadata metadata, Optional<CqlKeySpace> keySpace) {
+		if (!keySpace.isPresent()) {
+			List<KeyspaceMetadata> all = metadata.getKeyspaces();
+			return all.isEmpty() ? Optional.empty() : Optional.of(all);
+		}
+		KeyspaceMetadata ksMeta = metadata.getKeyspace(keySpace.get().partLc);
+		return ksMeta == null ? Optional.empty() : Optional.of(ImmutableSet.of(ksMeta));
+	}
+
+	private static Stream<TableMetadata> tables(Collection<KeyspaceMetadata> keyspaces) {
+		return keyspaces.stream().flatMap(k -> k.getTables().stream());
+	}
+
+	private static boolean matches(TableMetadata tableMeta, CqlTable table) {
+		return tableMeta.getName().toLowerCase().equals(table.partLc);
+	}
+}
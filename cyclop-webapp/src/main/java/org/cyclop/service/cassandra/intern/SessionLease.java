@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.cassandra.intern;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.cyclop.model.CassandraVersion;
+
+import com.datastax.driver.core.Session;
+
+/**
+ * Reference on {@link SharedCluster} held by single http session. Tracks active keyspace, because {@code USE} cannot
+ * be executed on session shared with other users - instead lease switches to the driver session bound to this
+ * keyspace.
+ *
+ * @author Maciej Miklas
+ */
+@ThreadSafe
+public final class SessionLease implements AutoCloseable {
+
+	private final SharedCluster cluster;
+
+	/** keyspaces for which this lease holds reference on shared session */
+	private final Set<String> acquired = new HashSet<>();
+
+	private Session activeSession;
+
+	private boolean closed = false;
+
+	SessionLease(SharedCluster cluster) {
+		this.cluster = cluster;
+		this.activeSession = acquire(SharedCluster.NO_KEYSPACE);
+	}
+
+	public CassandraVersion getCassandraVersion() {
+		return cluster.getCassandraVersion();
+	}
+
+	/** @return schema cache shared by all leases of the same cluster */
+	SchemaCache getSchemaCache() {
+		return cluster.getSchemaCache();
+	}
+
+	PreparedStatementCache getPreparedStatementCache() {
+		return cluster.getPreparedStatementCache();
+	}
+
+	/** Has to be called after schema has been changed trough one of sessions provided by this lease */
+	public void invalidateSchema() {
+		cluster.invalidateSchema();
+	}
+
+	/** @return session bound to keyspace selected by last {@link #useKeyspace(String)} */
+	public synchronized Session getSession() {
+		checkOpen();
+		return activeSession;
+	}
+
+	/**
+	 * @param keyspace
+	 *            name as stored in Cassandra - case sensitive and without quotes
+	 * @return session bound to given keyspace, active keyspace of this lease does not change
+	 */
+	public synchronized Session getSession(String keyspace) {
+		checkOpen();
+		return acquire(keyspace);
+	}
+
+	/**
+	 * Replacement for {@code USE keyspace} - following calls to {@link #getSession()} will use given keyspace
+	 *
+	 * @param keyspace
+	 *            name as stored in Cassandra - case sensitive and without quotes
+	 */
+	public synchronized void useKeyspace(String keyspace) {
+		checkOpen();
+		activeSession = acquire(keyspace);
+	}
+
+	/**
+	 * @return new lease on the same cluster holding the same keyspace sessions as this one - it keeps them open for
+	 *         work outliving http session, like background export. It has to be closed independently of this lease
+	 */
+	public synchronized SessionLease share() {
+		checkOpen();
+		if (!cluster.retain()) {
+			// cannot happen - this lease holds reference on cluster
+			throw new IllegalStateException("Shared cluster already closed");
+		}
+		SessionLease shared = new SessionLease(cluster);
+		acquired.forEach(shared::acquire);
+		shared.activeSession = activeSession;
+		return shared;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		acquired.forEach(cluster::releaseSession);
+		acquired.clear();
+		activeSession = null;
+		cluster.release();
+	}
+
+	private Session acquire(String keyspace) {
+		if (acquired.contains(keyspace)) {
+			// lease holds single reference per keyspace - cluster returns the same session
+			Session session = cluster.acquireSession(keyspace);
+			cluster.releaseSession(keyspace);
+			return session;
+		}
+		Session session = cluster.acquireSession(keyspace);
+		acquired.add(keyspace);
+		return session;
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("Session lease already closed");
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.cassandra.intern;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.cyclop.model.CassandraVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.Session;
+import com.google.common.base.MoreObjects;
+
+/**
+ * Single {@link Cluster} shared by many http sessions. Driver sessions are bound to keyspace, so there is one
+ * {@link Session} per keyspace - the one without keyspace is opened together with cluster and lives as long as
+ * cluster.
+ *
+ * @author Maciej Miklas
+ */
+@ThreadSafe
+final class SharedCluster {
+	private final static Logger LOG = LoggerFactory.getLogger(SharedCluster.class);
+
+	/** key for session without keyspace */
+	final static String NO_KEYSPACE = "";
+
+	private final Cluster cluster;
+
+	private final CassandraVersion cassandraVersion;
+
+	private final String userName;
+
+	private final SchemaCache schemaCache;
+
+	private final PreparedStatementCache preparedStatementCache;
+
+	private final Map<String, SharedSession> sessions = new HashMap<>();
+
+	private int leases = 0;
+
+	private long idleSince = System.currentTimeMillis();
+
+	private boolean closed = false;
+
+	SharedCluster(Cluster cluster, Session defaultSession, CassandraVersion cassandraVersion, String userName,
+			SchemaCache schemaCache, PreparedStatementCache preparedStatementCache) {
+		this.cluster = cluster;
+		this.schemaCache = schemaCache;
+		this.preparedStatementCache = preparedStatementCache;
+		this.cassandraVersion = cassandraVersion;
+		this.userName = userName;
+		sessions.put(NO_KEYSPACE, new SharedSession(defaultSession));
+	}
+
+	CassandraVersion getCassandraVersion() {
+		return cassandraVersion;
+	}
+
+	SchemaCache getSchemaCache() {
+		return schemaCache;
+	}
+
+	PreparedStatementCache getPreparedStatementCache() {
+		return preparedStatementCache;
+	}
+
+	/** prepared statements are invalidated as well, because they do not reflect altered tables */
+	void invalidateSchema() {
+		schemaCache.invalidateAll();
+		preparedStatementCache.invalidateAll();
+	}
+
+	/** @return false if cluster has been already closed and cannot be used anymore */
+	synchronized boolean retain() {
+		if (closed) {
+			return false;
+		}
+		leases++;
+		return true;
+	}
+
+	synchronized void release() {
+		leases--;
+		if (leases == 0) {
+			idleSince = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * @param keyspace
+	 *            keyspace name as stored in Cassandra - case sensitive and without quotes, or {@link #NO_KEYSPACE}
+	 */
+	synchronized Session acquireSession(String keyspace) {
+		if (closed) {
+			throw new IllegalStateException("Cluster already closed: " + this);
+		}
+		SharedSession shared = sessions.get(keyspace);
+		if (shared == null) {
+			LOG.debug("Opening shared session for keyspace: {}", keyspace);
+			// driver executes USE with given name - quoted, so that it keeps its case
+			shared = new SharedSession(cluster.connect(Metadata.quote(keyspace)));
+			sessions.put(keyspace, shared);
+		}
+		shared.users++;
+		return shared.session;
+	}
+
+	synchronized void releaseSession(String keyspace) {
+		SharedSession shared = sessions.get(keyspace);
+		if (shared == null) {
+			return;
+		}
+		shared.users--;
+		if (shared.users == 0) {
+			shared.idleSince = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Closes keyspace sessions that were not used for given time, and whole cluster if it has no leases.
+	 *
+	 * @return true if cluster has been closed
+	 */
+	synchronized boolean evictIdle(long now, long idleMillis) {
+		if (closed) {
+			return true;
+		}
+		if (leases == 0 && now - idleSince >= idleMillis) {
+			close();
+			return true;
+		}
+
+		Iterator<Map.Entry<String, SharedSession>> it = sessions.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, SharedSession> entry = it.next();
+			SharedSession shared = entry.getValue();
+			if (!NO_KEYSPACE.equals(entry.getKey()) && shared.users == 0 && now - shared.idleSince >= idleMillis) {
+				LOG.debug("Closing idle session for keyspace: {}", entry.getKey());
+				shared.session.closeAsync();
+				it.remove();
+			}
+		}
+		return false;
+	}
+
+	synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		sessions.clear();
+		try {
+			cluster.close();
+		} catch (Exception e) {
+			LOG.warn("Error while shutting down the cluster", e);
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return MoreObjects.toStringHelper(this).add("userName", userName).add("cassandraVersion", cassandraVersion)
+				.add("leases", leases).add("sessions", sessions.keySet()).add("closed", closed).toString();
+	}
+
+	private final static class SharedSession {
+		private final Session session;
+
+		private int users = 0;
+
+		private long idleSince = System.currentTimeMillis();
+
+		SharedSession(Session session) {
+			this.session = session;
+		}
+	}
+}
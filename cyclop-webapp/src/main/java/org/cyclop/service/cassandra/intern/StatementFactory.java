@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.cassandra.intern;
+
+import java.util.List;
+import java.util.Optional;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.cyclop.common.AppConfig;
+import org.cyclop.service.cassandra.intern.LiteralNormalizer.Literal;
+import org.cyclop.service.cassandra.intern.LiteralNormalizer.NormalizedQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+
+/**
+ * Creates statements for user queries. When {@link AppConfig.Cassandra#preparedStatementsEnabled} is set, literals
+ * are replaced with bind markers and query is executed as bound statement of cached prepared statement. Every query
+ * that cannot be handled this way is executed as simple statement.
+ *
+ * @author Maciej Miklas
+ */
+@Named
+public class StatementFactory {
+	private final static Logger LOG = LoggerFactory.getLogger(StatementFactory.class);
+
+	@Inject
+	private AppConfig config;
+
+	/**
+	 * @param session
+	 *            driver session provided by given lease, it's keyspace is used to prepare statement
+	 */
+	public Statement create(SessionLease lease, Session session, String cql) {
+		if (config.cassandra.preparedStatementsEnabled) {
+			Optional<Statement> bound = bind(lease, session, cql);
+			if (bound.isPresent()) {
+				return bound.get();
+			}
+		}
+		return new SimpleStatement(cql);
+	}
+
+	private Optional<Statement> bind(SessionLease lease, Session session, String cql) {
+		Optional<NormalizedQuery> normalized = LiteralNormalizer.normalize(cql);
+		if (!normalized.isPresent()) {
+			return Optional.empty();
+		}
+
+		Optional<PreparedStatement> prepared = lease.getPreparedStatementCache().prepare(session,
+				normalized.get().cql);
+		if (!prepared.isPresent()) {
+			return Optional.empty();
+		}
+
+		ColumnDefinitions variables = prepared.get().getVariables();
+		List<Literal> literals = normalized.get().literals;
+		if (variables.size() != literals.size()) {
+			LOG.debug("Variables do not match literals of: {}", normalized);
+			return Optional.empty();
+		}
+
+		Object[] values = new Object[literals.size()];
+		try {
+			for (int idx = 0; idx < values.length; idx++) {
+				values[idx] = literals.get(idx).toValue(variables.getType(idx));
+			}
+		} catch (IllegalArgumentException e) {
+			LOG.debug("Cannot bind {}, reason: {}", normalized, e.getMessage());
+			return Optional.empty();
+		}
+		return Optional.of(prepared.get().bind(values));
+	}
+}
@@ -18,9 +18,13 @@ package org.cyclop.service.completion;
 
 import javax.validation.constraints.NotNull;
 
+import org.cyclop.model.CompletionSession;
 import org.cyclop.model.ContextCqlCompletion;
+import org.cyclop.model.CqlPart;
 import org.cyclop.model.CqlQuery;
 
+import com.google.common.collect.ImmutableList;
+
 /** @author Maciej Miklas */
 public interface CompletionService {
 
@@ -37,6 +41,26 @@ public interface CompletionService {
 	@NotNull
 	ContextCqlCompletion findCompletion(@NotNull CqlQuery cqlQuery, int cursorPosition);
 
+	/**
+	 * @param cursorPosition
+	 *            starts from 0
+	 * @param session
+	 *            parser state of the editor - it's being updated, so that next completion does not have to parse
+	 *            unchanged beginning of the query again
+	 */
+	@NotNull
+	ContextCqlCompletion findCompletion(@NotNull CqlQuery cqlQuery, int cursorPosition,
+			@NotNull CompletionSession session);
+
 	@NotNull
 	ContextCqlCompletion findCompletion(@NotNull CqlQuery cqlQuery);
+
+	/**
+	 * @param token
+	 *            lower case word in front of the cursor, empty string if cursor follows white space
+	 * @return best matches of completion hint for given token - limited to
+	 *         {@link org.cyclop.common.AppConfig.QueryEditor#completionHintLimit}
+	 */
+	@NotNull
+	ImmutableList<CqlPart> findHint(@NotNull ContextCqlCompletion completion, @NotNull String token);
 }
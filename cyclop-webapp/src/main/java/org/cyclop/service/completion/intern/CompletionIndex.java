@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.completion.intern;
+
+import static org.cyclop.common.Gullectors.toImmutableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.jcip.annotations.Immutable;
+
+import org.cyclop.model.CqlPart;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Ordering;
+import com.google.common.primitives.Ints;
+
+/**
+ * Ranks hint of single completion - keywords, keyspaces, tables and columns - against the word that is being typed.
+ * Prefix matches are found by binary search over sorted names and their segments (parts after '.' or '_'), remaining
+ * names are reached trough shared bigrams, so that lookup does not scan all names of large schema.
+ *
+ * @author Maciej Miklas
+ */
+@Immutable
+final class CompletionIndex {
+
+	/** match categories - lower is better */
+	private final static int EXACT = 0;
+
+	private final static int PREFIX = 1;
+
+	private final static int SEGMENT_PREFIX = 2;
+
+	private final static int SUBSTRING = 3;
+
+	private final static int SIMILAR = 4;
+
+	private final static String SEGMENT_SEPARATORS = "._";
+
+	/** hint in its original order */
+	private final ImmutableList<CqlPart> parts;
+
+	/** sorted names, {@link #namesPart} contains index of part for each name */
+	private final String[] names;
+
+	private final int[] namesPart;
+
+	/** sorted name segments, {@link #segmentsPart} contains index of part for each segment */
+	private final String[] segments;
+
+	private final int[] segmentsPart;
+
+	/** bigram -> ascending indexes of parts containing it */
+	private final ImmutableMap<String, int[]> bigrams;
+
+	CompletionIndex(Collection<? extends CqlPart> hint) {
+		parts = ImmutableList.copyOf(hint);
+
+		List<Entry> nameEntries = new ArrayList<>(parts.size());
+		List<Entry> segmentEntries = new ArrayList<>();
+		Map<String, List<Integer>> bigramParts = new HashMap<>();
+		for (int partIdx = 0; partIdx < parts.size(); partIdx++) {
+			String name = parts.get(partIdx).partLc;
+			nameEntries.add(new Entry(name, partIdx));
+
+			for (int pos = 1; pos < name.length(); pos++) {
+				if (SEGMENT_SEPARATORS.indexOf(name.charAt(pos - 1)) >= 0) {
+					segmentEntries.add(new Entry(name.substring(pos), partIdx));
+				}
+			}
+
+			for (String bigram : bigramsOf(name)) {
+				bigramParts.computeIfAbsent(bigram, b -> new ArrayList<>()).add(partIdx);
+			}
+		}
+
+		nameEntries.sort(null);
+		names = nameEntries.stream().map(e -> e.key).toArray(String[]::new);
+		namesPart = nameEntries.stream().mapToInt(e -> e.partIdx).toArray();
+
+		segmentEntries.sort(null);
+		segments = segmentEntries.stream().map(e -> e.key).toArray(String[]::new);
+		segmentsPart = segmentEntries.stream().mapToInt(e -> e.partIdx).toArray();
+
+		ImmutableMap.Builder<String, int[]> bigramsBuilder = ImmutableMap.builder();
+		bigramParts.forEach((bigram, partIdxs) -> bigramsBuilder.put(bigram, Ints.toArray(partIdxs)));
+		bigrams = bigramsBuilder.build();
+	}
+
+	/**
+	 * @param token
+	 *            lower case word in front of the cursor
+	 * @return at most limit parts ordered by match quality: exact name, name prefix, segment prefix, substring and
+	 *         finally names sharing at least half of bigrams with token. Hint in its original order is returned for
+	 *         empty token or when nothing matches
+	 */
+	ImmutableList<CqlPart> findBest(String token, int limit) {
+		if (token.isEmpty()) {
+			return first(limit);
+		}
+		Map<Integer, Match> matches = new HashMap<>();
+
+		for (int idx = lowerBound(names, token); idx < names.length && names[idx].startsWith(token); idx++) {
+			addMatch(matches, namesPart[idx], names[idx].length() == token.length() ? EXACT : PREFIX, 0);
+		}
+
+		for (int idx = lowerBound(segments, token); idx < segments.length && segments[idx].startsWith(token); idx++) {
+			addMatch(matches, segmentsPart[idx], SEGMENT_PREFIX, 0);
+		}
+
+		Set<String> tokenBigrams = bigramsOf(token);
+		if (!tokenBigrams.isEmpty()) {
+			Map<Integer, Integer> shared = new HashMap<>();
+			for (String bigram : tokenBigrams) {
+				int[] partIdxs = bigrams.get(bigram);
+				if (partIdxs == null) {
+					continue;
+				}
+				for (int partIdx : partIdxs) {
+					shared.merge(partIdx, 1, Integer::sum);
+				}
+			}
+
+			int minShared = (tokenBigrams.size() + 1) / 2;
+			shared.forEach((partIdx, count) -> {
+				if (count == tokenBigrams.size() && parts.get(partIdx).partLc.contains(token)) {
+					addMatch(matches, partIdx, SUBSTRING, count);
+				} else if (count >= minShared) {
+					addMatch(matches, partIdx, SIMILAR, count);
+				}
+			});
+		}
+
+		if (matches.isEmpty()) {
+			return first(limit);
+		}
+
+		List<Match> best = Ordering.<Match> natural().leastOf(matches.values(), limit);
+		return best.stream().map(m -> parts.get(m.partIdx)).collect(toImmutableList());
+	}
+
+	private ImmutableList<CqlPart> first(int limit) {
+		return parts.size() <= limit ? parts : parts.subList(0, limit);
+	}
+
+	private void addMatch(Map<Integer, Match> matches, int partIdx, int category, int similarity) {
+		Match match = new Match(partIdx, parts.get(partIdx).partLc, category, similarity);
+		matches.merge(partIdx, match, (m1, m2) -> m1.compareTo(m2) <= 0 ? m1 : m2);
+	}
+
+	/** @return index of first key that is not smaller than given one */
+	private static int lowerBound(String[] keys, String key) {
+		int idx = Arrays.binarySearch(keys, key);
+		if (idx < 0) {
+			return -idx - 1;
+		}
+		while (idx > 0 && keys[idx - 1].equals(key)) {
+			idx--;
+		}
+		return idx;
+	}
+
+	private static Set<String> bigramsOf(String text) {
+		Set<String> found = new LinkedHashSet<>();
+		for (int idx = 0; idx < text.length() - 1; idx++) {
+			found.add(text.substring(idx, idx + 2));
+		}
+		return found;
+	}
+
+	private final static class Entry implements Comparable<Entry> {
+		private final String key;
+
+		private final int partIdx;
+
+		private Entry(String key, int partIdx) {
+			this.key = key;
+			this.partIdx = partIdx;
+		}
+
+		@Override
+		public int compareTo(Entry o) {
+			return key.compareTo(o.key);
+		}
+	}
+
+	/** better matches are smaller: lower category, more shared bigrams, shorter name */
+	private final static class Match implements Comparable<Match> {
+		private final int partIdx;
+
+		private final String name;
+
+		private final int category;
+
+		private final int similarity;
+
+		private Match(int partIdx, String name, int category, int similarity) {
+			this.partIdx = partIdx;
+			this.name = name;
+			this.category = category;
+			this.similarity = similarity;
+		}
+
+		@Override
+		public int compareTo(Match o) {
+			int cmp = Integer.compare(category, o.category);
+			if (cmp == 0) {
+				cmp = Integer.compare(o.similarity, similarity);
+			}
+			if (cmp == 0) {
+				cmp = Integer.compare(name.length(), o.name.length());
+			}
+			if (cmp == 0) {
+				cmp = name.compareTo(o.name);
+			}
+			if (cmp == 0) {
+				cmp = Integer.compare(partIdx, o.partIdx);
+			}
+			return cmp;
+		}
+	}
+}
@@ -16,16 +16,23 @@
  */
 package org.cyclop.service.completion.intern;
 
+import static org.cyclop.common.Gullectors.toImmutableMap;
+
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.function.Predicate;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import net.jcip.annotations.ThreadSafe;
 
-import org.cyclop.common.Gullectors;
+import org.cyclop.common.AppConfig;
+import org.cyclop.model.CassandraVersion;
+import org.cyclop.model.CompletionSession;
 import org.cyclop.model.ContextCqlCompletion;
+import org.cyclop.model.CqlCompletion;
 import org.cyclop.model.CqlKeyword;
 import org.cyclop.model.CqlPart;
 import org.cyclop.model.CqlQuery;
@@ -37,7 +44,10 @@ import org.cyclop.validation.EnableValidation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 /** @author Maciej Miklas */
 @Named
@@ -47,20 +57,48 @@ class CompletionServiceImpl implements CompletionService {
 
 	private final static Logger LOG = LoggerFactory.getLogger(CompletionServiceImpl.class);
 
+	private final static int FILTERED_CACHE_SIZE = 1000;
+
+	private final static int HINT_INDEX_CACHE_SIZE = 1000;
+
 	@Inject
 	private CqlParser parser;
 
 	@Inject
 	private CassandraSession cassandraSession;
 
-	@Override
-	public ContextCqlCompletion findInitialCompletion() {
-		ContextCqlCompletion compl = new ContextCqlCompletion(CqlQueryType.UNKNOWN, parser.findInitialCompletion());
+	@Inject
+	private AppConfig appConfig;
+
+	/**
+	 * editor keeps the same completion instance while user is typing within single token, so its index is being built
+	 * only once
+	 */
+	private final Cache<CqlCompletion, CompletionIndex> hintIndexes = CacheBuilder.newBuilder().weakKeys()
+			.maximumSize(HINT_INDEX_CACHE_SIZE).build();
+
+	private final ImmutableMap<CassandraVersion, VersionFilter> versionFilters;
 
+	private ImmutableMap<CassandraVersion, ContextCqlCompletion> initialCompletions;
+
+	CompletionServiceImpl() {
+		versionFilters = Arrays.stream(CassandraVersion.values()).collect(
+				toImmutableMap(v -> v, v -> new VersionFilter(v)));
+	}
+
+	/** initial completion does not depend on query - it's being filtered once for each version */
+	@PostConstruct
+	public void init() {
+		ContextCqlCompletion compl = new ContextCqlCompletion(CqlQueryType.UNKNOWN, parser.findInitialCompletion());
 		LOG.debug("Found initial completion: {}", compl);
+		initialCompletions = Arrays.stream(CassandraVersion.values()).collect(
+				toImmutableMap(v -> v, v -> filterCompletion(compl, v)));
+	}
 
-		ContextCqlCompletion filtered = filterCompletion(compl);
-		LOG.debug("Filtered completion: {}", filtered);
+	@Override
+	public ContextCqlCompletion findInitialCompletion() {
+		ContextCqlCompletion filtered = initialCompletions.get(cassandraSession.getCassandraVersion());
+		LOG.debug("Filtered initial completion: {}", filtered);
 		return filtered;
 	}
 
@@ -72,10 +110,16 @@ class CompletionServiceImpl implements CompletionService {
 
 	@Override
 	public ContextCqlCompletion findCompletion(CqlQuery cqlQuery, int cursorPosition) {
+		return findCompletion(cqlQuery, cursorPosition, new CompletionSession());
+	}
+
+	@Override
+	public ContextCqlCompletion findCompletion(CqlQuery cqlQuery, int cursorPosition, CompletionSession session) {
 		if (cursorPosition == 0 || cursorPosition == 1) {
+			session.reset();
 			return findInitialCompletion();
 		}
-		Optional<ContextCqlCompletion> fcomp = parser.findCompletion(cqlQuery, cursorPosition);
+		Optional<ContextCqlCompletion> fcomp = parser.findCompletion(cqlQuery, cursorPosition, session);
 		ContextCqlCompletion comp = fcomp.orElse(ContextCqlCompletion.EMPTY);
 		LOG.debug("Found completion for query {} -> {} - > {}", cqlQuery, cursorPosition, comp);
 
@@ -84,32 +128,61 @@ class CompletionServiceImpl implements CompletionService {
 		return filtered;
 	}
 
+	@Override
+	public ImmutableList<CqlPart> findHint(ContextCqlCompletion completion, String token) {
+		CqlCompletion compl = completion.cqlCompletion;
+		CompletionIndex index = hintIndexes.getIfPresent(compl);
+		if (index == null) {
+			index = new CompletionIndex(compl.minCompletion);
+			hintIndexes.put(compl, index);
+		}
+		ImmutableList<CqlPart> hint = index.findBest(token, appConfig.queryEditor.completionHintLimit);
+		LOG.trace("Found hint for token '{}' -> {}", token, hint);
+		return hint;
+	}
+
 	private ContextCqlCompletion filterCompletion(ContextCqlCompletion compl) {
 		if (compl.cqlCompletion.isEmpty()) {
 			return compl;
 		}
+		return filterCompletion(compl, cassandraSession.getCassandraVersion());
+	}
 
-		ImmutableSortedSet<? extends CqlPart> fullCompletion = filterVersion(compl.cqlCompletion.fullCompletion);
-		ImmutableSortedSet<? extends CqlPart> minCompletion = filterVersion(compl.cqlCompletion.minCompletion);
-		ContextCqlCompletion context = compl.copyFromCompletion(fullCompletion, minCompletion);
-		return context;
+	private ContextCqlCompletion filterCompletion(ContextCqlCompletion compl, CassandraVersion version) {
+		CqlCompletion filtered = versionFilters.get(version).filter(compl.cqlCompletion);
+		return filtered == compl.cqlCompletion ? compl : new ContextCqlCompletion(compl.queryName, filtered);
 	}
 
-	private ImmutableSortedSet<? extends CqlPart> filterVersion(ImmutableSortedSet<? extends CqlPart> compl) {
-		Predicate<CqlPart> casVerPred = q -> {
-			if (q instanceof CqlKeyword) {
-				CqlKeyword qw = (CqlKeyword) q;
-				return cassandraSession.getCassandraVersion().within(qw.validFrom, qw.validTo);
-			} else {
-				return true;
-			}
-		};
+	/**
+	 * Keywords do not change at runtime, so completions that had to be filtered are remembered - static completions
+	 * are being filtered only once for each version. Completions containing only supported keywords are returned
+	 * without a copy.
+	 */
+	private final static class VersionFilter {
+		private final Predicate<CqlPart> supported;
 
+		/** weak keys are compared by identity - completions built for single request are simply garbage collected */
+		private final Cache<CqlCompletion, CqlCompletion> filtered = CacheBuilder.newBuilder().weakKeys()
+				.maximumSize(FILTERED_CACHE_SIZE).build();
 
-		ImmutableSortedSet<? extends CqlPart> filtered = ((ImmutableSortedSet<CqlPart>)compl).stream().filter
-				(casVerPred)
-				.collect(Gullectors.toNaturalImmutableSortedSet());
-		return filtered;
+		private VersionFilter(CassandraVersion version) {
+			supported = p -> !(p instanceof CqlKeyword) || isSupported((CqlKeyword) p, version);
+		}
+
+		private static boolean isSupported(CqlKeyword keyword, CassandraVersion version) {
+			return version.within(keyword.validFrom, keyword.validTo);
+		}
+
+		private CqlCompletion filter(CqlCompletion completion) {
+			CqlCompletion found = filtered.getIfPresent(completion);
+			if (found == null) {
+				found = completion.filter(supported);
+				if (found != completion) {
+					filtered.put(completion, found);
+				}
+			}
+			return found;
+		}
 	}
 
 }
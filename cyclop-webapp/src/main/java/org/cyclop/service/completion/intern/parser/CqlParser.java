@@ -16,13 +16,19 @@
  */
 package org.cyclop.service.completion.intern.parser;
 
+import static org.cyclop.common.Gullectors.toImmutableList;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.cyclop.model.CompletionSession;
 import org.cyclop.model.ContextCqlCompletion;
 import org.cyclop.model.CqlCompletion;
 import org.cyclop.model.CqlQuery;
@@ -31,6 +37,9 @@ import org.cyclop.model.exception.ServiceException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
 /**
  * LL(1) like cql parser
  *
@@ -45,6 +54,11 @@ public class CqlParser {
 
 	private CqlCompletion initialCqlCompletion = null;
 
+	/** keyword id is the position of decision list in {@link #decisionListSupportDef} */
+	private KeywordTrie decisionTrie = null;
+
+	private ImmutableMap<DecisionListSupport, MarkerIndex> markerIndexes = null;
+
 	@PostConstruct
 	public void init() {
 
@@ -52,12 +66,20 @@ public class CqlParser {
 		decisionListSupportDef.forEach(cf -> cb.all(cf.beginnsWith()));
 		initialCqlCompletion = cb.build();
 
+		decisionTrie = new KeywordTrie(decisionListSupportDef.stream().map(d -> d.beginnsWith().partLc)
+				.collect(toImmutableList()));
+
+		ImmutableMap.Builder<DecisionListSupport, MarkerIndex> markerIndexesBuild = ImmutableMap.builder();
+		decisionListSupportDef.forEach(d -> markerIndexesBuild.put(d, new MarkerIndex(d.getDecisionList())));
+		markerIndexes = markerIndexesBuild.build();
+
 		LOG.debug("Initial completion {}", initialCqlCompletion);
 	}
 
-	private Optional<DecisionListSupport> findCompletionDecision(CqlQuery query) {
-		Optional<DecisionListSupport> found = decisionListSupportDef.stream().filter(d -> d.supports(query))
-				.findFirst();
+	/** @return position of decision list in {@link #decisionListSupportDef} or -1 if none supports given query */
+	private int findCompletionDecision(CqlQuery query) {
+		int[] prefixes = decisionTrie.findPrefixes(query.partLc);
+		int found = prefixes.length == 0 ? -1 : prefixes[0];
 		LOG.debug("Found Decision List for query {} -> {}", query, found);
 		return found;
 	}
@@ -67,6 +89,16 @@ public class CqlParser {
 	}
 
 	public Optional<ContextCqlCompletion> findCompletion(CqlQuery cqlQuery, int cursorPosition) {
+		return findCompletion(cqlQuery, cursorPosition, new CompletionSession());
+	}
+
+	/**
+	 * @param session
+	 *            state of previous parsing, it will be updated. Decisions which markers are placed in the unchanged
+	 *            beginning of the query are not parsed again
+	 */
+	public Optional<ContextCqlCompletion> findCompletion(CqlQuery cqlQuery, int cursorPosition,
+			CompletionSession session) {
 		LOG.debug("Find completion for {} on {}", cqlQuery, cursorPosition);
 		if (cursorPosition == -1) {
 			cursorPosition = cqlQuery.part.length() - 1;
@@ -74,8 +106,9 @@ public class CqlParser {
 
 		cursorPosition++;
 
-		Optional<DecisionListSupport> dlsOp = findCompletionDecision(cqlQuery);
-		if (!dlsOp.isPresent()) {
+		int dlsIndex = findCompletionDecision(cqlQuery);
+		if (dlsIndex == -1) {
+			session.reset();
 			// user started typing, has first world and there is no decision
 			// list for it
 			ContextCqlCompletion initial = null;
@@ -89,9 +122,10 @@ public class CqlParser {
 			cursorPosition = 0;
 		}
 
-		DecisionListSupport dls = dlsOp.get();
+		DecisionListSupport dls = decisionListSupportDef.get(dlsIndex);
 		CqlPartCompletion[][] decisionList = dls.getDecisionList();
 		if (decisionList.length == 0) {
+			session.reset();
 			return Optional.empty();
 		}
 
@@ -101,26 +135,47 @@ public class CqlParser {
 		}
 
 		String cqlLc = cqlQuery.partLc.substring(0, cursorPosition);
+		MarkerIndex markerIndex = markerIndexes.get(dls);
+		ImmutableList<CompletionSession.Step> reused = findReusableSteps(session, dlsIndex, cqlLc);
+		List<CompletionSession.Step> steps = new ArrayList<>(reused);
 		int offset = 0;
 		CqlPartCompletion lastMatchingCompletion = null;
+		if (!reused.isEmpty()) {
+			CompletionSession.Step lastStep = reused.get(reused.size() - 1);
+			offset = lastStep.offset;
+			lastMatchingCompletion = decisionList[reused.size() - 1][lastStep.completion];
+		}
+
+		// markers before resumed offset are not needed
+		KeywordTrie.Occurrences markers = markerIndex.trie.scan(cqlLc, offset);
 
 		// go over all parsing decisions, until you find one that cannot be
 		// applied - this means that previous one
 		// is the right chose for completion
-		for (CqlPartCompletion[] partCompletionList : decisionList) {
+		boolean recordSteps = true;
+		for (int stepIdx = reused.size(); stepIdx < decisionList.length; stepIdx++) {
+			CqlPartCompletion[] partCompletionList = decisionList[stepIdx];
 			LOG.debug("Next completion");
 			boolean found = false;
-			for (CqlPartCompletion partCompletion : partCompletionList) {
+
+			// step can be reused only when all its completions were found trough markers
+			boolean reusable = true;
+			int matchedCompletion = -1;
+			int markersEnd = 0;
+			for (int complIdx = 0; complIdx < partCompletionList.length; complIdx++) {
+				CqlPartCompletion partCompletion = partCompletionList[complIdx];
 				LOG.debug("Checking: {}", partCompletion);
 				int completionStartMarker = -1;
 				if (partCompletion instanceof MarkerBasedCompletion) {
 					MarkerBasedCompletion partStatic = (MarkerBasedCompletion) partCompletion;
 					String startMarker = partStatic.startMarker().partLc;
-					completionStartMarker = cqlLc.indexOf(startMarker, offset);
+					completionStartMarker = markers.indexOf(markerIndex.markerIds.get(startMarker), offset);
+					markersEnd = Math.max(markersEnd, completionStartMarker + startMarker.length());
 
 				} else if (partCompletion instanceof OffsetBasedCompletion) {
 					OffsetBasedCompletion partDynamic = (OffsetBasedCompletion) partCompletion;
 					completionStartMarker = partDynamic.canApply(cqlQuery, offset);
+					reusable = false;
 
 				} else {
 					throw new ServiceException("Unsupported CqlPartCompletion: " + partCompletion.getClass());
@@ -130,18 +185,28 @@ public class CqlParser {
 
 				if (completionStartMarker == -1) {
 					// this decision cannot be applied - try next one
+					// it might apply after the query has been changed
+					reusable = false;
 					continue;
 				}
 				found = true;
 				// current decision can be applied - try next one
 				offset = completionStartMarker + 1;
 				lastMatchingCompletion = partCompletion;
+				matchedCompletion = complIdx;
 			}
 
 			if (!found) {
 				break;
 			}
+			recordSteps &= reusable;
+			if (recordSteps) {
+				steps.add(new CompletionSession.Step(offset, matchedCompletion, markersEnd));
+			}
 		}
+		session.update(cqlLc, dlsIndex, ImmutableList.copyOf(steps));
+		LOG.debug("Updated completion session: {}", session);
+
 		ContextCqlCompletion cqc = null;
 		if (lastMatchingCompletion != null) {
 			CqlCompletion cqlCompletion = lastMatchingCompletion.getCompletion(cqlQuery);
@@ -154,4 +219,50 @@ public class CqlParser {
 		return Optional.ofNullable(cqc);
 	}
 
+	/**
+	 * @return steps of previous parsing which markers are all placed in the part of the query that did not change -
+	 *         their first occurrences after given offset are still the same
+	 */
+	private ImmutableList<CompletionSession.Step> findReusableSteps(CompletionSession session, int dlsIndex,
+			String cqlLc) {
+		Optional<String> previousCqlLc = session.getCqlLc();
+		if (session.getDecisionList() != dlsIndex || !previousCqlLc.isPresent()) {
+			return ImmutableList.of();
+		}
+		String previous = previousCqlLc.get();
+		int maxCommon = Math.min(previous.length(), cqlLc.length());
+		int common = 0;
+		while (common < maxCommon && previous.charAt(common) == cqlLc.charAt(common)) {
+			common++;
+		}
+
+		ImmutableList<CompletionSession.Step> steps = session.getSteps();
+		int reusable = 0;
+		while (reusable < steps.size() && steps.get(reusable).end <= common) {
+			reusable++;
+		}
+		LOG.debug("Reusing {} of {} parsed decisions", reusable, steps.size());
+		return steps.subList(0, reusable);
+	}
+
+	/** start markers of single decision list, they are all found in one pass over the query */
+	private final static class MarkerIndex {
+		private final ImmutableMap<String, Integer> markerIds;
+
+		private final KeywordTrie trie;
+
+		MarkerIndex(CqlPartCompletion[][] decisionList) {
+			Map<String, Integer> ids = new LinkedHashMap<>();
+			for (CqlPartCompletion[] partCompletionList : decisionList) {
+				for (CqlPartCompletion partCompletion : partCompletionList) {
+					if (partCompletion instanceof MarkerBasedCompletion) {
+						String startMarker = ((MarkerBasedCompletion) partCompletion).startMarker().partLc;
+						ids.putIfAbsent(startMarker, ids.size());
+					}
+				}
+			}
+			markerIds = ImmutableMap.copyOf(ids);
+			trie = new KeywordTrie(ImmutableList.copyOf(ids.keySet()));
+		}
+	}
 }
@@ -17,7 +17,6 @@
 package org.cyclop.service.completion.intern.parser;
 
 import org.cyclop.model.CqlKeyword;
-import org.cyclop.model.CqlQuery;
 import org.cyclop.model.CqlQueryType;
 
 /** @author Maciej Miklas */
@@ -29,12 +28,8 @@ public interface DecisionListSupport {
 	 */
 	CqlPartCompletion[][] getDecisionList();
 
+	/** query is being completed by first decision list which keyword is a prefix of the query */
 	CqlKeyword beginnsWith();
 
 	CqlQueryType queryName();
-
-	default boolean supports(CqlQuery query) {
-		return query.partLc.startsWith(beginnsWith().partLc);
-	}
-
 }
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.completion.intern.parser;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * Aho-Corasick automaton over fixed set of keywords. Keyword is identified by its position in the list given to the
+ * constructor. Single pass over the text finds all occurrences of all keywords, so that the cost of completion does
+ * not grow with amount of markers in decision lists.
+ *
+ * @author Maciej Miklas
+ */
+@Immutable
+final class KeywordTrie {
+
+	private final Node root = new Node();
+
+	private final int[] lengths;
+
+	KeywordTrie(List<String> keywords) {
+		lengths = new int[keywords.size()];
+		for (int id = 0; id < keywords.size(); id++) {
+			String keyword = keywords.get(id);
+			if (keyword == null || keyword.isEmpty()) {
+				throw new IllegalArgumentException("Empty keyword on position: " + id);
+			}
+			Node node = root;
+			for (int idx = 0; idx < keyword.length(); idx++) {
+				node = node.next.computeIfAbsent(keyword.charAt(idx), c -> new Node());
+			}
+			node.terminal = append(node.terminal, id);
+			lengths[id] = keyword.length();
+		}
+		linkFailures();
+	}
+
+	/** breadth first, so that failure target of each node has been already linked */
+	private void linkFailures() {
+		Deque<Node> queue = new ArrayDeque<>();
+		for (Node child : root.next.values()) {
+			child.fail = root;
+			child.output = child.terminal;
+			queue.add(child);
+		}
+		while (!queue.isEmpty()) {
+			Node node = queue.poll();
+			for (Map.Entry<Character, Node> entry : node.next.entrySet()) {
+				char transition = entry.getKey();
+				Node child = entry.getValue();
+				Node fail = node.fail;
+				while (fail != root && !fail.next.containsKey(transition)) {
+					fail = fail.fail;
+				}
+				Node failTarget = fail.next.get(transition);
+				child.fail = failTarget == null ? root : failTarget;
+				child.output = concat(child.terminal, child.fail.output);
+				queue.add(child);
+			}
+		}
+	}
+
+	/** @return ids of keywords that are prefixes of given text, in ascending order */
+	int[] findPrefixes(String text) {
+		int[] found = new int[0];
+		Node node = root;
+		for (int idx = 0; idx < text.length(); idx++) {
+			node = node.next.get(text.charAt(idx));
+			if (node == null) {
+				break;
+			}
+			found = concat(found, node.terminal);
+		}
+		Arrays.sort(found);
+		return found;
+	}
+
+	Occurrences scan(String text) {
+		return scan(text, 0);
+	}
+
+	/** @return occurrences starting at given index or after it */
+	Occurrences scan(String text, int fromIndex) {
+		Occurrences occurrences = new Occurrences(lengths.length);
+		Node node = root;
+		for (int idx = Math.max(0, fromIndex); idx < text.length(); idx++) {
+			char next = text.charAt(idx);
+			while (node != root && !node.next.containsKey(next)) {
+				node = node.fail;
+			}
+			node = node.next.getOrDefault(next, root);
+			for (int id : node.output) {
+				occurrences.add(id, idx - lengths[id] + 1);
+			}
+		}
+		return occurrences;
+	}
+
+	private static int[] append(int[] array, int value) {
+		int[] appended = Arrays.copyOf(array, array.length + 1);
+		appended[array.length] = value;
+		return appended;
+	}
+
+	private static int[] concat(int[] first, int[] second) {
+		if (second.length == 0) {
+			return first;
+		}
+		int[] concat = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, concat, first.length, second.length);
+		return concat;
+	}
+
+	private final static class Node {
+		private final Map<Character, Node> next = new HashMap<>();
+
+		private Node fail;
+
+		/** keywords ending in this node */
+		private int[] terminal = new int[0];
+
+		/** keywords ending in this node or in any node on its failure path */
+		private int[] output = new int[0];
+	}
+
+	/** start positions of keywords found in scanned text */
+	static final class Occurrences {
+		private final int[][] positions;
+
+		private final int[] counts;
+
+		private Occurrences(int keywords) {
+			positions = new int[keywords][];
+			counts = new int[keywords];
+		}
+
+		/** positions of one keyword are being added in ascending order */
+		private void add(int id, int position) {
+			int[] keywordPositions = positions[id];
+			if (keywordPositions == null) {
+				keywordPositions = new int[4];
+			} else if (counts[id] == keywordPositions.length) {
+				keywordPositions = Arrays.copyOf(keywordPositions, counts[id] * 2);
+			}
+			keywordPositions[counts[id]++] = position;
+			positions[id] = keywordPositions;
+		}
+
+		/** @return the same as {@link String#indexOf(String, int)} for given keyword on scanned text */
+		int indexOf(int id, int fromIndex) {
+			if (counts[id] == 0) {
+				return -1;
+			}
+			int found = Arrays.binarySearch(positions[id], 0, counts[id], Math.max(0, fromIndex));
+			if (found < 0) {
+				found = -found - 1;
+			}
+			return found < counts[id] ? positions[id][found] : -1;
+		}
+	}
+}
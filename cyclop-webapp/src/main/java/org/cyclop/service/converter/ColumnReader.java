@@ -0,0 +1,393 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.converter;
+
+import java.util.Collections;
+
+import net.jcip.annotations.Immutable;
+
+import org.cyclop.model.CqlDataType;
+import org.cyclop.model.CqlExtendedColumnName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.Row;
+import com.google.common.base.MoreObjects;
+
+/**
+ * Reads single column from rows sharing the same column definitions. Each column type has its own reader, which
+ * accesses values by column position, so that reading a cell requires neither name lookup nor type dispatch, and
+ * formatting of primitive types does not box them. Readers are created once per query result trough
+ * {@link DataExtractor#createReaders(java.util.List, com.datastax.driver.core.ColumnDefinitions)}.
+ *
+ * @author Maciej Miklas
+ */
+@Immutable
+public abstract class ColumnReader {
+	private final static Logger LOG = LoggerFactory.getLogger(ColumnReader.class);
+
+	public final CqlExtendedColumnName column;
+
+	/** position of column in row */
+	public final int index;
+
+	private ColumnReader(CqlExtendedColumnName column, int index) {
+		this.column = column;
+		this.index = index;
+	}
+
+	static ColumnReader create(CqlExtendedColumnName column, int index, DataConverter converter) {
+		CqlDataType dataType = column.dataType;
+		switch (dataType.name) {
+		case ASCII:
+		case TEXT:
+		case VARCHAR:
+			return new StringReader(column, index);
+		case BIGINT:
+		case COUNTER:
+			return new LongReader(column, index);
+		case INT:
+			return new IntReader(column, index);
+		case FLOAT:
+			return new FloatReader(column, index);
+		case DOUBLE:
+			return new DoubleReader(column, index);
+		case BOOLEAN:
+			return new BooleanReader(column, index);
+		case UUID:
+		case TIMEUUID:
+			return new UuidReader(column, index);
+		case DECIMAL:
+			return new DecimalReader(column, index);
+		case VARINT:
+			return new VarintReader(column, index);
+		case INET:
+			return new InetReader(column, index);
+		case TIMESTAMP:
+			return new TimestampReader(column, index, converter);
+		case BLOB:
+		case CUSTOM:
+			return new BlobReader(column, index);
+		case LIST:
+			return new ListReader(column, index);
+		case SET:
+			return new SetReader(column, index);
+		case MAP:
+			return new MapReader(column, index);
+		default:
+			LOG.warn("Type: " + dataType + " not supported by column reader");
+			return new UnsupportedReader(column, index);
+		}
+	}
+
+	public boolean isNull(Row row) {
+		return row.isNull(index);
+	}
+
+	/**
+	 * @return value as returned by the driver, collections are being returned as java collections. Null if column
+	 *         has no value
+	 */
+	public abstract Object read(Row row);
+
+	/**
+	 * @return single value converted to text the same way as {@link DataConverter#convert(Object)} converts values
+	 *         returned by {@link DataExtractor#extractSingleValue(Row, CqlExtendedColumnName)}
+	 * @throws IllegalArgumentException
+	 *             for collections
+	 */
+	public abstract String format(Row row);
+
+	@Override
+	public String toString() {
+		return MoreObjects.toStringHelper(this).add("column", column).add("index", index).toString();
+	}
+
+	private static String toText(Object value) {
+		return value == null ? "" : value.toString();
+	}
+
+	private final static class StringReader extends ColumnReader {
+		StringReader(CqlExtendedColumnName column, int index) {
+			super(column, index);
+		}
+
+		@Override
+		public Object read(Row row) {
+			return row.getString(index);
+		}
+
+		@Override
+		public String format(Row row) {
+			return toText(row.getString(index));
+		}
+	}
+
+	private final static class LongReader extends ColumnReader {
+		LongReader(CqlExtendedColumnName column, int index) {
+			super(column, index);
+		}
+
+		@Override
+		public Object read(Row row) {
+			return row.isNull(index) ? null : row.getLong(index);
+		}
+
+		@Override
+		public String format(Row row) {
+			return row.isNull(index) ? "" : Long.toString(row.getLong(index));
+		}
+	}
+
+	private final static class IntReader extends ColumnReader {
+		IntReader(CqlExtendedColumnName column, int index) {
+			super(column, index);
+		}
+
+		@Override
+		public Object read(Row row) {
+			return row.isNull(index) ? null : row.getInt(index);
+		}
+
+		@Override
+		public String format(Row row) {
+			return row.isNull(index) ? "" : Integer.toString(row.getInt(index));
+		}
+	}
+
+	private final static class FloatReader extends ColumnReader {
+		FloatReader(CqlExtendedColumnName column, int index) {
+			super(column, index);
+		}
+
+		@Override
+		public Object read(Row row) {
+			return row.isNull(index) ? null : row.getFloat(index);
+		}
+
+		@Override
+		public String format(Row row) {
+			return row.isNull(index) ? "" : Float.toString(row.getFloat(index));
+		}
+	}
+
+	private final static class DoubleReader extends ColumnReader {
+		DoubleReader(CqlExtendedColumnName column, int index) {
+			super(column, index);
+		}
+
+		@Override
+		public Object read(Row row) {
+			return row.isNull(index) ? null : row.getDouble(index);
+		}
+
+		@Override
+		public String format(Row row) {
+			return row.isNull(index) ? "" : Double.toString(row.getDouble(index));
+		}
+	}
+
+	private final static class BooleanReader extends ColumnReader {
+		BooleanReader(CqlExtendedColumnName column, int index) {
+			super(column, index);
+		}
+
+		@Override
+		public Object read(Row row) {
+			return row.isNull(index) ? null : row.getBool(index);
+		}
+
+		@Override
+		public String format(Row row) {
+			return row.isNull(index) ? "" : Boolean.toString(row.getBool(index));
+		}
+	}
+
+	private final static class UuidReader extends ColumnReader {
+		UuidReader(CqlExtendedColumnName column, int index) {
+			super(column, index);
+		}
+
+		@Override
+		public Object read(Row row) {
+			return row.getUUID(index);
+		}
+
+		@Override
+		public String format(Row row) {
+			return toText(row.getUUID(index));
+		}
+	}
+
+	private final static class DecimalReader extends ColumnReader {
+		DecimalReader(CqlExtendedColumnName column, int index) {
+			super(column, index);
+		}
+
+		@Override
+		public Object read(Row row) {
+			return row.getDecimal(index);
+		}
+
+		@Override
+		public String format(Row row) {
+			return toText(row.getDecimal(index));
+		}
+	}
+
+	private final static class VarintReader extends ColumnReader {
+		VarintReader(CqlExtendedColumnName column, int index) {
+			super(column, index);
+		}
+
+		@Override
+		public Object read(Row row) {
+			return row.getVarint(index);
+		}
+
+		@Override
+		public String format(Row row) {
+			return toText(row.getVarint(index));
+		}
+	}
+
+	private final static class InetReader extends ColumnReader {
+		InetReader(CqlExtendedColumnName column, int index) {
+			super(column, index);
+		}
+
+		@Override
+		public Object read(Row row) {
+			return row.getInet(index);
+		}
+
+		@Override
+		public String format(Row row) {
+			return toText(row.getInet(index));
+		}
+	}
+
+	private final static class TimestampReader extends ColumnReader {
+		private final DataConverter converter;
+
+		TimestampReader(CqlExtendedColumnName column, int index, DataConverter converter) {
+			super(column, index);
+			this.converter = converter;
+		}
+
+		@Override
+		public Object read(Row row) {
+			return row.getDate(index);
+		}
+
+		@Override
+		public String format(Row row) {
+			String formatted = converter.convert(row.getDate(index));
+			return formatted == null ? "" : formatted;
+		}
+	}
+
+	/** blobs are not converted to text - the same as by {@link DataExtractor} */
+	private final static class BlobReader extends ColumnReader {
+		BlobReader(CqlExtendedColumnName column, int index) {
+			super(column, index);
+		}
+
+		@Override
+		public Object read(Row row) {
+			return row.getBytesUnsafe(index);
+		}
+
+		@Override
+		public String format(Row row) {
+			return "?? " + column.part + " ??";
+		}
+	}
+
+	private static abstract class CollectionReader extends ColumnReader {
+		CollectionReader(CqlExtendedColumnName column, int index) {
+			super(column, index);
+		}
+
+		@Override
+		public String format(Row row) {
+			throw new IllegalArgumentException("Collection type is not supported");
+		}
+	}
+
+	private final static class ListReader extends CollectionReader {
+		ListReader(CqlExtendedColumnName column, int index) {
+			super(column, index);
+		}
+
+		@Override
+		public Object read(Row row) {
+			Class<?> keyClass = column.dataType.keyClass;
+			if (row.isNull(index)) {
+				return null;
+			}
+			return keyClass == null ? Collections.emptyList() : row.getList(index, keyClass);
+		}
+	}
+
+	private final static class SetReader extends CollectionReader {
+		SetReader(CqlExtendedColumnName column, int index) {
+			super(column, index);
+		}
+
+		@Override
+		public Object read(Row row) {
+			Class<?> keyClass = column.dataType.keyClass;
+			if (row.isNull(index)) {
+				return null;
+			}
+			return keyClass == null ? Collections.emptySet() : row.getSet(index, keyClass);
+		}
+	}
+
+	private final static class MapReader extends CollectionReader {
+		MapReader(CqlExtendedColumnName column, int index) {
+			super(column, index);
+		}
+
+		@Override
+		public Object read(Row row) {
+			CqlDataType dataType = column.dataType;
+			if (row.isNull(index)) {
+				return null;
+			}
+			return dataType.keyClass == null || dataType.valueClass == null ? Collections.emptyMap() : row.getMap(
+					index, dataType.keyClass, dataType.valueClass);
+		}
+	}
+
+	private final static class UnsupportedReader extends ColumnReader {
+		UnsupportedReader(CqlExtendedColumnName column, int index) {
+			super(column, index);
+		}
+
+		@Override
+		public Object read(Row row) {
+			return row.isNull(index) ? null : format(row);
+		}
+
+		@Override
+		public String format(Row row) {
+			return "?? " + column.part + " ??";
+		}
+	}
+}
@@ -86,6 +86,10 @@ public class DataConverter {
 		}
 	}
 
+	public String convert(Date val) {
+		return val == null ? null : dateFomrat.get().format(val);
+	}
+
 	public String convert(Object val) {
 		if (val == null) {
 			return null;
@@ -101,7 +105,7 @@ public class DataConverter {
 			converted = val.toString();
 
 		} else if (val instanceof Date) {
-			converted = dateFomrat.get().format(val);
+			converted = convert((Date) val);
 
 		} else if (val instanceof LocalDateTime) {
 			converted = timeFormatter.format((LocalDateTime) val);
@@ -20,8 +20,10 @@ import static org.cyclop.common.Gullectors.toImmutableList;
 import static org.cyclop.common.Gullectors.toImmutableMap;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.validation.constraints.NotNull;
 
@@ -34,7 +36,9 @@ import org.cyclop.validation.EnableValidation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datastax.driver.core.ColumnDefinitions;
 import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.Metadata;
 import com.datastax.driver.core.Row;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -45,9 +49,52 @@ import com.google.common.collect.ImmutableMap;
 public class DataExtractor {
 	private final static Logger LOG = LoggerFactory.getLogger(DataExtractor.class);
 
+	@Inject
+	private DataConverter converter;
+
+	/**
+	 * @param definitions
+	 *            column definitions of rows that will be read - they are the same for all rows of one result
+	 * @return readers in the same order as given columns
+	 */
+	public @NotNull ImmutableList<ColumnReader> createReaders(@NotNull List<CqlExtendedColumnName> columns,
+			@NotNull ColumnDefinitions definitions) {
+		ImmutableList.Builder<ColumnReader> readers = ImmutableList.builder();
+		for (CqlExtendedColumnName column : columns) {
+			int index = indexOf(definitions, column);
+			if (index < 0) {
+				throw new IllegalArgumentException("Column: " + column.part + " not found in: " + definitions);
+			}
+			readers.add(ColumnReader.create(column, index, converter));
+		}
+		ImmutableList<ColumnReader> created = readers.build();
+		LOG.trace("Created readers: {}", created);
+		return created;
+	}
+
+	/**
+	 * @return position of given column in given row - it's the index captured while reading row metadata, or lookup
+	 *         by column name for columns that were not created from query result. Negative if column is not in row.
+	 */
+	public int indexOf(@NotNull Row row, @NotNull CqlExtendedColumnName column) {
+		return indexOf(row.getColumnDefinitions(), column);
+	}
+
+	public boolean isNull(@NotNull Row row, @NotNull CqlExtendedColumnName column) {
+		return row.isNull(indexOf(row, column));
+	}
+
+	private int indexOf(ColumnDefinitions definitions, CqlExtendedColumnName column) {
+		if (column.index != CqlExtendedColumnName.NO_INDEX) {
+			return column.index;
+		}
+		// quoted - column names are case sensitive
+		return definitions.getIndexOf(Metadata.quote(column.part));
+	}
+
 	public @NotNull ImmutableList<CqlColumnValue> extractCollection(@NotNull Row row,
 			@NotNull CqlExtendedColumnName column) {
-		String partLc = column.partLc;
+		int index = indexOf(row, column);
 		CqlDataType dataType = column.dataType;
 		if (dataType.name != DataType.Name.SET && dataType.name != DataType.Name.LIST) {
 			throw new IllegalArgumentException("Only Collection type is supported");
@@ -57,8 +104,8 @@ public class DataExtractor {
 			return ImmutableList.of();
 		}
 
-		Collection<?> objCont = dataType.name == DataType.Name.SET ? row.getSet(partLc, dataType.keyClass) : row
-				.getList(partLc, dataType.keyClass);
+		Collection<?> objCont = dataType.name == DataType.Name.SET ? row.getSet(index, dataType.keyClass) : row
+				.getList(index, dataType.keyClass);
 
 		ImmutableList<CqlColumnValue> collection = objCont.stream()
 				.map(o -> new CqlColumnValue(dataType.keyClass, o, column)).collect(toImmutableList());
@@ -69,7 +116,7 @@ public class DataExtractor {
 
 	public @NotNull ImmutableMap<CqlColumnValue, CqlColumnValue> extractMap(@NotNull Row row,
 			@NotNull CqlExtendedColumnName column) {
-		String partLc = column.partLc;
+		int index = indexOf(row, column);
 		CqlDataType dataType = column.dataType;
 		if (dataType.name != DataType.Name.MAP) {
 			throw new IllegalArgumentException("Only Map type is supported");
@@ -79,9 +126,8 @@ public class DataExtractor {
 			return ImmutableMap.of();
 		}
 
-		Map<?, ?> unconverted = row.getMap(partLc, dataType.keyClass, dataType.valueClass);
+		Map<?, ?> unconverted = row.getMap(index, dataType.keyClass, dataType.valueClass);
 
-		
 		ImmutableMap<CqlColumnValue, CqlColumnValue> map = unconverted
 				.entrySet()
 				.stream()
@@ -101,7 +147,7 @@ public class DataExtractor {
 	}
 
 	public @NotNull CqlColumnValue extractSingleValue(@NotNull Row row, @NotNull CqlExtendedColumnName column) {
-		String partLc = column.partLc;
+		int index = indexOf(row, column);
 		CqlDataType dataType = column.dataType;
 		if (dataType.isCollection()) {
 			throw new IllegalArgumentException("Collection type is not supported");
@@ -109,37 +155,37 @@ public class DataExtractor {
 
 		Object extracted = null;
 		if (dataType.isUUID()) {
-			extracted = row.getUUID(partLc);
+			extracted = row.getUUID(index);
 
 		} else if (dataType.isString()) {
-			extracted = row.getString(partLc);
+			extracted = row.getString(index);
 
 		} else if (dataType.isLong()) {
-			extracted = row.getLong(partLc);
+			extracted = row.getLong(index);
 
 		} else if (dataType.name == DataType.cfloat().getName()) {
-			extracted = row.getFloat(partLc);
+			extracted = row.getFloat(index);
 
 		} else if (dataType.name == DataType.cint().getName()) {
-			extracted = row.getInt(partLc);
+			extracted = row.getInt(index);
 
 		} else if (dataType.name == DataType.cboolean().getName()) {
-			extracted = row.getBool(partLc);
+			extracted = row.getBool(index);
 
 		} else if (dataType.name == DataType.decimal().getName()) {
-			extracted = row.getDecimal(partLc);
+			extracted = row.getDecimal(index);
 
 		} else if (dataType.name == DataType.cdouble().getName()) {
-			extracted = row.getDouble(partLc);
+			extracted = row.getDouble(index);
 
 		} else if (dataType.name == DataType.varint().getName()) {
-			extracted = row.getVarint(partLc);
+			extracted = row.getVarint(index);
 
 		} else if (dataType.name == DataType.timestamp().getName()) {
-			extracted = row.getDate(partLc);
+			extracted = row.getDate(index);
 
 		} else if (dataType.name == DataType.inet().getName()) {
-			extracted = row.getInet(partLc);
+			extracted = row.getInet(index);
 		} else {
 			extracted = "?? " + column.part + " ??";
 			LOG.warn("Type: " + dataType + " not supported by data converter");
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter;
+
+import java.io.OutputStream;
+import java.util.List;
+
+import javax.validation.constraints.NotNull;
+
+import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryResult;
+
+import com.datastax.driver.core.Row;
+
+/**
+ * Exports query result in binary, columnar format. Values are stored in their native width, so that they can be
+ * loaded without parsing text. All numbers are big-endian:
+ * <ul>
+ * <li>header: magic bytes "CQLC", format version (byte), query (int length + UTF-8 bytes), column count (int)</li>
+ * <li>each column: name (int length + UTF-8 bytes), kind (byte: 0 - single value, 1 - list, 2 - set, 3 - map),
+ * encoding code (byte) of the value - maps have two: key and value</li>
+ * <li>row groups: amount of rows (int) followed by one chunk per column. Chunk starts with bitmap containing one bit
+ * per row (1 - value present, 0 - null), followed by present values. Collection value is amount of elements (int)
+ * followed by the elements - maps contain key and value for each element</li>
+ * <li>row group with zero rows ends the file</li>
+ * </ul>
+ * Encodings: 1 - boolean, 2 - int, 3 - bigint, 4 - float, 5 - double, 6 - uuid (two longs), 7 - timestamp (millis),
+ * 8 - text, 9 - decimal (scale + varint), 10 - varint, 11 - blob, 12 - inet. Text, varint, blob and inet are stored
+ * as int length followed by their bytes. Types without own encoding are exported as text.
+ *
+ * @author Maciej Miklas
+ */
+public interface ColumnarQueryResultExporter {
+
+	void exportAsColumnar(@NotNull CqlQuery query, @NotNull OutputStream output);
+
+	/** @see CsvQueryResultExporter#exportAsCsv(CqlQuery, CqlQueryResult, List, OutputStream) */
+	void exportAsColumnar(@NotNull CqlQuery query, @NotNull CqlQueryResult result, @NotNull List<Row> fetchedRows,
+			@NotNull OutputStream output);
+}
@@ -17,10 +17,16 @@
 package org.cyclop.service.exporter;
 
 import java.io.OutputStream;
+import java.util.List;
 
 import javax.validation.constraints.NotNull;
 
 import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryResult;
+import org.cyclop.model.CqlTable;
+import org.cyclop.service.exporter.model.ExportCheckpoint;
+
+import com.datastax.driver.core.Row;
 
 /** @author Maciej Miklas */
 public interface CsvQueryResultExporter {
@@ -29,4 +35,24 @@ public interface CsvQueryResultExporter {
 
 	@NotNull
 	String exportAsCsv(@NotNull CqlQuery query);
+
+	/**
+	 * Exports result that has been already partially read, without executing whole query again.
+	 *
+	 * @param result
+	 *            result of given query, its remaining rows are read from the last driver paging state
+	 * @param fetchedRows
+	 *            rows already read from result's iterator - in the same order
+	 */
+	void exportAsCsv(@NotNull CqlQuery query, @NotNull CqlQueryResult result, @NotNull List<Row> fetchedRows,
+			@NotNull OutputStream output);
+
+	/**
+	 * Exports whole table - its token ring is split into ranges, which are being read in parallel. Each completed
+	 * range is recorded in given checkpoint, passing the same checkpoint again exports only remaining ranges.
+	 *
+	 * @throws org.cyclop.model.exception.ServiceException
+	 *             if export fails - checkpoint contains ranges exported so far
+	 */
+	void exportTableAsCsv(@NotNull CqlTable table, @NotNull OutputStream output, @NotNull ExportCheckpoint checkpoint);
 }
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter;
+
+import java.io.InputStream;
+
+import javax.validation.constraints.NotNull;
+
+import org.cyclop.model.CqlQuery;
+import org.cyclop.service.exporter.model.ExportFormat;
+import org.cyclop.service.exporter.model.ExportJob;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Exports query results in background. Each job writes its export into a file stored on server side, which can be
+ * downloaded once job has completed. Jobs are visible only to the user who has submitted them.
+ *
+ * @author Maciej Miklas
+ */
+public interface ExportJobService {
+
+	/**
+	 * Query is being executed by calling thread, rows are read and exported by background thread.
+	 *
+	 * @return id of created job
+	 * @throws org.cyclop.model.exception.ServiceException
+	 *             if there are too many jobs waiting for execution
+	 */
+	@NotNull
+	String submit(@NotNull CqlQuery query, @NotNull ExportFormat format);
+
+	/** @return jobs of current user, newest first */
+	@NotNull
+	ImmutableList<ExportJob> getJobs();
+
+	/** Stops job if it's still queued or running, its file will be removed */
+	void cancel(@NotNull String id);
+
+	/** Cancels job and removes it together with its file */
+	void remove(@NotNull String id);
+
+	/**
+	 * @return content of completed export, stream has to be closed by caller
+	 * @throws org.cyclop.model.exception.ServiceException
+	 *             if job does not exist or has not completed
+	 */
+	@NotNull
+	InputStream openResult(@NotNull String id);
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter;
+
+import java.io.OutputStream;
+import java.util.List;
+
+import javax.validation.constraints.NotNull;
+
+import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryResult;
+
+import com.datastax.driver.core.Row;
+
+/**
+ * Exports query result as JSON Lines - each row is a single JSON object in a separate line, encoded in UTF-8. Column
+ * names are keys, lists and sets are written as arrays, maps as objects. Numbers and booleans keep their JSON type,
+ * timestamps are ISO-8601 strings in UTC, blobs are base64 strings and columns without value are null.
+ *
+ * @author Maciej Miklas
+ */
+public interface JsonLinesQueryResultExporter {
+
+	void exportAsJsonLines(@NotNull CqlQuery query, @NotNull OutputStream output);
+
+	/** @see CsvQueryResultExporter#exportAsCsv(CqlQuery, CqlQueryResult, List, OutputStream) */
+	void exportAsJsonLines(@NotNull CqlQuery query, @NotNull CqlQueryResult result, @NotNull List<Row> fetchedRows,
+			@NotNull OutputStream output);
+}
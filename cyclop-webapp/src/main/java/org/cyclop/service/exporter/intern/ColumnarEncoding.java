@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter.intern;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Optional;
+
+import org.cyclop.service.converter.ColumnReader;
+
+import com.datastax.driver.core.Row;
+
+/**
+ * Binary encoding of single values in columnar export, all numbers are big-endian. Code of each encoding is stored in
+ * the file header, so that reader knows how to decode each column.
+ *
+ * @author Maciej Miklas
+ */
+enum ColumnarEncoding {
+
+	BOOLEAN(1, Boolean.class) {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			out.writeBoolean((Boolean) value);
+		}
+
+		@Override
+		void write(DataOutput out, Row row, ColumnReader reader) throws IOException {
+			out.writeBoolean(row.getBool(reader.index));
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return in.readBoolean();
+		}
+	},
+
+	INT(2, Integer.class) {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			out.writeInt((Integer) value);
+		}
+
+		@Override
+		void write(DataOutput out, Row row, ColumnReader reader) throws IOException {
+			out.writeInt(row.getInt(reader.index));
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return in.readInt();
+		}
+	},
+
+	BIGINT(3, Long.class) {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			out.writeLong((Long) value);
+		}
+
+		@Override
+		void write(DataOutput out, Row row, ColumnReader reader) throws IOException {
+			out.writeLong(row.getLong(reader.index));
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return in.readLong();
+		}
+	},
+
+	FLOAT(4, Float.class) {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			out.writeFloat((Float) value);
+		}
+
+		@Override
+		void write(DataOutput out, Row row, ColumnReader reader) throws IOException {
+			out.writeFloat(row.getFloat(reader.index));
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return in.readFloat();
+		}
+	},
+
+	DOUBLE(5, Double.class) {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			out.writeDouble((Double) value);
+		}
+
+		@Override
+		void write(DataOutput out, Row row, ColumnReader reader) throws IOException {
+			out.writeDouble(row.getDouble(reader.index));
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return in.readDouble();
+		}
+	},
+
+	/** most significant bits followed by least significant bits */
+	UUID(6, java.util.UUID.class) {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			java.util.UUID uuid = (java.util.UUID) value;
+			out.writeLong(uuid.getMostSignificantBits());
+			out.writeLong(uuid.getLeastSignificantBits());
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return new java.util.UUID(in.readLong(), in.readLong());
+		}
+	},
+
+	/** milliseconds since epoch */
+	TIMESTAMP(7, Date.class) {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			out.writeLong(((Date) value).getTime());
+		}
+
+		@Override
+		void write(DataOutput out, Row row, ColumnReader reader) throws IOException {
+			out.writeLong(row.getDate(reader.index).getTime());
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return new Date(in.readLong());
+		}
+	},
+
+	/** length of UTF-8 bytes followed by those bytes */
+	TEXT(8, String.class) {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8));
+		}
+
+		/** types without own encoding are written as text */
+		@Override
+		void write(DataOutput out, Row row, ColumnReader reader) throws IOException {
+			write(out, reader.format(row));
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return new String(readBytes(in), StandardCharsets.UTF_8);
+		}
+	},
+
+	/** scale followed by {@link #VARINT} encoded unscaled value */
+	DECIMAL(9, BigDecimal.class) {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			BigDecimal decimal = (BigDecimal) value;
+			out.writeInt(decimal.scale());
+			writeBytes(out, decimal.unscaledValue().toByteArray());
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			int scale = in.readInt();
+			return new BigDecimal(new BigInteger(readBytes(in)), scale);
+		}
+	},
+
+	/** length of two's-complement representation followed by its bytes */
+	VARINT(10, BigInteger.class) {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			writeBytes(out, ((BigInteger) value).toByteArray());
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return new BigInteger(readBytes(in));
+		}
+	},
+
+	BLOB(11, ByteBuffer.class) {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			ByteBuffer buf = ((ByteBuffer) value).duplicate();
+			byte[] bytes = new byte[buf.remaining()];
+			buf.get(bytes);
+			writeBytes(out, bytes);
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return ByteBuffer.wrap(readBytes(in));
+		}
+	},
+
+	/** 4 or 16 bytes of the address */
+	INET(12, InetAddress.class) {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			writeBytes(out, ((InetAddress) value).getAddress());
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return InetAddress.getByAddress(readBytes(in));
+		}
+	};
+
+	final byte code;
+
+	private final Class<?> javaClass;
+
+	private ColumnarEncoding(int code, Class<?> javaClass) {
+		this.code = (byte) code;
+		this.javaClass = javaClass;
+	}
+
+	abstract void write(DataOutput out, Object value) throws IOException;
+
+	/** writes value of single value column, it must not be null */
+	void write(DataOutput out, Row row, ColumnReader reader) throws IOException {
+		write(out, reader.read(row));
+	}
+
+	abstract Object read(DataInput in) throws IOException;
+
+	static Optional<ColumnarEncoding> forClass(Class<?> javaClass) {
+		for (ColumnarEncoding enc : values()) {
+			if (enc.javaClass.equals(javaClass)) {
+				return Optional.of(enc);
+			}
+		}
+		return Optional.empty();
+	}
+
+	static ColumnarEncoding forCode(byte code) {
+		for (ColumnarEncoding enc : values()) {
+			if (enc.code == code) {
+				return enc;
+			}
+		}
+		throw new IllegalArgumentException("Unknown encoding: " + code);
+	}
+
+	private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static byte[] readBytes(DataInput in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+}
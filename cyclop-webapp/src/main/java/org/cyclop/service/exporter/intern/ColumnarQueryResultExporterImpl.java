@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter.intern;
+
+import static org.cyclop.common.Gullectors.toImmutableList;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import net.jcip.annotations.Immutable;
+
+import org.cyclop.common.AppConfig;
+import org.cyclop.model.CqlDataType;
+import org.cyclop.model.CqlExtendedColumnName;
+import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryResult;
+import org.cyclop.model.exception.ServiceException;
+import org.cyclop.service.cassandra.QueryService;
+import org.cyclop.service.converter.ColumnReader;
+import org.cyclop.service.converter.DataConverter;
+import org.cyclop.service.converter.DataExtractor;
+import org.cyclop.service.exporter.ColumnarQueryResultExporter;
+import org.cyclop.validation.EnableValidation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.Row;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+/** @author Maciej Miklas */
+@Named
+@EnableValidation
+public class ColumnarQueryResultExporterImpl implements ColumnarQueryResultExporter {
+
+	private final static Logger LOG = LoggerFactory.getLogger(ColumnarQueryResultExporterImpl.class);
+
+	final static byte[] MAGIC = "CQLC".getBytes(StandardCharsets.US_ASCII);
+
+	final static byte VERSION = 1;
+
+	final static byte KIND_SINGLE = 0;
+
+	final static byte KIND_LIST = 1;
+
+	final static byte KIND_SET = 2;
+
+	final static byte KIND_MAP = 3;
+
+	private final static int BUFFER_SIZE = 64 * 1024;
+
+	@Inject
+	private DataExtractor extractor;
+
+	@Inject
+	private DataConverter converter;
+
+	@Inject
+	private AppConfig.QueryExport conf;
+
+	@Inject
+	private QueryService queryService;
+
+	@Inject
+	private ExportRowsReader rowsReader;
+
+	@Override
+	public void exportAsColumnar(CqlQuery query, OutputStream output) {
+		LOG.debug("Starting columnar export for {}", query);
+		CqlQueryResult result = queryService.execute(query, false);
+		write(query, result.rowMetadata.columns, result, output);
+	}
+
+	@Override
+	public void exportAsColumnar(CqlQuery query, CqlQueryResult result, List<Row> fetchedRows, OutputStream output) {
+		LOG.debug("Starting columnar export for displayed {}", query);
+		write(query, result.rowMetadata.columns, rowsReader.read(query, result, fetchedRows), output);
+	}
+
+	private void write(CqlQuery query, ImmutableList<CqlExtendedColumnName> columnNames, Iterable<Row> rows,
+			OutputStream output) {
+		ImmutableList<Column> columns = columnNames.stream().map(Column::new).collect(toImmutableList());
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output, BUFFER_SIZE))) {
+			writeHeader(out, query, columns);
+
+			List<Row> group = new ArrayList<>(conf.columnarRowGroupSize);
+			ImmutableList<ColumnReader> readers = null;
+			for (Row row : rows) {
+				if (readers == null) {
+					// all rows of one result share column definitions
+					readers = extractor.createReaders(columnNames, row.getColumnDefinitions());
+				}
+				group.add(row);
+				if (group.size() == conf.columnarRowGroupSize) {
+					writeRowGroup(out, columns, readers, group);
+					group.clear();
+				}
+			}
+			if (!group.isEmpty()) {
+				writeRowGroup(out, columns, readers, group);
+			}
+			out.writeInt(0);
+			out.flush();
+		} catch (IOException e) {
+			throw new ServiceException("Error during export: " + e.getMessage(), e);
+		}
+	}
+
+	private void writeHeader(DataOutputStream out, CqlQuery query, List<Column> columns) throws IOException {
+		LOG.trace("Writing header of {} with {}", query, columns);
+		out.write(MAGIC);
+		out.writeByte(VERSION);
+		ColumnarEncoding.TEXT.write(out, query.part);
+		out.writeInt(columns.size());
+		for (Column column : columns) {
+			ColumnarEncoding.TEXT.write(out, column.name.part);
+			out.writeByte(column.kind);
+			out.writeByte(column.encoding.code);
+			if (column.kind == KIND_MAP) {
+				out.writeByte(column.valueEncoding.code);
+			}
+		}
+	}
+
+	private void writeRowGroup(DataOutputStream out, List<Column> columns, List<ColumnReader> readers,
+			List<Row> rows) throws IOException {
+		LOG.trace("Writing group of {} rows", rows.size());
+		out.writeInt(rows.size());
+		byte[] present = new byte[(rows.size() + 7) / 8];
+		for (int colIdx = 0; colIdx < columns.size(); colIdx++) {
+			Column column = columns.get(colIdx);
+			ColumnReader reader = readers.get(colIdx);
+			for (int idx = 0; idx < rows.size(); idx++) {
+				if (!reader.isNull(rows.get(idx))) {
+					present[idx / 8] |= 1 << (idx % 8);
+				}
+			}
+			out.write(present);
+
+			for (int idx = 0; idx < rows.size(); idx++) {
+				if ((present[idx / 8] & (1 << (idx % 8))) != 0) {
+					writeValue(out, column, reader, rows.get(idx));
+				}
+			}
+			Arrays.fill(present, (byte) 0);
+		}
+	}
+
+	private void writeValue(DataOutputStream out, Column column, ColumnReader reader, Row row) throws IOException {
+		switch (column.kind) {
+		case KIND_MAP:
+			Map<?, ?> map = (Map<?, ?>) reader.read(row);
+			out.writeInt(map.size());
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				column.encoding.write(out, encodable(column.encoding, entry.getKey()));
+				column.valueEncoding.write(out, encodable(column.valueEncoding, entry.getValue()));
+			}
+			break;
+
+		case KIND_LIST:
+		case KIND_SET:
+			Collection<?> collection = (Collection<?>) reader.read(row);
+			out.writeInt(collection.size());
+			for (Object element : collection) {
+				column.encoding.write(out, encodable(column.encoding, element));
+			}
+			break;
+
+		default:
+			column.encoding.write(out, row, reader);
+		}
+	}
+
+	/** values of types without own encoding are written as text */
+	private Object encodable(ColumnarEncoding encoding, Object value) {
+		if (encoding == ColumnarEncoding.TEXT && !(value instanceof String)) {
+			return converter.convert(value);
+		}
+		return value;
+	}
+
+	@Immutable
+	private final static class Column {
+
+		final CqlExtendedColumnName name;
+
+		final byte kind;
+
+		/** encoding of the value, for collections encoding of their elements and for maps encoding of the key */
+		final ColumnarEncoding encoding;
+
+		/** set only for maps */
+		final ColumnarEncoding valueEncoding;
+
+		Column(CqlExtendedColumnName name) {
+			this.name = name;
+			CqlDataType dataType = name.dataType;
+			if (dataType.name == DataType.Name.MAP) {
+				kind = KIND_MAP;
+				encoding = encoding(dataType.keyClass);
+				valueEncoding = encoding(dataType.valueClass);
+			} else if (dataType.name == DataType.Name.LIST || dataType.name == DataType.Name.SET) {
+				kind = dataType.name == DataType.Name.LIST ? KIND_LIST : KIND_SET;
+				encoding = encoding(dataType.keyClass);
+				valueEncoding = null;
+			} else {
+				kind = KIND_SINGLE;
+				encoding = encoding(dataType.name.asJavaClass());
+				valueEncoding = null;
+			}
+		}
+
+		private static ColumnarEncoding encoding(Class<?> javaClass) {
+			return javaClass == null ? ColumnarEncoding.TEXT : ColumnarEncoding.forClass(javaClass).orElse(
+					ColumnarEncoding.TEXT);
+		}
+
+		@Override
+		public String toString() {
+			return MoreObjects.toStringHelper(this).add("name", name).add("kind", kind).add("encoding", encoding)
+					.add("valueEncoding", valueEncoding).toString();
+		}
+	}
+}
@@ -16,36 +16,65 @@
  */
 package org.cyclop.service.exporter.intern;
 
+import static org.cyclop.common.Gullectors.toImmutableList;
+
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.cyclop.common.AppConfig;
-import org.cyclop.model.CqlColumnValue;
+import org.cyclop.model.CqlColumnType;
 import org.cyclop.model.CqlDataType;
 import org.cyclop.model.CqlExtendedColumnName;
+import org.cyclop.model.CqlKeySpace;
 import org.cyclop.model.CqlQuery;
 import org.cyclop.model.CqlQueryResult;
+import org.cyclop.model.CqlQueryType;
+import org.cyclop.model.CqlTable;
 import org.cyclop.model.exception.ServiceException;
+import org.cyclop.service.cassandra.QueryScope;
 import org.cyclop.service.cassandra.QueryService;
+import org.cyclop.service.cassandra.intern.CassandraSessionImpl;
+import org.cyclop.service.converter.ColumnReader;
 import org.cyclop.service.converter.DataConverter;
 import org.cyclop.service.converter.DataExtractor;
 import org.cyclop.service.exporter.CsvQueryResultExporter;
+import org.cyclop.service.exporter.model.ExportCheckpoint;
 import org.cyclop.validation.EnableValidation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datastax.driver.core.ColumnMetadata;
 import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
 import com.datastax.driver.core.Row;
+import com.datastax.driver.core.TableMetadata;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /** @author Maciej Miklas */
 @Named
@@ -54,6 +83,13 @@ public class CsvQueryResultExporterImpl implements CsvQueryResultExporter {
 
 	private final static Logger LOG = LoggerFactory.getLogger(CsvQueryResultExporterImpl.class);
 
+	private final static int BUFFER_SIZE = 64 * 1024;
+
+	/** characters of single token range kept in memory, longer ranges are spooled into temporary file */
+	private final static int SPOOL_MEMORY_LIMIT = 1024 * 1024;
+
+	private final static String MURMUR3_PARTITIONER = "Murmur3Partitioner";
+
 	@Inject
 	private DataExtractor extractor;
 
@@ -63,9 +99,33 @@ public class CsvQueryResultExporterImpl implements CsvQueryResultExporter {
 	@Inject
 	private AppConfig.QueryExport conf;
 
+	@Inject
+	private ExportRowsReader rowsReader;
+
 	@Inject
 	private QueryService queryService;
 
+	@Inject
+	private CassandraSessionImpl session;
+
+	@Inject
+	private QueryScope queryScope;
+
+	/** reads results of token ranges - it's shared by all exports, so that amount of reading threads is bounded */
+	private ExecutorService rangesExecutor;
+
+	@PostConstruct
+	void init() {
+		rangesExecutor = Executors.newFixedThreadPool(conf.tokenRangeParallelism, new ThreadFactoryBuilder()
+				.setNameFormat("cyclop-range-export-%d").setDaemon(true).build());
+	}
+
+	@PreDestroy
+	void shutdown() {
+		LOG.debug("Stopping token range export");
+		rangesExecutor.shutdownNow();
+	}
+
 	@Override
 	public String exportAsCsv(CqlQuery query) {
 		ByteArrayOutputStream bos = new ByteArrayOutputStream();
@@ -82,114 +142,232 @@ public class CsvQueryResultExporterImpl implements CsvQueryResultExporter {
 	@Override
 	public void exportAsCsv(CqlQuery query, OutputStream output) {
 		LOG.debug("Starting CSV export for {}", query);
-
-		PrintWriter out = new PrintWriter(output);
 		CqlQueryResult result = queryService.execute(query, false);
+		writeCsv(query, result.rowMetadata.columns, result, output);
+	}
 
-		// header
-		appendHeader(query, out);
+	@Override
+	public void exportAsCsv(CqlQuery query, CqlQueryResult result, List<Row> fetchedRows, OutputStream output) {
+		LOG.debug("Starting CSV export for displayed {}", query);
+		writeCsv(query, result.rowMetadata.columns, rowsReader.read(query, result, fetchedRows), output);
+	}
 
-		// column names
-		ImmutableList<CqlExtendedColumnName> columns = result.rowMetadata.columns;
-		appendColumns(out, columns);
-		out.append(conf.separatorRow);
+	private void writeCsv(CqlQuery query, ImmutableList<CqlExtendedColumnName> columns, Iterable<Row> rows,
+			OutputStream output) {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(output, Charset.forName(conf.encoding)),
+				BUFFER_SIZE);
+		try (CsvWriter out = new CsvWriter(writer, conf)) {
+			// header
+			appendHeader(query, out);
+
+			// column names
+			appendColumns(out, columns);
+			out.raw(conf.separatorRow);
+
+			// content - rows are being fetched from cassandra while writing
+			ImmutableList<ColumnReader> readers = null;
+			for (Row row : rows) {
+				readers = createReaders(readers, columns, row);
+				appendRow(out, row, readers);
+				out.raw(conf.separatorRow);
+			}
+			out.flush();
+		} catch (IOException e) {
+			throw new ServiceException("Error during export: " + e.getMessage(), e);
+		}
+	}
 
-		// content
-		result.forEach(row -> {
-			appendRow(out, row, columns);
-			out.append(conf.separatorRow);
-		});
+	@Override
+	public void exportTableAsCsv(CqlTable table, OutputStream output, ExportCheckpoint checkpoint) {
+		TableMetadata tableMeta = findTable(table);
+		CqlQuery query = new CqlQuery(CqlQueryType.SELECT, "SELECT * FROM "
+				+ Metadata.quote(tableMeta.getKeyspace().getName()) + "." + Metadata.quote(tableMeta.getName()));
+		String token = "token("
+				+ tableMeta.getPartitionKey().stream().map(c -> Metadata.quote(c.getName()))
+						.collect(Collectors.joining(",")) + ")";
+		int rangesCount = checkpoint.init(conf.tokenRangeSplits);
+		ImmutableList<CqlExtendedColumnName> columns = createColumns(tableMeta);
+		LOG.debug("Starting token range export for {}, {}", query, checkpoint);
+
+		Writer writer = new BufferedWriter(new OutputStreamWriter(output, Charset.forName(conf.encoding)),
+				BUFFER_SIZE);
+		try (CsvWriter out = new CsvWriter(writer, conf)) {
+			RangesOutput rangesOutput = new RangesOutput(out, query, columns, checkpoint.getCompletedCount() > 0);
+			exportRanges(query, token, rangesCount, rangesOutput, checkpoint);
+			rangesOutput.finish();
+		} catch (IOException e) {
+			throw new ServiceException("Error during export: " + e.getMessage(), e);
+		}
+		LOG.debug("Token range export done: {}", checkpoint);
+	}
 
-		out.flush();
-		out.close();
+	/**
+	 * Columns of query result are discovered from its first rows, so sparse token ranges would have different columns
+	 * - all ranges share columns of the table instead. Readers find them by name.
+	 */
+	private static ImmutableList<CqlExtendedColumnName> createColumns(TableMetadata tableMeta) {
+		return tableMeta.getColumns().stream().map(c -> createColumn(tableMeta, c)).collect(toImmutableList());
 	}
 
-	private void appendRow(PrintWriter out, Row row, List<CqlExtendedColumnName> cols) {
-		LOG.debug("Appending next row");
-		Iterator<CqlExtendedColumnName> it = cols.iterator();
-		while (it.hasNext()) {
-			CqlExtendedColumnName column = it.next();
-			CqlDataType dataType = column.dataType;
+	private static CqlExtendedColumnName createColumn(TableMetadata tableMeta, ColumnMetadata column) {
+		return new CqlExtendedColumnName(columnType(tableMeta, column), CqlDataType.create(column.getType()),
+				column.getName());
+	}
 
-			if (dataType.name == DataType.Name.SET || dataType.name == DataType.Name.LIST) {
-				appendCollection(out, row, column);
+	private static CqlColumnType columnType(TableMetadata tableMeta, ColumnMetadata column) {
+		if (tableMeta.getPartitionKey().contains(column)) {
+			return CqlColumnType.PARTITION_KEY;
+		}
+		if (tableMeta.getClusteringColumns().contains(column)) {
+			return CqlColumnType.CLUSTERING_KEY;
+		}
+		return CqlColumnType.REGULAR;
+	}
 
-			} else if (dataType.name == DataType.Name.MAP) {
-				appendMap(out, row, column);
-			} else {
-				appendSingleValue(out, row, column);
+	/**
+	 * Queries are executed trough {@link QueryService} by the calling thread, because it is bound to http session.
+	 * Only reading of results (including fetching of further pages) is done in parallel.
+	 */
+	private void exportRanges(CqlQuery query, String token, int rangesCount, RangesOutput out,
+			ExportCheckpoint checkpoint) {
+		int parallelism = conf.tokenRangeParallelism;
+		Semaphore running = new Semaphore(parallelism);
+		AtomicReference<Exception> failure = new AtomicReference<>();
+		List<Future<?>> tasks = new ArrayList<>();
+		try {
+			for (int idx = 0; idx < rangesCount && failure.get() == null; idx++) {
+				if (checkpoint.isCompleted(idx)) {
+					continue;
+				}
+				TokenRange range = TokenRange.of(idx, rangesCount);
+				running.acquire();
+				ListenableFuture<CqlQueryResult> result;
+				try {
+					result = queryService.executeAsync(createRangeQuery(query, token, range), false);
+				} catch (Exception e) {
+					running.release();
+					failure.compareAndSet(null, e);
+					break;
+				}
+
+				tasks.add(rangesExecutor.submit(() -> {
+					try {
+						out.appendRange(result.get(), range, checkpoint);
+					} catch (Exception e) {
+						LOG.debug("Error exporting {}: {}", range, e.getMessage());
+						failure.compareAndSet(null, e);
+					} finally {
+						running.release();
+					}
+				}));
 			}
+			running.acquire(parallelism);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failure.compareAndSet(null, e);
 
-			if (it.hasNext()) {
-				out.append(conf.separatorColumn);
-			}
+			// executor is shared - only ranges of this export are being stopped
+			tasks.forEach(task -> task.cancel(true));
+		}
+
+		Exception error = failure.get();
+		if (error != null) {
+			throw new ServiceException("Export of " + query + " failed after " + checkpoint.getCompletedCount()
+					+ " of " + rangesCount + " token ranges: " + error.getMessage(), error);
 		}
 	}
 
-	private void appendMap(PrintWriter out, Row row, CqlExtendedColumnName column) {
-		ImmutableSet<Map.Entry<CqlColumnValue, CqlColumnValue>> displayMap = extractor.extractMap(row, column)
-				.entrySet();
-		Iterator<Map.Entry<CqlColumnValue, CqlColumnValue>> it = displayMap.iterator();
+	private TableMetadata findTable(CqlTable table) {
+		Metadata metadata = session.getLease().getSession().getCluster().getMetadata();
+		if (!metadata.getPartitioner().endsWith(MURMUR3_PARTITIONER)) {
+			throw new ServiceException("Token range export supports only " + MURMUR3_PARTITIONER + ", found: "
+					+ metadata.getPartitioner());
+		}
 
-		LOG.trace("Appending: {}", displayMap);
+		Optional<CqlKeySpace> keySpace = table.keySpace == null ? queryScope.getActiveKeySpace() : Optional
+				.of(table.keySpace);
+		KeyspaceMetadata spaceMeta = keySpace.isPresent() ? metadata.getKeyspace(keySpace.get().partLc) : null;
+		TableMetadata tableMeta = spaceMeta == null ? null : spaceMeta.getTable(table.partLc);
+		if (tableMeta == null) {
+			throw new ServiceException("Table not found: " + table);
+		}
 
-		StringBuilder mapBuf = new StringBuilder();
-		while (it.hasNext()) {
-			Map.Entry<CqlColumnValue, CqlColumnValue> entry = it.next();
+		return tableMeta;
+	}
 
-			CqlColumnValue key = entry.getKey();
-			String keyText = esc(converter.convert(key.value));
-			mapBuf.append(keyText);
+	private CqlQuery createRangeQuery(CqlQuery tableQuery, String token, TokenRange range) {
+		return new CqlQuery(CqlQueryType.SELECT, tableQuery.part + " WHERE " + token + " > " + range.start + " AND "
+				+ token + " <= " + range.end);
+	}
+
+	/** all rows of one result share column definitions - readers are created for the first one */
+	private ImmutableList<ColumnReader> createReaders(ImmutableList<ColumnReader> readers,
+			List<CqlExtendedColumnName> columns, Row row) {
+		return readers == null ? extractor.createReaders(columns, row.getColumnDefinitions()) : readers;
+	}
 
-			mapBuf.append(conf.separatorMap);
+	private void appendRow(CsvWriter out, Row row, ImmutableList<ColumnReader> readers) throws IOException {
+		int size = readers.size();
+		for (int idx = 0; idx < size; idx++) {
+			ColumnReader reader = readers.get(idx);
+			DataType.Name type = reader.column.dataType.name;
 
-			CqlColumnValue val = entry.getValue();
-			String valText = esc(converter.convert(val.value));
-			mapBuf.append(valText);
+			if (type == DataType.Name.SET || type == DataType.Name.LIST) {
+				appendCollection(out, (Collection<?>) reader.read(row));
 
-			if (it.hasNext()) {
-				mapBuf.append(conf.separatorList);
+			} else if (type == DataType.Name.MAP) {
+				appendMap(out, (Map<?, ?>) reader.read(row));
+			} else {
+				out.value(reader.format(row));
 			}
-		}
 
-		String mapVal = esc(mapBuf.toString());
-		LOG.trace("Appended map: {}", mapVal);
-		out.append(mapVal);
+			if (idx < size - 1) {
+				out.raw(conf.separatorColumn);
+			}
+		}
 	}
 
-	private void appendCollection(PrintWriter out, Row row, CqlExtendedColumnName column) {
-		ImmutableList<CqlColumnValue> content = extractor.extractCollection(row, column);
-		LOG.trace("Appending {}", content);
-		Iterator<CqlColumnValue> contentIt = content.iterator();
-		StringBuilder listBuild = new StringBuilder();
-		while (contentIt.hasNext()) {
-			CqlColumnValue cqlColumnValue = contentIt.next();
-			String valText = esc(converter.convert(cqlColumnValue.value));
-			listBuild.append(valText);
-			if (contentIt.hasNext()) {
-				listBuild.append(conf.separatorList);
+	private void appendMap(CsvWriter out, Map<?, ?> map) throws IOException {
+		LOG.trace("Appending: {}", map);
+		out.startValue();
+		if (map != null) {
+			Iterator<? extends Map.Entry<?, ?>> it = map.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<?, ?> entry = it.next();
+				out.value(converter.convert(entry.getKey()));
+				out.separator(conf.separatorMap);
+				out.value(converter.convert(entry.getValue()));
+
+				if (it.hasNext()) {
+					out.separator(conf.separatorList);
+				}
 			}
 		}
-		String colVal = esc(listBuild.toString());
-		LOG.trace("Append collection: {}", colVal);
-		out.append(colVal);
+		out.endValue();
 	}
 
-	private void appendSingleValue(PrintWriter out, Row row, CqlExtendedColumnName column) {
-		CqlColumnValue cqlColumnValue = extractor.extractSingleValue(row, column);
-		String valText = esc(converter.convert(cqlColumnValue.value));
-		LOG.trace("Append single value: {}", valText);
-		out.append(valText);
+	private void appendCollection(CsvWriter out, Collection<?> content) throws IOException {
+		LOG.trace("Appending {}", content);
+		out.startValue();
+		if (content != null) {
+			Iterator<?> contentIt = content.iterator();
+			while (contentIt.hasNext()) {
+				out.value(converter.convert(contentIt.next()));
+				if (contentIt.hasNext()) {
+					out.separator(conf.separatorList);
+				}
+			}
+		}
+		out.endValue();
 	}
 
-	private void appendHeader(CqlQuery query, PrintWriter out) {
-		String headerVal = prep(query.part);
-		LOG.trace("Append header: {}", headerVal);
-		out.append(headerVal);
-		out.append(conf.separatorQuery);
+	private void appendHeader(CqlQuery query, CsvWriter out) throws IOException {
+		LOG.trace("Append header: {}", query);
+		out.prepared(query.part);
+		out.raw(conf.separatorQuery);
 	}
 
-	private void appendColumns(PrintWriter out, List<CqlExtendedColumnName> columns) {
+	private void appendColumns(CsvWriter out, List<CqlExtendedColumnName> columns) throws IOException {
 		if (columns.isEmpty()) {
 			return;
 		}
@@ -199,30 +377,70 @@ public class CsvQueryResultExporterImpl implements CsvQueryResultExporter {
 		Iterator<CqlExtendedColumnName> commonColsIt = columns.iterator();
 		while (commonColsIt.hasNext()) {
 			CqlExtendedColumnName next = commonColsIt.next();
-			out.append(prep(esc(next.toDisplayString())));
+			out.value(next.toDisplayString());
 
 			if (commonColsIt.hasNext()) {
-				out.append(conf.separatorColumn);
+				out.raw(conf.separatorColumn);
 			}
 		}
 	}
 
-	private String prep(String val) {
-		if (val == null) {
-			val = "";
-		}
-		if (conf.trim) {
-			val = val.trim();
+	/**
+	 * Output shared by ranges exported in parallel. Rows of single range are spooled until the range has been read
+	 * completely - only then they are written at once and the range is marked as completed. Range failing in the
+	 * middle does not leave any rows in output, so that resumed export does not duplicate them.
+	 */
+	private final class RangesOutput {
+
+		private final CsvWriter out;
+
+		private final CqlQuery query;
+
+		/** columns of the table - the same for all ranges */
+		private final ImmutableList<CqlExtendedColumnName> columns;
+
+		private boolean headerWritten;
+
+		RangesOutput(CsvWriter out, CqlQuery query, ImmutableList<CqlExtendedColumnName> columns, boolean resumed) {
+			this.out = out;
+			this.query = query;
+			this.columns = columns;
+			this.headerWritten = resumed;
 		}
 
-		if (conf.removeCrChars) {
-			val = val.replaceAll("[\n\r]", "");
+		void appendRange(CqlQueryResult result, TokenRange range, ExportCheckpoint checkpoint) throws IOException {
+			LOG.trace("Exporting {}", range);
+			try (SpoolWriter spool = new SpoolWriter(Charset.forName(conf.encoding), SPOOL_MEMORY_LIMIT)) {
+				CsvWriter spoolOut = new CsvWriter(spool, conf);
+				ImmutableList<ColumnReader> readers = null;
+				for (Row row : result) {
+					readers = createReaders(readers, columns, row);
+					appendRow(spoolOut, row, readers);
+					spoolOut.raw(conf.separatorRow);
+				}
+
+				synchronized (this) {
+					writeHeader();
+					out.copy(spool);
+					out.flush();
+					checkpoint.markCompleted(range.index);
+				}
+			}
 		}
 
-		return val;
-	}
+		synchronized void finish() throws IOException {
+			writeHeader();
+			out.flush();
+		}
 
-	private String esc(String val) {
-		return conf.valueBracketStart + prep(val) + conf.valueBracketEnd;
+		private void writeHeader() throws IOException {
+			if (headerWritten) {
+				return;
+			}
+			appendHeader(query, out);
+			appendColumns(out, columns);
+			out.raw(conf.separatorRow);
+			headerWritten = true;
+		}
 	}
 }
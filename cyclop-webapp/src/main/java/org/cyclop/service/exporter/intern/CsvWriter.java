@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter.intern;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import org.cyclop.common.AppConfig;
+
+/**
+ * Writes CSV values directly into buffered output - values are trimmed, stripped from CR characters and enclosed in
+ * brackets while being copied, so that no temporary strings are created.
+ *
+ * @author Maciej Miklas
+ */
+@NotThreadSafe
+final class CsvWriter implements Closeable {
+
+	private final Writer out;
+
+	private final AppConfig.QueryExport conf;
+
+	CsvWriter(Writer out, AppConfig.QueryExport conf) {
+		this.out = out;
+		this.conf = conf;
+	}
+
+	/** writes given text without any changes - used for separators */
+	CsvWriter raw(String text) throws IOException {
+		out.write(text);
+		return this;
+	}
+
+	/** writes value enclosed in brackets */
+	CsvWriter value(String val) throws IOException {
+		startValue();
+		prepared(val);
+		endValue();
+		return this;
+	}
+
+	/** value containing nested values, like collection, has to be closed by {@link #endValue()} */
+	CsvWriter startValue() throws IOException {
+		out.write(conf.valueBracketStart);
+		return this;
+	}
+
+	CsvWriter endValue() throws IOException {
+		out.write(conf.valueBracketEnd);
+		return this;
+	}
+
+	/** writes value without brackets - it's being trimmed and CR characters are removed if configured */
+	CsvWriter prepared(String val) throws IOException {
+		if (val == null) {
+			return this;
+		}
+		int start = 0;
+		int end = val.length();
+		if (conf.trim) {
+			// same as String#trim
+			while (start < end && val.charAt(start) <= ' ') {
+				start++;
+			}
+			while (end > start && val.charAt(end - 1) <= ' ') {
+				end--;
+			}
+		}
+
+		writeRange(val, start, end);
+		return this;
+	}
+
+	/** writes separator of nested values - CR characters are removed if configured, but it's not trimmed */
+	CsvWriter separator(String val) throws IOException {
+		writeRange(val, 0, val.length());
+		return this;
+	}
+
+	private void writeRange(String val, int start, int end) throws IOException {
+		if (!conf.removeCrChars) {
+			out.write(val, start, end - start);
+			return;
+		}
+
+		int chunkStart = start;
+		for (int idx = start; idx < end; idx++) {
+			char chr = val.charAt(idx);
+			if (chr == '\n' || chr == '\r') {
+				out.write(val, chunkStart, idx - chunkStart);
+				chunkStart = idx + 1;
+			}
+		}
+		out.write(val, chunkStart, end - chunkStart);
+	}
+
+	/** writes content collected by given spool without any changes */
+	CsvWriter copy(SpoolWriter spool) throws IOException {
+		spool.transferTo(out);
+		return this;
+	}
+
+	void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,388 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter.intern;
+
+import static org.cyclop.common.Gullectors.toImmutableList;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.cyclop.common.AppConfig;
+import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryResult;
+import org.cyclop.model.UserIdentifier;
+import org.cyclop.model.exception.ServiceException;
+import org.cyclop.service.cassandra.QueryService;
+import org.cyclop.service.cassandra.intern.CassandraSessionImpl;
+import org.cyclop.service.cassandra.intern.SessionLease;
+import org.cyclop.service.exporter.ColumnarQueryResultExporter;
+import org.cyclop.service.exporter.CsvQueryResultExporter;
+import org.cyclop.service.exporter.ExportJobService;
+import org.cyclop.service.exporter.JsonLinesQueryResultExporter;
+import org.cyclop.service.exporter.model.ExportFormat;
+import org.cyclop.service.exporter.model.ExportJob;
+import org.cyclop.service.um.UserManager;
+import org.cyclop.validation.EnableValidation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.datastax.driver.core.Row;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Jobs are shared by all http sessions and each one holds its own {@link SessionLease} until it finishes, so that
+ * export continues when session expires. Export files are stored in {@link AppConfig.FileStore#folder} and removed
+ * together with their job - at the latest after {@link AppConfig.ExportJobs#retentionMillis}.
+ *
+ * @author Maciej Miklas
+ */
+@Named
+@EnableValidation
+@ThreadSafe
+public class ExportJobServiceImpl implements ExportJobService {
+
+	private final static Logger LOG = LoggerFactory.getLogger(ExportJobServiceImpl.class);
+
+	private final static int CLEANUP_CHECK_MILLIS = 60000;
+
+	private final static String FILE_PREFIX = "cyclop-export-";
+
+	private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+	private ThreadPoolExecutor executor;
+
+	@Inject
+	private AppConfig appConfig;
+
+	@Inject
+	private QueryService queryService;
+
+	@Inject
+	private CassandraSessionImpl session;
+
+	@Inject
+	private UserManager userManager;
+
+	@Inject
+	private CsvQueryResultExporter csvExporter;
+
+	@Inject
+	private ColumnarQueryResultExporter columnarExporter;
+
+	@Inject
+	private JsonLinesQueryResultExporter jsonLinesExporter;
+
+	@PostConstruct
+	void init() {
+		AppConfig.ExportJobs conf = appConfig.exportJobs;
+		executor = new ThreadPoolExecutor(conf.threads, conf.threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(conf.maxQueued), new ThreadFactoryBuilder()
+						.setNameFormat("cyclop-export-%d").setDaemon(true).build());
+	}
+
+	@PreDestroy
+	void shutdown() {
+		LOG.debug("Stopping export jobs");
+		executor.shutdownNow();
+		jobs.values().forEach(Job::cancel);
+		jobs.values().forEach(Job::deleteFile);
+		jobs.clear();
+	}
+
+	@Override
+	public String submit(CqlQuery query, ExportFormat format) {
+		Path folder = Paths.get(appConfig.fileStore.folder);
+		if (!Files.isDirectory(folder) || !Files.isWritable(folder)) {
+			throw new ServiceException("Export folder is not writable: " + folder);
+		}
+
+		UserIdentifier owner = userManager.readIdentifier();
+		String id = UUID.randomUUID().toString();
+		Path file = folder.resolve(FILE_PREFIX + id);
+
+		// query service is bound to http session - query has to be started by calling thread, job's own lease keeps
+		// its session open for paging after http session has been closed
+		SessionLease lease = session.getLease().share();
+		ListenableFuture<CqlQueryResult> result;
+		try {
+			result = queryService.executeAsync(query, false);
+		} catch (RuntimeException e) {
+			lease.close();
+			throw e;
+		}
+		Job job = new Job(id, owner, query, format, file, lease, result);
+		jobs.put(id, job);
+		try {
+			job.execution = executor.submit(job);
+		} catch (RejectedExecutionException e) {
+			jobs.remove(id);
+			job.cancel();
+			job.finish(ExportJob.State.CANCELLED, null);
+			throw new ServiceException("Too many export jobs, try again later", e);
+		}
+		LOG.info("Submitted export job {}", job);
+		return id;
+	}
+
+	@Override
+	public ImmutableList<ExportJob> getJobs() {
+		UserIdentifier owner = userManager.readIdentifier();
+		return jobs.values().stream().filter(job -> job.owner.equals(owner)).map(Job::snapshot)
+				.sorted(Comparator.comparing((ExportJob job) -> job.submittedMillis).reversed())
+				.collect(toImmutableList());
+	}
+
+	@Override
+	public void cancel(String id) {
+		Job job = getJob(id);
+		LOG.debug("Cancelling export job {}", job);
+		job.cancel();
+	}
+
+	@Override
+	public void remove(String id) {
+		Job job = getJob(id);
+		LOG.debug("Removing export job {}", job);
+		job.cancel();
+		jobs.remove(id);
+		job.deleteFile();
+	}
+
+	@Override
+	public InputStream openResult(String id) {
+		Job job = getJob(id);
+		if (job.state != ExportJob.State.COMPLETED) {
+			throw new ServiceException("Export job has not completed: " + id);
+		}
+		try {
+			return Files.newInputStream(job.file);
+		} catch (IOException e) {
+			throw new ServiceException("Cannot read export file: " + e.getMessage(), e);
+		}
+	}
+
+	@Scheduled(initialDelay = CLEANUP_CHECK_MILLIS, fixedDelay = CLEANUP_CHECK_MILLIS)
+	public void removeExpired() {
+		long expiredBefore = System.currentTimeMillis() - appConfig.exportJobs.retentionMillis;
+		Iterator<Job> it = jobs.values().iterator();
+		while (it.hasNext()) {
+			Job job = it.next();
+			if (job.state.isFinished() && job.finishedMillis < expiredBefore) {
+				LOG.info("Removing expired export job {}", job);
+				it.remove();
+				job.deleteFile();
+			}
+		}
+	}
+
+	private Job getJob(String id) {
+		Job job = jobs.get(id);
+		if (job == null || !job.owner.equals(userManager.readIdentifier())) {
+			throw new ServiceException("Export job not found: " + id);
+		}
+		return job;
+	}
+
+	private void export(Job job, CqlQueryResult result, OutputStream output) {
+		ImmutableList<Row> fetched = ImmutableList.of();
+		switch (job.format) {
+		case COLUMNAR:
+			columnarExporter.exportAsColumnar(job.query, result, fetched, output);
+			break;
+		case JSON_LINES:
+			jsonLinesExporter.exportAsJsonLines(job.query, result, fetched, output);
+			break;
+		default:
+			csvExporter.exportAsCsv(job.query, result, fetched, output);
+		}
+	}
+
+	private final class Job implements Runnable {
+		private final String id;
+
+		private final UserIdentifier owner;
+
+		private final CqlQuery query;
+
+		private final ExportFormat format;
+
+		private final Path file;
+
+		private final SessionLease lease;
+
+		private final ListenableFuture<CqlQueryResult> result;
+
+		private final long submittedMillis = System.currentTimeMillis();
+
+		private final AtomicLong rows = new AtomicLong();
+
+		private volatile ExportJob.State state = ExportJob.State.QUEUED;
+
+		private volatile CountingOutputStream output;
+
+		private volatile boolean cancelled;
+
+		private volatile long startedMillis;
+
+		private volatile long finishedMillis;
+
+		private volatile String error;
+
+		private volatile Future<?> execution;
+
+		Job(String id, UserIdentifier owner, CqlQuery query, ExportFormat format, Path file, SessionLease lease,
+				ListenableFuture<CqlQueryResult> result) {
+			this.id = id;
+			this.owner = owner;
+			this.query = query;
+			this.format = format;
+			this.file = file;
+			this.lease = lease;
+			this.result = result;
+		}
+
+		@Override
+		public void run() {
+			if (cancelled) {
+				finish(ExportJob.State.CANCELLED, null);
+				return;
+			}
+			startedMillis = System.currentTimeMillis();
+			state = ExportJob.State.RUNNING;
+			LOG.debug("Starting export job {}", this);
+			try (CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(
+					Files.newOutputStream(file)))) {
+				output = out;
+				CqlQueryResult res = result.get();
+				export(this, new CqlQueryResult(new ProgressIterator(res.iterator()), res.rowMetadata), out);
+				finish(ExportJob.State.COMPLETED, null);
+			} catch (CancellationException | InterruptedException e) {
+				finish(ExportJob.State.CANCELLED, null);
+			} catch (ExecutionException e) {
+				finish(ExportJob.State.FAILED, e.getCause().getMessage());
+			} catch (IOException | RuntimeException e) {
+				LOG.warn("Export job {} failed: {}", id, e.getMessage());
+				LOG.debug(e.getMessage(), e);
+				finish(ExportJob.State.FAILED, e.getMessage());
+			}
+			if (state != ExportJob.State.COMPLETED) {
+				deleteFile();
+			}
+			LOG.info("Finished export job {}", this);
+		}
+
+		private synchronized void finish(ExportJob.State finalState, String error) {
+			if (state.isFinished()) {
+				return;
+			}
+			this.error = error;
+			this.finishedMillis = System.currentTimeMillis();
+			this.state = cancelled ? ExportJob.State.CANCELLED : finalState;
+			lease.close();
+		}
+
+		void cancel() {
+			cancelled = true;
+			result.cancel(true);
+			Future<?> exec = execution;
+			if (exec != null && exec.cancel(false)) {
+				// job was still waiting in queue
+				finish(ExportJob.State.CANCELLED, null);
+			}
+		}
+
+		void deleteFile() {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				LOG.warn("Cannot delete export file {}: {}", file, e.getMessage());
+			}
+		}
+
+		ExportJob snapshot() {
+			CountingOutputStream out = output;
+			return new ExportJob(id, query, format, state, rows.get(), out == null ? 0 : out.getCount(),
+					submittedMillis, startedMillis, finishedMillis, error);
+		}
+
+		@Override
+		public String toString() {
+			return snapshot().toString();
+		}
+
+		/** Counts exported rows, limits their rate and stops reading when job has been cancelled */
+		private final class ProgressIterator implements Iterator<Row> {
+			private final Iterator<Row> rowsIt;
+
+			private final RateLimiter limiter;
+
+			ProgressIterator(Iterator<Row> rowsIt) {
+				this.rowsIt = rowsIt;
+				int maxRowsPerSecond = appConfig.exportJobs.maxRowsPerSecond;
+				this.limiter = maxRowsPerSecond > 0 ? RateLimiter.create(maxRowsPerSecond) : null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				if (cancelled || Thread.currentThread().isInterrupted()) {
+					throw new CancellationException("Export job has been cancelled: " + id);
+				}
+				return rowsIt.hasNext();
+			}
+
+			@Override
+			public Row next() {
+				if (limiter != null) {
+					limiter.acquire();
+				}
+				Row row = rowsIt.next();
+				rows.incrementAndGet();
+				return row;
+			}
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter.intern;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.cyclop.common.AppConfig;
+import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryResult;
+import org.cyclop.service.cassandra.QueryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.Row;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+
+/**
+ * Provides all rows of a result that has been already partially read - without executing its query again.
+ *
+ * @author Maciej Miklas
+ */
+@Named
+public class ExportRowsReader {
+
+	private final static Logger LOG = LoggerFactory.getLogger(ExportRowsReader.class);
+
+	@Inject
+	private QueryService queryService;
+
+	@Inject
+	private AppConfig.Cassandra cassandraConf;
+
+	/**
+	 * @param fetchedRows
+	 *            rows already read from result's iterator - they are followed by rows read from the last driver paging
+	 *            state of result. Without fetched rows result is read directly, so it can be also consumed by threads
+	 *            not bound to http session
+	 */
+	public Iterable<Row> read(CqlQuery query, CqlQueryResult result, List<Row> fetchedRows) {
+		LOG.debug("Reading {} with {} already fetched rows", query, fetchedRows.size());
+		if (fetchedRows.isEmpty()) {
+			return result;
+		}
+		Iterable<Row> rows = fetchedRows;
+		if (result.iterator().hasNext()) {
+			rows = Iterables.concat(fetchedRows, readRemaining(query, result, fetchedRows.size()));
+		}
+		return rows;
+	}
+
+	/** Continues query from the last paging state of result and skips rows fetched from the following page */
+	private Iterable<Row> readRemaining(CqlQuery query, CqlQueryResult result, int fetchedCount) {
+		Optional<String> pagingState = result.getPagingState();
+		int skip = fetchedCount - result.getPagingStateOffset();
+		if (skip < 0) {
+			LOG.warn("Paging state of {} is behind fetched rows - reading whole result again", query);
+			pagingState = Optional.empty();
+			skip = fetchedCount;
+		}
+		LOG.debug("Reading remaining rows of {}, resumed: {}, skipping: {}", query, pagingState.isPresent(), skip);
+
+		Iterator<Row> remaining = queryService.execute(query, false, cassandraConf.fetchSize, pagingState)
+				.iterator();
+		Iterators.advance(remaining, skip);
+		return () -> remaining;
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter.intern;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.util.MinimalPrettyPrinter;
+import org.cyclop.model.CqlExtendedColumnName;
+import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryResult;
+import org.cyclop.model.exception.ServiceException;
+import org.cyclop.service.cassandra.QueryService;
+import org.cyclop.service.converter.ColumnReader;
+import org.cyclop.service.converter.DataConverter;
+import org.cyclop.service.converter.DataExtractor;
+import org.cyclop.service.exporter.JsonLinesQueryResultExporter;
+import org.cyclop.validation.EnableValidation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.Row;
+import com.google.common.collect.ImmutableList;
+
+/** @author Maciej Miklas */
+@Named
+@EnableValidation
+public class JsonLinesQueryResultExporterImpl implements JsonLinesQueryResultExporter {
+
+	private final static Logger LOG = LoggerFactory.getLogger(JsonLinesQueryResultExporterImpl.class);
+
+	/** thread safe */
+	private final static JsonFactory JSON_FACTORY = new JsonFactory();
+
+	@Inject
+	private DataExtractor extractor;
+
+	@Inject
+	private DataConverter converter;
+
+	@Inject
+	private QueryService queryService;
+
+	@Inject
+	private ExportRowsReader rowsReader;
+
+	@Override
+	public void exportAsJsonLines(CqlQuery query, OutputStream output) {
+		LOG.debug("Starting JSON Lines export for {}", query);
+		CqlQueryResult result = queryService.execute(query, false);
+		write(result.rowMetadata.columns, result, output);
+	}
+
+	@Override
+	public void exportAsJsonLines(CqlQuery query, CqlQueryResult result, List<Row> fetchedRows, OutputStream output) {
+		LOG.debug("Starting JSON Lines export for displayed {}", query);
+		write(result.rowMetadata.columns, rowsReader.read(query, result, fetchedRows), output);
+	}
+
+	private void write(ImmutableList<CqlExtendedColumnName> columns, Iterable<Row> rows, OutputStream output) {
+		try (JsonGenerator gen = JSON_FACTORY.createJsonGenerator(output, JsonEncoding.UTF8)) {
+			gen.setPrettyPrinter(new LinesPrinter());
+			CellWriter[] writers = null;
+			for (Row row : rows) {
+				if (writers == null) {
+					// all rows of one result share column definitions
+					writers = extractor.createReaders(columns, row.getColumnDefinitions()).stream()
+							.map(this::createWriter).toArray(CellWriter[]::new);
+				}
+				gen.writeStartObject();
+				for (int idx = 0; idx < writers.length; idx++) {
+					gen.writeFieldName(columns.get(idx).part);
+					writers[idx].write(gen, row);
+				}
+				gen.writeEndObject();
+				gen.writeRaw('\n');
+			}
+			gen.flush();
+		} catch (IOException e) {
+			throw new ServiceException("Error during export: " + e.getMessage(), e);
+		}
+	}
+
+	/** primitive types are written without boxing, all other trough {@link #writeValue(JsonGenerator, Object)} */
+	private CellWriter createWriter(ColumnReader reader) {
+		int index = reader.index;
+		switch (reader.column.dataType.name) {
+		case ASCII:
+		case TEXT:
+		case VARCHAR:
+			return (gen, row) -> gen.writeString(row.getString(index));
+		case BIGINT:
+		case COUNTER:
+			return (gen, row) -> {
+				if (row.isNull(index)) {
+					gen.writeNull();
+				} else {
+					gen.writeNumber(row.getLong(index));
+				}
+			};
+		case INT:
+			return (gen, row) -> {
+				if (row.isNull(index)) {
+					gen.writeNull();
+				} else {
+					gen.writeNumber(row.getInt(index));
+				}
+			};
+		case FLOAT:
+			return (gen, row) -> {
+				if (row.isNull(index)) {
+					gen.writeNull();
+				} else {
+					gen.writeNumber(row.getFloat(index));
+				}
+			};
+		case DOUBLE:
+			return (gen, row) -> {
+				if (row.isNull(index)) {
+					gen.writeNull();
+				} else {
+					gen.writeNumber(row.getDouble(index));
+				}
+			};
+		case BOOLEAN:
+			return (gen, row) -> {
+				if (row.isNull(index)) {
+					gen.writeNull();
+				} else {
+					gen.writeBoolean(row.getBool(index));
+				}
+			};
+		default:
+			return (gen, row) -> writeValue(gen, reader.read(row));
+		}
+	}
+
+	private void writeValue(JsonGenerator gen, Object value) throws IOException {
+		if (value == null) {
+			gen.writeNull();
+
+		} else if (value instanceof String) {
+			gen.writeString((String) value);
+
+		} else if (value instanceof Integer) {
+			gen.writeNumber((Integer) value);
+
+		} else if (value instanceof Long) {
+			gen.writeNumber((Long) value);
+
+		} else if (value instanceof Float) {
+			gen.writeNumber((Float) value);
+
+		} else if (value instanceof Double) {
+			gen.writeNumber((Double) value);
+
+		} else if (value instanceof BigDecimal) {
+			gen.writeNumber((BigDecimal) value);
+
+		} else if (value instanceof BigInteger) {
+			gen.writeNumber((BigInteger) value);
+
+		} else if (value instanceof Boolean) {
+			gen.writeBoolean((Boolean) value);
+
+		} else if (value instanceof Date) {
+			gen.writeString(((Date) value).toInstant().toString());
+
+		} else if (value instanceof InetAddress) {
+			gen.writeString(((InetAddress) value).getHostAddress());
+
+		} else if (value instanceof ByteBuffer) {
+			ByteBuffer buf = ((ByteBuffer) value).duplicate();
+			byte[] bytes = new byte[buf.remaining()];
+			buf.get(bytes);
+			gen.writeBinary(bytes);
+
+		} else if (value instanceof Map) {
+			gen.writeStartObject();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				gen.writeFieldName(fieldName(entry.getKey()));
+				writeValue(gen, entry.getValue());
+			}
+			gen.writeEndObject();
+
+		} else if (value instanceof Collection) {
+			gen.writeStartArray();
+			for (Object element : (Collection<?>) value) {
+				writeValue(gen, element);
+			}
+			gen.writeEndArray();
+
+		} else {
+			// UUID and everything else
+			gen.writeString(converter.convert(value));
+		}
+	}
+
+	private String fieldName(Object key) {
+		if (key instanceof String) {
+			return (String) key;
+		}
+		return key instanceof Date ? ((Date) key).toInstant().toString() : converter.convert(key);
+	}
+
+	@FunctionalInterface
+	private interface CellWriter {
+		void write(JsonGenerator gen, Row row) throws IOException;
+	}
+
+	/** rows are separated by line breaks written after each row */
+	private final static class LinesPrinter extends MinimalPrettyPrinter {
+
+		@Override
+		public void writeRootValueSeparator(JsonGenerator gen) {
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter.intern;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import com.google.common.io.CharStreams;
+
+/**
+ * Collects text, which can be written to another writer after it has been completed. Text is kept in memory up to
+ * given limit, longer text is moved to temporary file. Closing the writer removes the file.
+ *
+ * @author Maciej Miklas
+ */
+@NotThreadSafe
+final class SpoolWriter extends Writer {
+
+	private final static String FILE_PREFIX = "cyclop-spool-";
+
+	private final Charset charset;
+
+	private final int memoryLimit;
+
+	private final StringBuilder memory = new StringBuilder();
+
+	private Path file;
+
+	private Writer fileOut;
+
+	SpoolWriter(Charset charset, int memoryLimit) {
+		this.charset = charset;
+		this.memoryLimit = memoryLimit;
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		if (fileOut != null) {
+			fileOut.write(cbuf, off, len);
+			return;
+		}
+		memory.append(cbuf, off, len);
+		spillIfFull();
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		if (fileOut != null) {
+			fileOut.write(str, off, len);
+			return;
+		}
+		memory.append(str, off, off + len);
+		spillIfFull();
+	}
+
+	/** writes all collected text to given writer */
+	void transferTo(Writer target) throws IOException {
+		if (fileOut == null) {
+			target.append(memory);
+			return;
+		}
+		fileOut.flush();
+		try (Reader in = Files.newBufferedReader(file, charset)) {
+			CharStreams.copy(in, target);
+		}
+	}
+
+	boolean isSpilled() {
+		return file != null;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (fileOut != null) {
+			fileOut.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		memory.setLength(0);
+		if (fileOut == null) {
+			return;
+		}
+		try {
+			fileOut.close();
+		} finally {
+			Files.deleteIfExists(file);
+			fileOut = null;
+		}
+	}
+
+	private void spillIfFull() throws IOException {
+		if (memory.length() <= memoryLimit) {
+			return;
+		}
+		file = Files.createTempFile(FILE_PREFIX, null);
+		fileOut = Files.newBufferedWriter(file, charset);
+		fileOut.append(memory);
+		memory.setLength(0);
+	}
+}
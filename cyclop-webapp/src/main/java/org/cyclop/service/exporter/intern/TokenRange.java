@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter.intern;
+
+import java.math.BigInteger;
+
+import net.jcip.annotations.Immutable;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Part of Murmur3 token ring: {@code start < token <= end}. Ring is always split in the same way for given amount of
+ * ranges, so that range can be identified by its index.
+ *
+ * @author Maciej Miklas
+ */
+@Immutable
+final class TokenRange {
+
+	private final static BigInteger RING_START = BigInteger.valueOf(Long.MIN_VALUE);
+
+	private final static BigInteger RING_SIZE = BigInteger.valueOf(Long.MAX_VALUE).subtract(RING_START);
+
+	final int index;
+
+	final long start;
+
+	final long end;
+
+	private TokenRange(int index, long start, long end) {
+		this.index = index;
+		this.start = start;
+		this.end = end;
+	}
+
+	static TokenRange of(int index, int rangesCount) {
+		if (index < 0 || index >= rangesCount) {
+			throw new IllegalArgumentException("Range " + index + " out of " + rangesCount);
+		}
+		return new TokenRange(index, bound(index, rangesCount), bound(index + 1, rangesCount));
+	}
+
+	private static long bound(int index, int rangesCount) {
+		BigInteger offset = RING_SIZE.multiply(BigInteger.valueOf(index)).divide(BigInteger.valueOf(rangesCount));
+		return RING_START.add(offset).longValue();
+	}
+
+	@Override
+	public String toString() {
+		return MoreObjects.toStringHelper(this).add("index", index).add("start", start).add("end", end).toString();
+	}
+}
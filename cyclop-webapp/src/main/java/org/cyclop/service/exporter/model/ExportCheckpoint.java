@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter.model;
+
+import java.io.Serializable;
+import java.util.BitSet;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Progress of token range export. Ranges are identified by their index, the amount of ranges is fixed when export
+ * starts for the first time, so that export can be resumed with the same split of token ring.
+ *
+ * @author Maciej Miklas
+ */
+@ThreadSafe
+public final class ExportCheckpoint implements Serializable {
+
+	private int rangesCount;
+
+	private final BitSet completed = new BitSet();
+
+	/** @return amount of ranges used by this export - given value is being used only for new export */
+	public synchronized int init(int rangesCount) {
+		if (this.rangesCount == 0) {
+			this.rangesCount = rangesCount;
+		}
+		return this.rangesCount;
+	}
+
+	public synchronized int getRangesCount() {
+		return rangesCount;
+	}
+
+	public synchronized boolean isCompleted(int range) {
+		return completed.get(range);
+	}
+
+	public synchronized void markCompleted(int range) {
+		completed.set(range);
+	}
+
+	public synchronized int getCompletedCount() {
+		return completed.cardinality();
+	}
+
+	/** @return true if export has been started and all ranges were exported */
+	public synchronized boolean isFinished() {
+		return rangesCount > 0 && completed.cardinality() == rangesCount;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return MoreObjects.toStringHelper(this).add("rangesCount", rangesCount)
+				.add("completed", completed.cardinality()).toString();
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter.model;
+
+import java.io.Serializable;
+import java.util.Optional;
+
+import javax.validation.constraints.NotNull;
+
+import net.jcip.annotations.Immutable;
+
+import org.cyclop.model.CqlQuery;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Snapshot of export running in background - it does not change when job progresses.
+ *
+ * @author Maciej Miklas
+ */
+@Immutable
+public final class ExportJob implements Serializable {
+
+	public enum State {
+		QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+		/** @return true if job will not change anymore */
+		public boolean isFinished() {
+			return this == COMPLETED || this == FAILED || this == CANCELLED;
+		}
+	}
+
+	@NotNull
+	public final String id;
+
+	@NotNull
+	public final CqlQuery query;
+
+	@NotNull
+	public final ExportFormat format;
+
+	@NotNull
+	public final State state;
+
+	/** amount of rows written so far */
+	public final long rows;
+
+	/** amount of bytes written so far */
+	public final long bytes;
+
+	public final long submittedMillis;
+
+	/** 0 if job has not started yet */
+	public final long startedMillis;
+
+	/** 0 if job has not finished yet */
+	public final long finishedMillis;
+
+	private final String error;
+
+	public ExportJob(String id, CqlQuery query, ExportFormat format, State state, long rows, long bytes,
+			long submittedMillis, long startedMillis, long finishedMillis, String error) {
+		this.id = id;
+		this.query = query;
+		this.format = format;
+		this.state = state;
+		this.rows = rows;
+		this.bytes = bytes;
+		this.submittedMillis = submittedMillis;
+		this.startedMillis = startedMillis;
+		this.finishedMillis = finishedMillis;
+		this.error = error;
+	}
+
+	/** @return reason why job has failed */
+	public Optional<String> getError() {
+		return Optional.ofNullable(error);
+	}
+
+	/** @return average throughput since job has started */
+	public long getRowsPerSecond() {
+		if (startedMillis == 0) {
+			return 0;
+		}
+		long end = finishedMillis == 0 ? System.currentTimeMillis() : finishedMillis;
+		long millis = Math.max(1, end - startedMillis);
+		return rows * 1000 / millis;
+	}
+
+	@Override
+	public String toString() {
+		return MoreObjects.toStringHelper(this).add("id", id).add("query", query).add("format", format)
+				.add("state", state).add("rows", rows).add("bytes", bytes).add("submittedMillis", submittedMillis)
+				.add("startedMillis", startedMillis).add("finishedMillis", finishedMillis).add("error", error)
+				.toString();
+	}
+}
@@ -30,6 +30,8 @@ public interface QueryImporter {
 
 	String IMPL_PARALLEL = "ParallelQueryImporter";
 
+	String IMPL_BATCH = "BatchQueryImporter";
+
 	@NotNull
 	ImportStats importScript(@NotNull InputStream input, @NotNull ResultWriter resultWriter, ImportConfig config);
 }
\ No newline at end of file
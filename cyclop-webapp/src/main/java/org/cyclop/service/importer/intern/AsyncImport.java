@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.importer.intern;
+
+import static org.cyclop.common.QueryHelper.extractSpace;
+import static org.cyclop.common.QueryHelper.isSchemaChange;
+import static org.cyclop.common.QueryHelper.keySpaceName;
+
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.cyclop.model.CqlKeySpace;
+import org.cyclop.model.CqlQuery;
+import org.cyclop.service.cassandra.intern.SessionLease;
+import org.cyclop.service.cassandra.intern.StatementFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * Executes queries of single import asynchronously. Amount of queries being executed at the same time is limited by
+ * semaphore - {@link #submit(CqlQuery)} blocks when this limit has been reached, so that reader of the script cannot
+ * run ahead. Schema changes are executed alone, after all previous queries have finished, so that following queries
+ * can rely on them.
+ *
+ * @author Maciej Miklas
+ */
+@ThreadSafe
+class AsyncImport {
+
+	private final static Logger LOG = LoggerFactory.getLogger(AsyncImport.class);
+
+	private final int maxInFlight;
+
+	private final Semaphore inFlight;
+
+	private final ImportResults results;
+
+	private final SessionLease lease;
+
+	private final StatementFactory statementFactory;
+
+	/** keyspace selected by last USE, accessed only by thread submitting queries */
+	private Optional<String> keySpace = Optional.empty();
+
+	AsyncImport(int maxInFlight, ImportResults results, SessionLease lease, StatementFactory statementFactory) {
+		this.maxInFlight = maxInFlight;
+		this.inFlight = new Semaphore(maxInFlight);
+		this.results = results;
+		this.lease = lease;
+		this.statementFactory = statementFactory;
+	}
+
+	void submit(CqlQuery query) throws InterruptedException {
+		Optional<CqlKeySpace> space = extractSpace(query);
+		if (space.isPresent()) {
+			executeUse(query, space.get());
+
+		} else if (isSchemaChange(query)) {
+			inFlight.acquire(maxInFlight);
+			try {
+				executeSync(query);
+			} finally {
+				inFlight.release(maxInFlight);
+			}
+
+		} else {
+			inFlight.acquire();
+			executeAsync(query);
+		}
+	}
+
+	/** blocks until all submitted queries have been executed */
+	void awaitCompletion() throws InterruptedException {
+		inFlight.acquire(maxInFlight);
+		inFlight.release(maxInFlight);
+	}
+
+	/** shared session cannot execute USE - following queries will be executed on session bound to keyspace */
+	private void executeUse(CqlQuery query, CqlKeySpace space) {
+		long startTime = System.currentTimeMillis();
+		try {
+			String name = keySpaceName(space);
+			lease.getSession(name);
+			keySpace = Optional.of(name);
+			results.success(query, startTime);
+		} catch (Exception e) {
+			results.failure(query, e, startTime);
+		}
+	}
+
+	private void executeSync(CqlQuery query) {
+		long startTime = System.currentTimeMillis();
+		LOG.debug("Executing schema change {}", query);
+		try {
+			Session session = getSession();
+			session.execute(statementFactory.create(lease, session, query.part));
+			lease.invalidateSchema();
+			results.success(query, startTime);
+		} catch (Exception e) {
+			results.failure(query, e, startTime);
+		}
+	}
+
+	private void executeAsync(CqlQuery query) {
+		long startTime = System.currentTimeMillis();
+		LOG.debug("Executing {}", query);
+		ResultSetFuture future;
+		try {
+			Session session = getSession();
+			future = session.executeAsync(statementFactory.create(lease, session, query.part));
+		} catch (Exception e) {
+			results.failure(query, e, startTime);
+			inFlight.release();
+			return;
+		}
+
+		Futures.addCallback(future, new FutureCallback<ResultSet>() {
+			@Override
+			public void onSuccess(ResultSet result) {
+				try {
+					results.success(query, startTime);
+				} finally {
+					inFlight.release();
+				}
+			}
+
+			@Override
+			public void onFailure(Throwable error) {
+				try {
+					results.failure(query, error, startTime);
+				} finally {
+					inFlight.release();
+				}
+			}
+		});
+	}
+
+	private Session getSession() {
+		return keySpace.isPresent() ? lease.getSession(keySpace.get()) : lease.getSession();
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.importer.intern;
+
+import static org.cyclop.common.QueryHelper.extractSpace;
+import static org.cyclop.common.QueryHelper.isSchemaChange;
+import static org.cyclop.common.QueryHelper.keySpaceName;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import org.cyclop.model.CassandraVersion;
+import org.cyclop.model.CqlKeySpace;
+import org.cyclop.model.CqlQuery;
+import org.cyclop.service.cassandra.intern.SessionLease;
+import org.cyclop.service.cassandra.intern.StatementFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Groups consecutive INSERT and UPDATE queries modifying the same partition into single UNLOGGED (or COUNTER) batch.
+ * All other queries, and queries which partition cannot be determined, are executed one by one. All statements of
+ * one batch share the same write timestamp, so a batch never contains two writes of the same cell - otherwise the
+ * last write of the script would not necessarily win.
+ *
+ * @author Maciej Miklas
+ */
+@NotThreadSafe
+class BatchImport {
+
+	private final static Logger LOG = LoggerFactory.getLogger(BatchImport.class);
+
+	private final int maxStatements;
+
+	private final ImportResults results;
+
+	private final SessionLease lease;
+
+	private final StatementFactory statementFactory;
+
+	/** batches with simple statements require native protocol v2 */
+	private final boolean batchSupported;
+
+	/** keyspace selected by last USE */
+	private Optional<String> keySpace = Optional.empty();
+
+	private Optional<Group> pending = Optional.empty();
+
+	BatchImport(int maxStatements, ImportResults results, SessionLease lease, StatementFactory statementFactory) {
+		this.maxStatements = maxStatements;
+		this.results = results;
+		this.lease = lease;
+		this.statementFactory = statementFactory;
+		this.batchSupported = lease.getCassandraVersion().min(CassandraVersion.VER_2_0);
+	}
+
+	void submit(CqlQuery query) {
+		Optional<Group> group = batchSupported ? findGroup(query) : Optional.empty();
+		if (pending.isPresent() && !pending.get().accepts(group, maxStatements)) {
+			flush();
+			if (!results.canContinue()) {
+				return;
+			}
+		}
+
+		if (group.isPresent()) {
+			if (pending.isPresent()) {
+				pending.get().merge(group.get());
+			} else {
+				pending = group;
+			}
+			return;
+		}
+
+		Optional<CqlKeySpace> space = extractSpace(query);
+		if (space.isPresent()) {
+			executeUse(query, space.get());
+		} else {
+			executeSingle(query);
+		}
+	}
+
+	/** executes queries collected so far */
+	void finish() {
+		if (results.canContinue()) {
+			flush();
+		}
+	}
+
+	private void flush() {
+		if (!pending.isPresent()) {
+			return;
+		}
+		Group group = pending.get();
+		pending = Optional.empty();
+
+		if (group.queries.size() == 1) {
+			executeSingle(group.queries.get(0));
+			return;
+		}
+
+		LOG.debug("Executing batch of {} queries for {}", group.queries.size(), group.partition);
+		long startTime = System.currentTimeMillis();
+		try {
+			Session session = getSession();
+			BatchStatement batch = new BatchStatement(group.type);
+			for (CqlQuery query : group.queries) {
+				batch.add(statementFactory.create(lease, session, query.part));
+			}
+			session.execute(batch);
+			group.queries.forEach(query -> results.success(query, startTime));
+
+		} catch (InvalidQueryException e) {
+			// batch has been rejected as whole, so execute queries one by one to find out which one is incorrect
+			LOG.debug("Batch rejected: {} - executing its queries one by one", e.getMessage());
+			group.queries.forEach(this::executeSingle);
+
+		} catch (Exception e) {
+			group.queries.forEach(query -> results.failure(query, e, startTime));
+		}
+	}
+
+	/** shared session cannot execute USE - following queries will be executed on session bound to keyspace */
+	private void executeUse(CqlQuery query, CqlKeySpace space) {
+		long startTime = System.currentTimeMillis();
+		try {
+			String name = keySpaceName(space);
+			lease.getSession(name);
+			keySpace = Optional.of(name);
+			results.success(query, startTime);
+		} catch (Exception e) {
+			results.failure(query, e, startTime);
+		}
+	}
+
+	private void executeSingle(CqlQuery query) {
+		LOG.debug("Executing {}", query);
+		long startTime = System.currentTimeMillis();
+		try {
+			Session session = getSession();
+			session.execute(statementFactory.create(lease, session, query.part));
+			if (isSchemaChange(query)) {
+				lease.invalidateSchema();
+			}
+			results.success(query, startTime);
+		} catch (Exception e) {
+			results.failure(query, e, startTime);
+		}
+	}
+
+	/** @return empty if query cannot be batched */
+	private Optional<Group> findGroup(CqlQuery query) {
+		Optional<PartitionTarget> target = PartitionTarget.parse(query);
+		if (!target.isPresent()) {
+			return Optional.empty();
+		}
+		// keyspace from query is CQL identifier - name from USE has to be quoted, because it's case sensitive
+		Optional<String> targetSpace = target.get().keySpace.isPresent() ? target.get().keySpace : keySpace
+				.map(Metadata::quote);
+		if (!targetSpace.isPresent()) {
+			return Optional.empty();
+		}
+
+		KeyspaceMetadata spaceMeta = lease.getSession().getCluster().getMetadata().getKeyspace(targetSpace.get());
+		TableMetadata table = spaceMeta == null ? null : spaceMeta.getTable(target.get().table);
+		if (table == null) {
+			return Optional.empty();
+		}
+
+		ImmutableList.Builder<Object> partition = ImmutableList.builder();
+		partition.add(spaceMeta.getName(), table.getName());
+		for (ColumnMetadata column : table.getPartitionKey()) {
+			Optional<Object> value = parseValue(target.get(), column);
+			if (!value.isPresent()) {
+				return Optional.empty();
+			}
+			partition.add(value.get());
+		}
+
+		// cell within partition is identified by values of clustering columns and column name
+		List<Object> row = new ArrayList<>();
+		for (ColumnMetadata column : table.getClusteringColumns()) {
+			Optional<Object> value = parseValue(target.get(), column);
+			if (!value.isPresent()) {
+				return Optional.empty();
+			}
+			row.add(value.get());
+		}
+		Set<ImmutableList<Object>> cells = new HashSet<>();
+		for (String column : target.get().columns) {
+			if (table.getPrimaryKey().stream().noneMatch(c -> c.getName().equals(column))) {
+				cells.add(ImmutableList.builder().addAll(row).add(column).build());
+			}
+		}
+
+		boolean counter = table.getColumns().stream().anyMatch(c -> c.getType().getName() == DataType.Name.COUNTER);
+		return Optional.of(new Group(partition.build(), counter ? BatchStatement.Type.COUNTER
+				: BatchStatement.Type.UNLOGGED, cells, query));
+	}
+
+	/**
+	 * @return value parsed from literal, so that the same value written in different ways - like upper and lower case
+	 *         uuid, or 1 and 01 - is equal. Empty if query has no plain literal for given column or it cannot be
+	 *         parsed
+	 */
+	private static Optional<Object> parseValue(PartitionTarget target, ColumnMetadata column) {
+		String literal = target.values.get(column.getName());
+		if (literal == null) {
+			return Optional.empty();
+		}
+		try {
+			return Optional.ofNullable(column.getType().parse(literal));
+		} catch (InvalidTypeException e) {
+			LOG.trace("Cannot parse {} as {}: {}", literal, column.getType(), e.getMessage());
+			return Optional.empty();
+		}
+	}
+
+	private Session getSession() {
+		return keySpace.isPresent() ? lease.getSession(keySpace.get()) : lease.getSession();
+	}
+
+	/** queries modifying single partition */
+	private final static class Group {
+
+		/** keyspace, table and parsed values of partition key */
+		private final ImmutableList<Object> partition;
+
+		private final BatchStatement.Type type;
+
+		/** parsed values of clustering columns and column name of each modified cell */
+		private final Set<ImmutableList<Object>> cells;
+
+		private final List<CqlQuery> queries = new ArrayList<>();
+
+		Group(ImmutableList<Object> partition, BatchStatement.Type type, Set<ImmutableList<Object>> cells,
+				CqlQuery query) {
+			this.partition = partition;
+			this.type = type;
+			this.cells = cells;
+			queries.add(query);
+		}
+
+		/** cell modified twice within one batch would have the same timestamp for both writes */
+		boolean accepts(Optional<Group> other, int maxStatements) {
+			return other.isPresent() && partition.equals(other.get().partition) && queries.size() < maxStatements
+					&& Collections.disjoint(cells, other.get().cells);
+		}
+
+		void merge(Group other) {
+			queries.addAll(other.queries);
+			cells.addAll(other.cells);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.importer.intern;
+
+import java.util.Scanner;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.commons.lang.StringUtils;
+import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryType;
+import org.cyclop.model.QueryHistory;
+import org.cyclop.service.cassandra.intern.CassandraSessionImpl;
+import org.cyclop.service.cassandra.intern.StatementFactory;
+import org.cyclop.service.importer.QueryImporter;
+import org.cyclop.service.importer.ResultWriter;
+import org.cyclop.service.importer.model.ImportConfig;
+import org.cyclop.service.queryprotocoling.HistoryService;
+import org.cyclop.validation.EnableValidation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes script in order, but consecutive INSERT and UPDATE queries modifying the same partition are sent to
+ * Cassandra as single batch - up to {@link org.cyclop.common.AppConfig.QueryImport#maxBatchStatements} queries in
+ * one request.
+ *
+ * @author Maciej Miklas
+ */
+@Named(QueryImporter.IMPL_BATCH)
+@EnableValidation
+public class BatchQueryImporter extends AbstractImporter {
+
+	private final static Logger LOG = LoggerFactory.getLogger(BatchQueryImporter.class);
+
+	@Inject
+	protected HistoryService historyService;
+
+	@Inject
+	private CassandraSessionImpl session;
+
+	@Inject
+	private StatementFactory statementFactory;
+
+	@Override
+	void execImport(Scanner scanner, ResultWriter resultWriter, StatsCollector status, ImportConfig iconfig) {
+		QueryHistory history = historyService.read();
+		ImportResults results = new ImportResults(status, iconfig, resultWriter, history);
+		BatchImport batchImport = new BatchImport(conf.queryImport.maxBatchStatements, results, session.getLease(),
+				statementFactory);
+
+		while (scanner.hasNext()) {
+			if (!results.canContinue()) {
+				LOG.debug("Breaking import due to query execution error");
+				break;
+			}
+			String nextStr = StringUtils.trimToNull(scanner.next());
+			if (nextStr == null) {
+				continue;
+			}
+			batchImport.submit(new CqlQuery(CqlQueryType.UNKNOWN, nextStr));
+		}
+		batchImport.finish();
+
+		if (iconfig.isUpdateHistory()) {
+			historyService.store(history);
+		}
+	}
+}
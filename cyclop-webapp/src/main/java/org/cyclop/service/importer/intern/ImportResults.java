@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.importer.intern;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.cyclop.model.CqlQuery;
+import org.cyclop.model.QueryEntry;
+import org.cyclop.model.QueryHistory;
+import org.cyclop.model.exception.QueryException;
+import org.cyclop.service.importer.ResultWriter;
+import org.cyclop.service.importer.model.ImportConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.exceptions.DriverException;
+
+/**
+ * Reports result of each imported query to {@link ResultWriter}, {@link StatsCollector} and history.
+ *
+ * @author Maciej Miklas
+ */
+@ThreadSafe
+final class ImportResults {
+
+	private final static Logger LOG = LoggerFactory.getLogger(ImportResults.class);
+
+	private final StatsCollector status;
+
+	private final ImportConfig iconfig;
+
+	private final ResultWriter resultWriter;
+
+	private final QueryHistory history;
+
+	ImportResults(StatsCollector status, ImportConfig iconfig, ResultWriter resultWriter, QueryHistory history) {
+		this.status = status;
+		this.iconfig = iconfig;
+		this.resultWriter = resultWriter;
+		this.history = history;
+	}
+
+	boolean canContinue() {
+		int errors = status.error.get();
+		boolean can = errors == 0 || (errors > 0 && iconfig.isContinueWithErrors());
+		return can;
+	}
+
+	void success(CqlQuery query, long startTime) {
+		long runTime = System.currentTimeMillis() - startTime;
+		if (iconfig.isUpdateHistory()) {
+			QueryEntry entry = new QueryEntry(query, runTime);
+			history.add(entry);
+		}
+		resultWriter.success(query, runTime);
+		status.success.getAndIncrement();
+	}
+
+	void failure(CqlQuery query, Throwable error, long startTime) {
+		long runTime = System.currentTimeMillis() - startTime;
+		if (error instanceof DriverException) {
+			LOG.debug(error.getMessage());
+			LOG.trace(error.getMessage(), error);
+
+			status.error.getAndIncrement();
+			resultWriter.error(query, new QueryException(error.getMessage(), (DriverException) error), runTime);
+		} else {
+			LOG.info("Unknown error while executing import for: " + query + ", Msg:" + error.getMessage());
+			LOG.trace(error.getMessage(), error);
+
+			resultWriter.unknownError(query, asException(error), runTime);
+			status.error.getAndIncrement();
+		}
+	}
+
+	private static Exception asException(Throwable error) {
+		return error instanceof Exception ? (Exception) error : new IllegalStateException(error.getMessage(), error);
+	}
+}
@@ -16,11 +16,7 @@
  */
 package org.cyclop.service.importer.intern;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Scanner;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -30,7 +26,8 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.cyclop.model.CqlQuery;
 import org.cyclop.model.CqlQueryType;
 import org.cyclop.model.QueryHistory;
-import org.cyclop.service.cassandra.CassandraSession;
+import org.cyclop.service.cassandra.intern.CassandraSessionImpl;
+import org.cyclop.service.cassandra.intern.StatementFactory;
 import org.cyclop.service.importer.QueryImporter;
 import org.cyclop.service.importer.ResultWriter;
 import org.cyclop.service.importer.model.ImportConfig;
@@ -39,10 +36,13 @@ import org.cyclop.validation.EnableValidation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.datastax.driver.core.Session;
-import com.google.common.collect.ImmutableList;
-
-/** @author Maciej Miklas */
+/**
+ * Script is being read while already read queries are executed asynchronously. Amount of queries executed at the
+ * same time is limited, so that only few of them are held in memory regardless of script size and the cluster is not
+ * overloaded.
+ *
+ * @author Maciej Miklas
+ */
 @Named(QueryImporter.IMPL_PARALLEL)
 @EnableValidation
 public class ParallelQueryImporter extends AbstractImporter {
@@ -53,96 +53,58 @@ public class ParallelQueryImporter extends AbstractImporter {
 	protected HistoryService historyService;
 
 	@Inject
-	private CassandraSession session;
+	private CassandraSessionImpl session;
 
 	@Inject
-	@Named("importExecutor")
-	private ExecutorService executor;
+	private StatementFactory statementFactory;
 
 	@Override
 	void execImport(Scanner scanner, ResultWriter resultWriter, StatsCollector status, ImportConfig iconfig) {
-		ImmutableList<CqlQuery> queries = parse(scanner);
-		if (queries.isEmpty()) {
-			LOG.debug("No data to import");
-			return;
-		}
-
 		QueryHistory history = historyService.read();
-
-		List<Future<Void>> futures = startWorkers(queries, resultWriter, status, iconfig, history);
-		waitForImport(futures);
+		int maxInFlight = iconfig.getMaxInFlight() > 0 ? iconfig.getMaxInFlight() : conf.queryImport.maxInFlight;
+		LOG.debug("Starting parallel import with {} queries in flight", maxInFlight);
+
+		ImportResults results = new ImportResults(status, iconfig, resultWriter, history);
+		AsyncImport asyncImport = new AsyncImport(maxInFlight, results, session.getLease(), statementFactory);
+		try {
+			submitQueries(scanner, results, asyncImport);
+			asyncImport.awaitCompletion();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOG.warn("Import interrupted", e);
+		}
 
 		if (iconfig.isUpdateHistory()) {
 			historyService.store(history);
 		}
 	}
 
-	private List<Future<Void>> startWorkers(ImmutableList<CqlQuery> queries, ResultWriter resultWriter,
-			StatsCollector status, ImportConfig iconfig, QueryHistory history) {
-
-		final int queriesSize = queries.size();
-		final int proThread = Math.max(1, queriesSize / conf.queryImport.maxThreadsProImport);
-
-		LOG.debug("Starting parallel import for {} queries, {} pro thread", queriesSize, proThread);
-		Session cassSession = session.getSession();
-
-		List<Future<Void>> futures = new ArrayList<>();
-		int startIndex = 0;
-		int remaining = queriesSize;
-		while (remaining > 0) {
-			remaining -= proThread;
-			int amount = remaining > 0 ? proThread : remaining + proThread;
-
-			LOG.debug("Starting thread with start index: {} and amount: {}, remaining: {}", startIndex, amount,
-					remaining);
-
-			ImportWorker task = new ImportWorker(startIndex, amount, queries, status, iconfig, resultWriter,
-					cassSession, history);
-
-			Future<Void> future = executor.submit(task);
-			futures.add(future);
-			startIndex += amount;
-		}
-		return futures;
-	}
-
-	private void waitForImport(List<Future<Void>> futures) {
-		LOG.debug("Tasks submitted - waiting for results");
-		for (Future<Void> future : futures) {
-			try {
-				future.get();
-			} catch (InterruptedException e) {
-				Thread.interrupted();
-				LOG.warn("Import executor interrupted", e);
-			} catch (Exception e) {
-				LOG.error("Import executor error", e);
-			}
-		}
-	}
-
-	private ImmutableList<CqlQuery> parse(Scanner scanner) {
+	private void submitQueries(Scanner scanner, ImportResults results, AsyncImport asyncImport)
+			throws InterruptedException {
 		StopWatch timer = null;
 		if (LOG.isDebugEnabled()) {
 			timer = new StopWatch();
 			timer.start();
 		}
 
-		ImmutableList.Builder<CqlQuery> build = ImmutableList.builder();
+		int read = 0;
 		while (scanner.hasNext()) {
+			if (!results.canContinue()) {
+				LOG.debug("Breaking import due to query execution error");
+				break;
+			}
 			String nextStr = StringUtils.trimToNull(scanner.next());
 			if (nextStr == null) {
 				continue;
 			}
-			CqlQuery query = new CqlQuery(CqlQueryType.UNKNOWN, nextStr);
-			build.add(query);
+			asyncImport.submit(new CqlQuery(CqlQueryType.UNKNOWN, nextStr));
+			read++;
 		}
-		ImmutableList<CqlQuery> res = build.build();
 
 		if (LOG.isDebugEnabled()) {
 			timer.stop();
-			LOG.debug("Parsed {} queries in {}", res.size(), timer.toString());
+			LOG.debug("Submitted {} queries in {}", read, timer.toString());
 		}
-		return res;
 	}
 
 }
@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.importer.intern;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import net.jcip.annotations.Immutable;
+
+import org.cyclop.model.CqlQuery;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Table and column values of INSERT or UPDATE query - it is used to find out whether queries are modifying the same
+ * partition. Values are known only for INSERT columns and for equality conditions of UPDATE's WHERE clause, and only
+ * if they are plain literals - values created by functions, bind markers or collections are skipped. Modified columns
+ * are INSERT columns and columns assigned in UPDATE's SET clause.
+ *
+ * @author Maciej Miklas
+ */
+@Immutable
+final class PartitionTarget {
+
+	/** keyspace name as found in query, empty if query does not contain it */
+	final Optional<String> keySpace;
+
+	/** table name as found in query - it can be quoted */
+	final String table;
+
+	/** column name (case sensitive, without quotes) to literal */
+	final ImmutableMap<String, String> values;
+
+	/** names (case sensitive, without quotes) of modified columns - also those with unknown values */
+	final ImmutableSet<String> columns;
+
+	private PartitionTarget(Optional<String> keySpace, String table, ImmutableMap<String, String> values,
+			ImmutableSet<String> columns) {
+		this.keySpace = keySpace;
+		this.table = table;
+		this.values = values;
+		this.columns = columns;
+	}
+
+	/** @return empty if query is not INSERT or UPDATE, or it cannot be parsed */
+	static Optional<PartitionTarget> parse(CqlQuery query) {
+		List<String> tokens = tokenize(query.part);
+		if (tokens.size() < 2 || tokens.stream().anyMatch(t -> t.equalsIgnoreCase("if"))) {
+			// conditional updates cannot be batched together with other queries
+			return Optional.empty();
+		}
+
+		String first = tokens.get(0);
+		if (first.equalsIgnoreCase("insert") && tokens.get(1).equalsIgnoreCase("into")) {
+			return parseInsert(tokens);
+		}
+		if (first.equalsIgnoreCase("update")) {
+			return parseUpdate(tokens);
+		}
+		return Optional.empty();
+	}
+
+	/** INSERT INTO [ks.]table (col, ...) VALUES (val, ...) ... */
+	private static Optional<PartitionTarget> parseInsert(List<String> tokens) {
+		int idx = 2;
+		int tableEnd = findTableEnd(tokens, idx);
+		if (tableEnd == -1 || tableEnd >= tokens.size() || !tokens.get(tableEnd).equals("(")) {
+			return Optional.empty();
+		}
+
+		int columnsEnd = findClosing(tokens, tableEnd);
+		if (columnsEnd == -1 || columnsEnd + 2 >= tokens.size()
+				|| !tokens.get(columnsEnd + 1).equalsIgnoreCase("values") || !tokens.get(columnsEnd + 2).equals("(")) {
+			return Optional.empty();
+		}
+		int valuesEnd = findClosing(tokens, columnsEnd + 2);
+		if (valuesEnd == -1) {
+			return Optional.empty();
+		}
+
+		List<List<String>> columns = split(tokens, tableEnd + 1, columnsEnd);
+		List<List<String>> values = split(tokens, columnsEnd + 3, valuesEnd);
+		if (columns.size() != values.size()) {
+			return Optional.empty();
+		}
+
+		Map<String, String> valuesBuild = new LinkedHashMap<>();
+		ImmutableSet.Builder<String> columnsBuild = ImmutableSet.builder();
+		for (int colIdx = 0; colIdx < columns.size(); colIdx++) {
+			List<String> column = columns.get(colIdx);
+			if (column.size() != 1) {
+				return Optional.empty();
+			}
+			String name = columnName(column.get(0));
+			columnsBuild.add(name);
+
+			Optional<String> value = literal(values.get(colIdx));
+			if (value.isPresent()) {
+				valuesBuild.put(name, value.get());
+			}
+		}
+		return Optional.of(create(tokens, idx, tableEnd, ImmutableMap.copyOf(valuesBuild), columnsBuild.build()));
+	}
+
+	/** UPDATE [ks.]table [USING ...] SET ... WHERE col = val [AND col = val] */
+	private static Optional<PartitionTarget> parseUpdate(List<String> tokens) {
+		int idx = 1;
+		int tableEnd = findTableEnd(tokens, idx);
+		if (tableEnd == -1) {
+			return Optional.empty();
+		}
+
+		int where = -1;
+		for (int tIdx = tableEnd; tIdx < tokens.size(); tIdx++) {
+			if (tokens.get(tIdx).equalsIgnoreCase("where")) {
+				where = tIdx;
+				break;
+			}
+		}
+		if (where == -1) {
+			return Optional.empty();
+		}
+
+		int set = -1;
+		for (int tIdx = tableEnd; tIdx < where; tIdx++) {
+			if (tokens.get(tIdx).equalsIgnoreCase("set")) {
+				set = tIdx;
+				break;
+			}
+		}
+		if (set == -1) {
+			return Optional.empty();
+		}
+
+		// assignments like: col = val, col = col + val or col[key] = val
+		ImmutableSet.Builder<String> columnsBuild = ImmutableSet.builder();
+		for (List<String> assignment : split(tokens, set + 1, where)) {
+			if (assignment.isEmpty() || !isName(assignment.get(0))) {
+				return Optional.empty();
+			}
+			columnsBuild.add(columnName(assignment.get(0)));
+		}
+
+		Map<String, String> valuesBuild = new LinkedHashMap<>();
+		List<String> condition = new ArrayList<>();
+		for (int tIdx = where + 1; tIdx <= tokens.size(); tIdx++) {
+			if (tIdx == tokens.size() || tokens.get(tIdx).equalsIgnoreCase("and")) {
+				if (condition.size() > 2 && condition.get(1).equals("=")) {
+					Optional<String> value = literal(condition.subList(2, condition.size()));
+					if (value.isPresent()) {
+						valuesBuild.put(columnName(condition.get(0)), value.get());
+					}
+				}
+				condition.clear();
+			} else {
+				condition.add(tokens.get(tIdx));
+			}
+		}
+		return Optional.of(create(tokens, idx, tableEnd, ImmutableMap.copyOf(valuesBuild), columnsBuild.build()));
+	}
+
+	private static PartitionTarget create(List<String> tokens, int tableStart, int tableEnd,
+			ImmutableMap<String, String> values, ImmutableSet<String> columns) {
+		Optional<String> keySpace = Optional.empty();
+		String table = tokens.get(tableStart);
+		if (tableEnd - tableStart == 3) {
+			keySpace = Optional.of(table);
+			table = tokens.get(tableStart + 2);
+		}
+		return new PartitionTarget(keySpace, table, values, columns);
+	}
+
+	/** @return index of first token after table name */
+	private static int findTableEnd(List<String> tokens, int start) {
+		if (start >= tokens.size() || !isName(tokens.get(start))) {
+			return -1;
+		}
+		if (start + 2 < tokens.size() && tokens.get(start + 1).equals(".")) {
+			return isName(tokens.get(start + 2)) ? start + 3 : -1;
+		}
+		return start + 1;
+	}
+
+	private static int findClosing(List<String> tokens, int open) {
+		int depth = 0;
+		for (int idx = open; idx < tokens.size(); idx++) {
+			String token = tokens.get(idx);
+			if (token.equals("(") || token.equals("{") || token.equals("[")) {
+				depth++;
+			} else if (token.equals(")") || token.equals("}") || token.equals("]")) {
+				depth--;
+				if (depth == 0) {
+					return token.equals(")") ? idx : -1;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/** splits tokens between start and end (exclusive) on top level commas */
+	private static List<List<String>> split(List<String> tokens, int start, int end) {
+		List<List<String>> parts = new ArrayList<>();
+		List<String> part = new ArrayList<>();
+		int depth = 0;
+		for (int idx = start; idx < end; idx++) {
+			String token = tokens.get(idx);
+			if (token.equals(",") && depth == 0) {
+				parts.add(part);
+				part = new ArrayList<>();
+				continue;
+			}
+			if (token.equals("(") || token.equals("{") || token.equals("[")) {
+				depth++;
+			} else if (token.equals(")") || token.equals("}") || token.equals("]")) {
+				depth--;
+			}
+			part.add(token);
+		}
+		parts.add(part);
+		return parts;
+	}
+
+	/** plain literal: string, number, uuid, blob or boolean - numbers like 1.5 consist of three tokens */
+	private static Optional<String> literal(List<String> tokens) {
+		if (tokens.isEmpty() || tokens.size() > 3) {
+			return Optional.empty();
+		}
+		StringBuilder buf = new StringBuilder();
+		for (String token : tokens) {
+			char first = token.charAt(0);
+			boolean word = Character.isLetterOrDigit(first) || first == '-' || first == '_';
+			if (!word && first != '\'' && !token.equals(".")) {
+				return Optional.empty();
+			}
+			buf.append(token);
+		}
+		return Optional.of(buf.toString());
+	}
+
+	private static boolean isName(String token) {
+		char first = token.charAt(0);
+		return Character.isLetter(first) || first == '"';
+	}
+
+	private static String columnName(String token) {
+		if (token.startsWith("\"")) {
+			return token.substring(1, token.length() - 1).replace("\"\"", "\"");
+		}
+		return token.toLowerCase();
+	}
+
+	/**
+	 * Splits query into: quoted strings, quoted names, words (names, numbers, uuids) and single characters. Numbers
+	 * with fraction are split on the dot, just like keyspace and table name.
+	 */
+	static List<String> tokenize(String cql) {
+		List<String> tokens = new ArrayList<>();
+		int idx = 0;
+		while (idx < cql.length()) {
+			char chr = cql.charAt(idx);
+			int end;
+			if (Character.isWhitespace(chr) || chr == ';') {
+				idx++;
+				continue;
+			} else if (chr == '\'' || chr == '"') {
+				end = idx + 1;
+				while (end < cql.length()) {
+					if (cql.charAt(end) == chr) {
+						if (end + 1 < cql.length() && cql.charAt(end + 1) == chr) {
+							end += 2;
+							continue;
+						}
+						break;
+					}
+					end++;
+				}
+				end = Math.min(end + 1, cql.length());
+			} else if (isWordChar(chr)) {
+				end = idx + 1;
+				while (end < cql.length() && isWordChar(cql.charAt(end))) {
+					end++;
+				}
+			} else {
+				end = idx + 1;
+			}
+			tokens.add(cql.substring(idx, end));
+			idx = end;
+		}
+		return tokens;
+	}
+
+	private static boolean isWordChar(char chr) {
+		return Character.isLetterOrDigit(chr) || chr == '_' || chr == '-';
+	}
+
+	@Override
+	public String toString() {
+		return MoreObjects.toStringHelper(this).add("keySpace", keySpace).add("table", table).add("values", values)
+				.add("columns", columns).toString();
+	}
+}
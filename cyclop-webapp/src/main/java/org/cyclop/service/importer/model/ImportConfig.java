@@ -25,6 +25,9 @@ public class ImportConfig {
 
 	private boolean continueWithErrors = false;
 
+	/** 0 - use {@link org.cyclop.common.AppConfig.QueryImport#maxInFlight} */
+	private int maxInFlight = 0;
+
 	public ImportConfig withUpdateHistory(boolean updateHistory) {
 		this.updateHistory = updateHistory;
 		return this;
@@ -35,6 +38,11 @@ public class ImportConfig {
 		return this;
 	}
 
+	public ImportConfig withMaxInFlight(int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+		return this;
+	}
+
 	public boolean isUpdateHistory() {
 		return updateHistory;
 	}
@@ -43,9 +51,13 @@ public class ImportConfig {
 		return continueWithErrors;
 	}
 
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
 	@Override
 	public String toString() {
 		return MoreObjects.toStringHelper(this).add("updateHistory", updateHistory)
-				.add("continueWithErrors", continueWithErrors).toString();
+				.add("continueWithErrors", continueWithErrors).add("maxInFlight", maxInFlight).toString();
 	}
 }
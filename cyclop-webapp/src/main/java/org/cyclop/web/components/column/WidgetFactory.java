@@ -85,8 +85,7 @@ public class WidgetFactory {
 
 	private Optional<Component> createForDataType(Row row, Optional<CqlPartitionKey> partitionKey,
 			CqlExtendedColumnName column,			String componentId) {
-		String partLc = column.partLc;
-		if (row.isNull(partLc)) {
+		if (extractor.isNull(row, column)) {
 			return Optional.empty();
 		}
 
@@ -28,6 +28,7 @@ import org.cyclop.common.AppConfig;
 import org.cyclop.web.pages.authenticate.AuthenticationPage;
 import org.cyclop.web.pages.parent.ParentPage;
 import org.cyclop.web.panels.about.AboutPanel;
+import org.cyclop.web.panels.exportjobs.ExportJobsPanel;
 import org.cyclop.web.panels.history.HistoryPanel;
 import org.cyclop.web.panels.queryeditor.QueryEditorPanel;
 import org.cyclop.web.panels.queryimport.QueryImportPanel;
@@ -54,6 +55,7 @@ public class MainPage extends ParentPage {
 		initQueryEditorTab(params, tabSupport);
 		initHistoryTab(tabSupport);
 		initQueryImportTab(tabSupport);
+		initExportJobsTab(tabSupport);
 		initAboutTab(tabSupport);
 		initLogout();
 	}
@@ -75,6 +77,12 @@ public class MainPage extends ParentPage {
 		tabSupport.registerSaticTab(".cq-tabQueryImport");
 	}
 
+	private void initExportJobsTab(TabHelper tabSupport) {
+		ExportJobsPanel exportJobsPanel = new ExportJobsPanel("exportJobsPanel");
+		add(exportJobsPanel);
+		tabSupport.registerReloadableTab(exportJobsPanel, ".cq-tabExportJobs");
+	}
+
 	private void initQueryEditorTab(PageParameters params, TabHelper tabSupport) {
 		QueryEditorPanel queryEditorPanel = new QueryEditorPanel("queryEditorPanel", params);
 		add(queryEditorPanel);
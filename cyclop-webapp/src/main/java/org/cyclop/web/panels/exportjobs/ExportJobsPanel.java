@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.web.panels.exportjobs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+
+import javax.inject.Inject;
+
+import org.apache.wicket.AttributeModifier;
+import org.apache.wicket.ajax.AbstractDefaultAjaxBehavior;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.AjaxSelfUpdatingTimerBehavior;
+import org.apache.wicket.ajax.markup.html.AjaxFallbackLink;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.util.time.Duration;
+import org.cyclop.service.converter.DataConverter;
+import org.cyclop.service.exporter.ExportJobService;
+import org.cyclop.service.exporter.model.ExportFormat;
+import org.cyclop.service.exporter.model.ExportJob;
+import org.cyclop.web.common.AjaxReloadSupport;
+import org.cyclop.web.panels.queryeditor.export.ExportDownloader;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+
+/** @author Maciej Miklas */
+public class ExportJobsPanel extends Panel implements AjaxReloadSupport {
+
+	private final static Duration REFRESH_INTERVAL = Duration.seconds(2);
+
+	@Inject
+	private ExportJobService exportJobService;
+
+	@Inject
+	private DataConverter converter;
+
+	private AbstractDefaultAjaxBehavior browserCallback;
+
+	private AjaxSelfUpdatingTimerBehavior refresh;
+
+	private WebMarkupContainer jobsTable;
+
+	private final JobsModel jobsModel = new JobsModel();
+
+	private final JobDownloader downloader = new JobDownloader();
+
+	public ExportJobsPanel(String id) {
+		super(id);
+	}
+
+	@Override
+	protected void onInitialize() {
+		super.onInitialize();
+		add(downloader);
+		initJobsTable();
+		initBrowserCallback();
+	}
+
+	@Override
+	public String getReloadCallbackUrl() {
+		return browserCallback.getCallbackUrl().toString();
+	}
+
+	@Override
+	public String getRemovableContentCssRef() {
+		return ".cq-exportJobsContainer";
+	}
+
+	private void initBrowserCallback() {
+		browserCallback = new AbstractDefaultAjaxBehavior() {
+
+			@Override
+			protected void respond(final AjaxRequestTarget target) {
+				reload(target);
+			}
+		};
+		add(browserCallback);
+	}
+
+	private void initJobsTable() {
+		jobsTable = new WebMarkupContainer("jobsTable");
+		jobsTable.setOutputMarkupId(true);
+		add(jobsTable);
+
+		// progress is being refreshed only while some jobs are not finished
+		refresh = new AjaxSelfUpdatingTimerBehavior(REFRESH_INTERVAL) {
+			@Override
+			protected void onPostProcessTarget(AjaxRequestTarget target) {
+				if (!jobsModel.hasActiveJobs()) {
+					stop(target);
+				}
+			}
+		};
+		jobsTable.add(refresh);
+
+		ListView<ExportJob> jobRows = new ListView<ExportJob>("jobRow", jobsModel) {
+
+			@Override
+			protected void populateItem(ListItem<ExportJob> item) {
+				ExportJob job = item.getModelObject();
+				item.add(new Label("submitted", converter.convert(new Date(job.submittedMillis))));
+				item.add(new Label("format", job.format.name()));
+
+				Label state = new Label("state", job.state.name());
+				job.getError().ifPresent(error -> state.add(new AttributeModifier("title", error)));
+				item.add(state);
+
+				item.add(new Label("rows", Long.toString(job.rows)));
+				item.add(new Label("bytes", Long.toString(job.bytes)));
+				item.add(new Label("rowsPerSecond", Long.toString(job.getRowsPerSecond())));
+				item.add(new Label("query", job.query.part));
+				populateActions(item, job);
+			}
+		};
+		jobsTable.add(jobRows);
+	}
+
+	private void populateActions(ListItem<ExportJob> item, ExportJob job) {
+		AjaxFallbackLink<Void> download = new AjaxFallbackLink<Void>("download") {
+			@Override
+			public void onClick(AjaxRequestTarget target) {
+				downloader.initiateDownload(target, job);
+			}
+		};
+		download.setVisible(job.state == ExportJob.State.COMPLETED);
+		item.add(download);
+
+		AjaxFallbackLink<Void> cancel = new AjaxFallbackLink<Void>("cancel") {
+			@Override
+			public void onClick(AjaxRequestTarget target) {
+				exportJobService.cancel(job.id);
+				reload(target);
+			}
+		};
+		cancel.setVisible(!job.state.isFinished());
+		item.add(cancel);
+
+		AjaxFallbackLink<Void> remove = new AjaxFallbackLink<Void>("remove") {
+			@Override
+			public void onClick(AjaxRequestTarget target) {
+				exportJobService.remove(job.id);
+				reload(target);
+			}
+		};
+		item.add(remove);
+	}
+
+	private void reload(AjaxRequestTarget target) {
+		target.add(jobsTable);
+		if (refresh.isStopped()) {
+			refresh.restart(target);
+		}
+	}
+
+	private final class JobsModel extends LoadableDetachableModel<ImmutableList<ExportJob>> {
+
+		@Override
+		protected ImmutableList<ExportJob> load() {
+			return exportJobService.getJobs();
+		}
+
+		boolean hasActiveJobs() {
+			return getObject().stream().anyMatch(job -> !job.state.isFinished());
+		}
+	}
+
+	private final class JobDownloader extends ExportDownloader {
+		private String jobId;
+
+		private ExportFormat format = ExportFormat.CSV;
+
+		void initiateDownload(AjaxRequestTarget target, ExportJob job) {
+			jobId = job.id;
+			format = job.format;
+			initiateDownload(target);
+		}
+
+		@Override
+		protected boolean hasData() {
+			return jobId != null;
+		}
+
+		@Override
+		protected ExportFormat getFormat() {
+			return format;
+		}
+
+		@Override
+		protected void export(OutputStream output) throws IOException {
+			try (InputStream in = exportJobService.openResult(jobId)) {
+				ByteStreams.copy(in, output);
+			}
+		}
+	}
+}
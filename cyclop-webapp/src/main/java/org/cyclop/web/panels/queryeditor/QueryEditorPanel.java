@@ -16,9 +16,13 @@
  */
 package org.cyclop.web.panels.queryeditor;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
 import javax.inject.Inject;
 
 import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AbstractDefaultAjaxBehavior;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.authroles.authorization.strategies.role.Roles;
 import org.apache.wicket.authroles.authorization.strategies.role.annotations.AuthorizeInstantiation;
@@ -36,7 +40,11 @@ import org.cyclop.model.CqlQuery;
 import org.cyclop.model.CqlQueryResult;
 import org.cyclop.model.UserPreferences;
 import org.cyclop.service.cassandra.QueryService;
+import org.cyclop.service.exporter.ColumnarQueryResultExporter;
 import org.cyclop.service.exporter.CsvQueryResultExporter;
+import org.cyclop.service.exporter.ExportJobService;
+import org.cyclop.service.exporter.JsonLinesQueryResultExporter;
+import org.cyclop.service.exporter.model.ExportFormat;
 import org.cyclop.service.um.UserManager;
 import org.cyclop.web.panels.queryeditor.buttons.ButtonsPanel;
 import org.cyclop.web.panels.queryeditor.completionhint.CompletionHintPanel;
@@ -50,17 +58,26 @@ import org.cyclop.web.panels.queryeditor.result.SwitchableQueryResultPanel.ViewT
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /** @author Maciej Miklas */
 @AuthorizeInstantiation(Roles.ADMIN)
 public class QueryEditorPanel extends Panel {
 
 	private final static Logger LOG = LoggerFactory.getLogger(QueryEditorPanel.class);
 
+	private final static int QUERY_POLL_MILLIS = 300;
+
 	private CqlHelpPanel cqlHelpPanel;
 
 	private CompletionHintPanel cqlCompletionHintPanel;
 
-	private boolean queryRunning = false;
+	/** pages are not serialized (see NoSerializationPageManagerProvider), so running query survives between requests */
+	private transient ListenableFuture<CqlQueryResult> runningQuery;
+
+	private CqlQuery runningCql;
+
+	private AbstractDefaultAjaxBehavior queryPoll;
 
 	private CqlQuery lastQuery;
 
@@ -69,6 +86,15 @@ public class QueryEditorPanel extends Panel {
 	@Inject
 	private CsvQueryResultExporter exporter;
 
+	@Inject
+	private ColumnarQueryResultExporter columnarExporter;
+
+	@Inject
+	private JsonLinesQueryResultExporter jsonLinesExporter;
+
+	@Inject
+	private ExportJobService exportJobService;
+
 	@Inject
 	private UserManager userManager;
 
@@ -113,7 +139,8 @@ public class QueryEditorPanel extends Panel {
 		Form<String> editorForm = initForm(queryEditorPanel);
 		initButtons(queryEditorPanel, editorForm);
 
-		queryResultExport = new QueryResultExport(this, exporter);
+		queryResultExport = new QueryResultExport(this, exporter, columnarExporter, jsonLinesExporter,
+				queryResultModel, queryResultPanel);
 
 		queryErrorDialog = initQueryErrorDialog();
 	}
@@ -122,6 +149,14 @@ public class QueryEditorPanel extends Panel {
 		Form<String> form = new Form<>("editorForm");
 		form.add(queryEditorPanel);
 		add(form);
+
+		queryPoll = new AbstractDefaultAjaxBehavior() {
+			@Override
+			protected void respond(AjaxRequestTarget target) {
+				handleQueryPoll(target);
+			}
+		};
+		form.add(queryPoll);
 		return form;
 	}
 
@@ -168,48 +203,122 @@ public class QueryEditorPanel extends Panel {
 			cqlCompletionHintPanel.setVisible(p);
 			t.add(cqlCompletionHintPanel);
 		});
-		buttonsPanel.withExportQueryResult(t -> queryResultExport.initiateDownload(t, lastQuery));
+		buttonsPanel.withExportQueryResult(this::handleExport);
+		buttonsPanel.withExportInBackground();
 		buttonsPanel.withExecQuery(t -> handleExecQuery(t, editorPanel), editorForm);
+		buttonsPanel.withCancelQuery(this::handleCancelQuery);
 		buttonsPanel.withAddToFavourites();
 		add(buttonsPanel);
 		return buttonsPanel;
 	}
 
-	private void handleExecQuery(AjaxRequestTarget target, EditorPanel editorPanel) {
+	private boolean handleExecQuery(AjaxRequestTarget target, EditorPanel editorPanel) {
 		// this cannot happen, because java script disables execute
 		// button - it's DOS prevention
-		if (queryRunning) {
+		if (runningQuery != null) {
 			LOG.warn("Query still running - cannot execute second one");
-			return;
+			return false;
 		}
 
 		CqlQuery query = editorPanel.getEditorContent();
 
 		if (query == null) {
+			return true;
+		}
+		editorPanel.resetCompletion();
+		try {
+			runningQuery = queryService.executeAsync(query, true);
+			runningCql = query;
+		} catch (Exception e) {
+			showQueryError(target, e.getMessage());
+			return true;
+		}
+
+		if (runningQuery.isDone()) {
+			finishQuery(target);
+			return true;
+		}
+		schedulePoll(target);
+		return false;
+	}
+
+	private void handleExport(AjaxRequestTarget target, ExportFormat format) {
+		if (lastQuery == null || !userManager.readPreferences().isExportInBackground()) {
+			queryResultExport.initiateDownload(target, lastQuery, format);
 			return;
 		}
-		queryRunning = true;
 		try {
-			CqlQueryResult queryResult = queryService.execute(query);
+			exportJobService.submit(lastQuery, format);
+		} catch (Exception e) {
+			showQueryError(target, e.getMessage());
+		}
+	}
+
+	private void handleQueryPoll(AjaxRequestTarget target) {
+		if (runningQuery == null) {
+			return;
+		}
+		if (runningQuery.isDone()) {
+			finishQuery(target);
+			target.appendJavaScript("queryExecutedResponse()");
+		} else {
+			schedulePoll(target);
+		}
+	}
+
+	private void handleCancelQuery(AjaxRequestTarget target) {
+		if (runningQuery == null) {
+			return;
+		}
+		LOG.debug("Cancelling query: {}", runningCql);
+		runningQuery.cancel(true);
+		finishQuery(target);
+		target.appendJavaScript("queryExecutedResponse()");
+	}
+
+	private void schedulePoll(AjaxRequestTarget target) {
+		target.appendJavaScript("setTimeout(function() {" + queryPoll.getCallbackScript() + "}, "
+				+ QUERY_POLL_MILLIS + ");");
+	}
+
+	private void finishQuery(AjaxRequestTarget target) {
+		ListenableFuture<CqlQueryResult> finished = runningQuery;
+		CqlQuery query = runningCql;
+		runningQuery = null;
+		runningCql = null;
+		try {
+			CqlQueryResult queryResult = finished.get();
 			lastQuery = query;
 			queryResultModel.setObject(queryResult);
 			queryResultPanel.modelChanged();
 			queryResultPanel.setVisible(true);
 			queryErrorDialog.setVisible(false);
-		} catch (Exception e) {
-			queryErrorDialog.setVisible(true);
-			queryResultPanel.setVisible(false);
-			queryErrorModel.setObject(e.getMessage());
-		} finally {
-			queryRunning = false;
+		} catch (CancellationException e) {
+			showQueryError(target, "Query has been cancelled");
+			return;
+		} catch (ExecutionException e) {
+			showQueryError(target, e.getCause().getMessage());
+			return;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			showQueryError(target, e.getMessage());
+			return;
 		}
-		editorPanel.resetCompletion();
 
 		target.add(queryErrorDialog);
 		target.add(queryResultPanel);
 		QueryResultPanel.appendQeuryResultJs(target);
 	}
 
+	private void showQueryError(AjaxRequestTarget target, String message) {
+		queryErrorDialog.setVisible(true);
+		queryResultPanel.setVisible(false);
+		queryErrorModel.setObject(message);
+
+		target.add(queryErrorDialog);
+		target.add(queryResultPanel);
+	}
+
 	private final class CompletionChangeHelp implements CompletionChangeListener {
 		@Override
 		public void onCompletionChange(ContextCqlCompletion currentCompletion) {
@@ -228,6 +337,11 @@ public class QueryEditorPanel extends Panel {
 			cqlCompletionHintPanel.changeCompletion(currentCompletion);
 		}
 
+		@Override
+		public boolean onTokenChange(String token) {
+			return cqlCompletionHintPanel.changeToken(token);
+		}
+
 		@Override
 		public Component getReferencesForRefresh() {
 			return cqlCompletionHintPanel;
@@ -19,18 +19,26 @@ package org.cyclop.web.panels.queryeditor.buttons;
 import java.io.Serializable;
 
 import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.cyclop.service.exporter.model.ExportFormat;
 
 /** @author Maciej Miklas */
 public interface ButtonListener extends Serializable {
 
 	@FunctionalInterface
 	interface ExecQuery {
+
+		/** @return true if query has been finished, false if it's still running */
+		boolean onClick(AjaxRequestTarget target);
+	}
+
+	@FunctionalInterface
+	interface CancelQuery {
 		void onClick(AjaxRequestTarget target);
 	}
 
 	@FunctionalInterface
 	interface ExportQueryResult {
-		void onClick(AjaxRequestTarget target);
+		void onClick(AjaxRequestTarget target, ExportFormat format);
 	}
 
 	@FunctionalInterface
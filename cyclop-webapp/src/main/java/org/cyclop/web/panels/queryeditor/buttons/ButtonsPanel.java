@@ -27,6 +27,7 @@ import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.markup.html.panel.Panel;
 import org.apache.wicket.request.resource.JavaScriptResourceReference;
 import org.cyclop.model.UserPreferences;
+import org.cyclop.service.exporter.model.ExportFormat;
 import org.cyclop.service.um.UserManager;
 import org.cyclop.web.components.buttons.IconButton;
 import org.cyclop.web.components.buttons.StateButton;
@@ -80,14 +81,46 @@ public class ButtonsPanel extends Panel {
 		return this;
 	}
 
+	/** Pressed button sends exports to background jobs instead of downloading them directly */
+	public ButtonsPanel withExportInBackground() {
+		UserPreferences preferences = userManager.readPreferences();
+		AjaxFallbackLink<Void> exportInBackground = new StateButton("exportInBackground",
+				preferences.isExportInBackground(), "btn btn-sm btn-warning", "btn btn-sm btn-warning active") {
+			@Override
+			protected void onClick(AjaxRequestTarget target, boolean pressed) {
+				UserPreferences preferences = userManager.readPreferences();
+				preferences.setExportInBackground(pressed);
+				userManager.storePreferences(preferences);
+			}
+		};
+		add(exportInBackground);
+		return this;
+	}
+
 	public ButtonsPanel withExportQueryResult(final ButtonListener.ExportQueryResult buttonListener) {
 		AjaxFallbackLink<Void> exportQueryResult = new AjaxFallbackLink<Void>("exportQueryResult") {
 			@Override
 			public void onClick(AjaxRequestTarget target) {
-				buttonListener.onClick(target);
+				buttonListener.onClick(target, ExportFormat.CSV);
 			}
 		};
 		add(exportQueryResult);
+
+		AjaxFallbackLink<Void> exportQueryResultColumnar = new AjaxFallbackLink<Void>("exportQueryResultColumnar") {
+			@Override
+			public void onClick(AjaxRequestTarget target) {
+				buttonListener.onClick(target, ExportFormat.COLUMNAR);
+			}
+		};
+		add(exportQueryResultColumnar);
+
+		AjaxFallbackLink<Void> exportQueryResultJsonLines = new AjaxFallbackLink<Void>("exportQueryResultJsonLines") {
+			@Override
+			public void onClick(AjaxRequestTarget target) {
+				buttonListener.onClick(target, ExportFormat.JSON_LINES);
+			}
+		};
+		add(exportQueryResultJsonLines);
 		return this;
 	}
 
@@ -95,14 +128,26 @@ public class ButtonsPanel extends Panel {
 		AjaxButton execQuery = new AjaxButton("execQuery", form) {
 			@Override
 			protected void onSubmit(AjaxRequestTarget target, Form<?> form) {
-				buttonListener.onClick(target);
-				target.appendJavaScript("queryExecutedResponse()");
+				if (buttonListener.onClick(target)) {
+					target.appendJavaScript("queryExecutedResponse()");
+				}
 			}
 		};
 		add(execQuery);
 		return this;
 	}
 
+	public ButtonsPanel withCancelQuery(final ButtonListener.CancelQuery buttonListener) {
+		AjaxFallbackLink<Void> cancelQuery = new AjaxFallbackLink<Void>("cancelQuery") {
+			@Override
+			public void onClick(AjaxRequestTarget target) {
+				buttonListener.onClick(target);
+			}
+		};
+		add(cancelQuery);
+		return this;
+	}
+
 	public ButtonsPanel withAddToFavourites() {
 		AjaxFallbackLink<Void> addToFavourites = new AjaxFallbackLink<Void>("addToFavourites") {
 			@Override
@@ -18,6 +18,8 @@ package org.cyclop.web.panels.queryeditor.completionhint;
 
 import java.util.Iterator;
 
+import javax.inject.Inject;
+
 import org.apache.wicket.AttributeModifier;
 import org.apache.wicket.markup.html.WebMarkupContainer;
 import org.apache.wicket.markup.html.basic.Label;
@@ -25,12 +27,19 @@ import org.apache.wicket.markup.html.panel.Panel;
 import org.apache.wicket.model.IModel;
 import org.cyclop.model.ContextCqlCompletion;
 import org.cyclop.model.CqlPart;
+import org.cyclop.service.completion.CompletionService;
 
 /** @author Maciej Miklas */
 public class CompletionHintPanel extends Panel {
 
+	@Inject
+	private CompletionService completionService;
+
 	private ContextCqlCompletion currentCompletion;
 
+	/** hint shows only best matches for this word */
+	private String currentToken = "";
+
 	private boolean lastCssSwitch;
 
 	private final String headerText;
@@ -67,6 +76,15 @@ public class CompletionHintPanel extends Panel {
 		lastCssSwitch = !lastCssSwitch;
 	}
 
+	/** @return true if hint has changed */
+	public boolean changeToken(String newToken) {
+		if (currentToken.equals(newToken)) {
+			return false;
+		}
+		currentToken = newToken;
+		return isVisible();
+	}
+
 	private class CqlInfoHintCssModel implements IModel<String> {
 
 		@Override
@@ -95,7 +113,7 @@ public class CompletionHintPanel extends Panel {
 			}
 
 			StringBuilder buf = new StringBuilder();
-			Iterator<? extends CqlPart> partIt = currentCompletion.cqlCompletion.minCompletion.iterator();
+			Iterator<CqlPart> partIt = completionService.findHint(currentCompletion, currentToken).iterator();
 			while (partIt.hasNext()) {
 				CqlPart part = partIt.next();
 
@@ -26,5 +26,16 @@ public interface CompletionChangeListener extends Serializable {
 
 	void onCompletionChange(ContextCqlCompletion currentCompletion);
 
+	/**
+	 * Called for each completion request, also when completion itself did not change.
+	 *
+	 * @param token
+	 *            lower case word in front of the cursor
+	 * @return true if {@link #getReferencesForRefresh()} has to be refreshed
+	 */
+	default boolean onTokenChange(String token) {
+		return false;
+	}
+
 	Component getReferencesForRefresh();
 }
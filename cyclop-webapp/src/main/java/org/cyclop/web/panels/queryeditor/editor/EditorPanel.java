@@ -26,6 +26,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.ajax.attributes.ThrottlingSettings;
 import org.apache.wicket.ajax.form.OnChangeAjaxBehavior;
 import org.apache.wicket.markup.head.IHeaderResponse;
 import org.apache.wicket.markup.head.JavaScriptReferenceHeaderItem;
@@ -34,17 +35,25 @@ import org.apache.wicket.markup.html.form.TextArea;
 import org.apache.wicket.markup.html.panel.Panel;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.Model;
+import org.apache.wicket.request.IRequestParameters;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.request.resource.JavaScriptResourceReference;
+import org.apache.wicket.util.time.Duration;
+import org.cyclop.common.AppConfig;
+import org.cyclop.common.QueryHelper;
+import org.cyclop.model.CompletionSession;
 import org.cyclop.model.ContextCqlCompletion;
 import org.cyclop.model.CqlPart;
 import org.cyclop.model.CqlQuery;
 import org.cyclop.model.CqlQueryType;
 import org.cyclop.service.completion.CompletionService;
 import org.cyclop.web.common.JsFunctionBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /** @author Maciej Miklas */
 public class EditorPanel extends Panel {
+	private final static Logger LOG = LoggerFactory.getLogger(EditorPanel.class);
 
 	private static final JavaScriptResourceReference SUGGEST = new JavaScriptResourceReference(EditorPanel.class,
 			"asuggest.js");
@@ -59,6 +68,17 @@ public class EditorPanel extends Panel {
 	private ContextCqlCompletion currentCompletion;
 	private ContextCqlCompletion lastCompletion;
 
+	/** word in front of the cursor - completion hint is ranked against it */
+	private String currentToken = "";
+
+	/** parser state is kept between key strokes */
+	private final CompletionSession completionSession = new CompletionSession();
+
+	/** sequence of editor content that has been already completed, it's being numbered by the browser */
+	private long completedSeq = 0;
+
+	private final AppConfig.QueryEditor conf = AppConfig.get().queryEditor;
+
 	private final List<CompletionChangeListener> completionChangeListeners = new ArrayList<>();
 
 	private TextArea<String> editor;
@@ -110,23 +130,41 @@ public class EditorPanel extends Panel {
 
 			@Override
 			protected void onUpdate(AjaxRequestTarget target) {
+				IRequestParameters params = RequestCycle.get().getRequest().getRequestParameters();
+
+				// requests are queued by the browser and all of them send the latest content - only first one has
+				// to be completed
+				long seq = params.getParameterValue("completionSeq").toLong(0);
+				if (seq > 0 && seq <= completedSeq) {
+					LOG.trace("Dropping completion request: {}, already completed: {}", seq, completedSeq);
+					return;
+				}
+				completedSeq = Math.max(completedSeq, seq);
 
 				Component cmp = getComponent();
 				String editorValue = cmp.getDefaultModelObjectAsString();
 
 				ContextCqlCompletion cqlCompletion;
+				String token;
 				if (StringUtils.isEmpty(editorValue)) {
+					completionSession.reset();
 					cqlCompletion = completionService.findInitialCompletion();
+					token = "";
 				} else {
-					RequestCycle requestCycle = RequestCycle.get();
-					int index = requestCycle.getRequest().getRequestParameters().getParameterValue("cursorPos").toInt();
+					int index = params.getParameterValue("cursorPos").toInt();
 					CqlQuery cqlQuery = new CqlQuery(CqlQueryType.UNKNOWN, editorValue);
-					cqlCompletion = completionService.findCompletion(cqlQuery, index);
+					cqlCompletion = completionService.findCompletion(cqlQuery, index, completionSession);
+					token = QueryHelper.extractToken(cqlQuery, index);
 				}
 				if (cqlCompletion.cqlCompletion.isEmpty() || cqlCompletion.equals(currentCompletion)) {
+					if (!token.equals(currentToken)) {
+						fireTokenChanged(token, target);
+					}
 					return;
 				}
 
+				currentToken = token;
+				completionChangeListeners.forEach(list -> list.onTokenChange(token));
 				fireCompletionChanged(cqlCompletion);
 				String suggestsScript = generateReplaceSuggestsJs(editorMarkupIdJq,
 						cqlCompletion.cqlCompletion.fullCompletion);
@@ -144,7 +182,13 @@ public class EditorPanel extends Panel {
 			@Override
 			protected void updateAjaxAttributes(AjaxRequestAttributes attributes) {
 				attributes.getDynamicExtraParameters().add(
-						"return {'cursorPos' : getCaretPosition(" + editorMarkupIdJs + ")}");
+						"return {'cursorPos' : getCaretPosition(" + editorMarkupIdJs + "), 'completionSeq' : "
+								+ "getCompletionSeq(" + editorMarkupIdJs + ")}");
+				if (conf.completionDelayMillis > 0) {
+					// request is being postponed on each key stroke - it's sent once typing pauses
+					attributes.setThrottlingSettings(new ThrottlingSettings(editorMarkupIdJs, Duration
+							.milliseconds(conf.completionDelayMillis), true));
+				}
 				super.updateAjaxAttributes(attributes);
 			}
 		});
@@ -157,12 +201,28 @@ public class EditorPanel extends Panel {
 		}
 	}
 
+	/** only listeners that depend on the token are being refreshed - completion itself remains the same */
+	private void fireTokenChanged(String token, AjaxRequestTarget target) {
+		currentToken = token;
+		for (CompletionChangeListener list : completionChangeListeners) {
+			Component refresh = list.getReferencesForRefresh();
+			if (list.onTokenChange(token) && refresh != null) {
+				target.add(refresh);
+			}
+		}
+	}
+
 	@Override
 	public void renderHead(IHeaderResponse response) {
 		super.renderHead(response);
 		response.render(JavaScriptReferenceHeaderItem.forReference(SUGGEST));
 
+		// browser starts numbering of editor content again
+		completedSeq = 0;
+
 		ContextCqlCompletion cqlCompletion = completionService.findInitialCompletion();
+		currentToken = "";
+		completionChangeListeners.forEach(list -> list.onTokenChange(currentToken));
 		fireCompletionChanged(cqlCompletion);
 
 		String suggestsScript = generateInitSuggestsJs(editorMarkupIdJq, cqlCompletion.cqlCompletion.fullCompletion);
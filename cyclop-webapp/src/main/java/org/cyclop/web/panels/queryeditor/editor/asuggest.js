@@ -28,6 +28,19 @@ function getCaretPosition(ctrl) {
 	return (CaretPos);
 }
 
+/**
+ * Sequence number of editor content, it changes only when content or cursor position has changed since the previous
+ * completion request. Server drops requests with already completed sequence.
+ */
+function getCompletionSeq(ctrl) {
+	var state = getCaretPosition(ctrl) + ":" + ctrl.value;
+	if (ctrl.cqCompletionState !== state) {
+		ctrl.cqCompletionState = state;
+		ctrl.cqCompletionSeq = (ctrl.cqCompletionSeq || 0) + 1;
+	}
+	return ctrl.cqCompletionSeq;
+}
+
 function initSuggests(editorId, suggests) {
 
 	window.suggests = suggests;
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.web.panels.queryeditor.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.apache.wicket.util.resource.AbstractResourceStreamWriter;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.cyclop.common.AppConfig;
+import org.cyclop.service.exporter.model.ExportFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams export in given {@link ExportFormat} to the browser - takes care of file name, content type and optional
+ * gzip compression.
+ *
+ * @author Maciej Miklas
+ */
+public abstract class ExportDownloader extends DownloadBehavior {
+
+	private final static Logger LOG = LoggerFactory.getLogger(ExportDownloader.class);
+
+	private final static AppConfig.QueryExport conf = AppConfig.get().queryExport;
+
+	private final static String GZIP_CONTENT_TYPE = "application/gzip";
+
+	private final static String COLUMNAR_CONTENT_TYPE = "application/octet-stream";
+
+	private final static String JSON_LINES_CONTENT_TYPE = "application/x-ndjson";
+
+	/** @return false if there is nothing to download */
+	protected abstract boolean hasData();
+
+	protected abstract ExportFormat getFormat();
+
+	protected abstract void export(OutputStream output) throws IOException;
+
+	@Override
+	protected String getFileName() {
+		SimpleDateFormat formatter = new SimpleDateFormat(conf.fileNameDate);
+		String fileName = getFileNamePattern().replace("DATE", formatter.format(new Date()));
+		if (conf.gzip) {
+			fileName += ".gz";
+		}
+		LOG.debug("Export file name: {}", fileName);
+		return fileName;
+	}
+
+	@Override
+	protected IResourceStream getResourceStream() {
+		if (!hasData()) {
+			return new StringResourceStream("No Data");
+		}
+
+		return new AbstractResourceStreamWriter() {
+
+			@Override
+			public void write(OutputStream output) throws IOException {
+				if (conf.gzip) {
+					try (OutputStream gzip = new GzipExportStream(output, conf.gzipLevel, conf.gzipFlushBytes)) {
+						export(gzip);
+					}
+				} else {
+					export(output);
+				}
+			}
+
+			@Override
+			public String getContentType() {
+				if (conf.gzip) {
+					return GZIP_CONTENT_TYPE;
+				}
+				switch (getFormat()) {
+				case COLUMNAR:
+					return COLUMNAR_CONTENT_TYPE;
+				case JSON_LINES:
+					return JSON_LINES_CONTENT_TYPE;
+				default:
+					return super.getContentType();
+				}
+			}
+		};
+	}
+
+	private String getFileNamePattern() {
+		switch (getFormat()) {
+		case COLUMNAR:
+			return conf.columnarFileName;
+		case JSON_LINES:
+			return conf.jsonLinesFileName;
+		default:
+			return conf.fileName;
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.web.panels.queryeditor.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * GZIP stream with configurable compression level. Compressed data is flushed to the client in regular intervals, so
+ * that it does not wait for large exports to complete - like proxies dropping idle connections.
+ *
+ * @author Maciej Miklas
+ */
+@NotThreadSafe
+final class GzipExportStream extends GZIPOutputStream {
+
+	private final static int BUFFER_SIZE = 64 * 1024;
+
+	private final int flushBytes;
+
+	private int unflushed = 0;
+
+	GzipExportStream(OutputStream out, int level, int flushBytes) throws IOException {
+		super(out, BUFFER_SIZE, true);
+		def.setLevel(level);
+		this.flushBytes = flushBytes;
+	}
+
+	@Override
+	public void write(byte[] buf, int off, int len) throws IOException {
+		super.write(buf, off, len);
+		unflushed += len;
+		if (unflushed >= flushBytes) {
+			flush();
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		super.flush();
+		unflushed = 0;
+	}
+}
@@ -16,70 +16,108 @@
  */
 package org.cyclop.web.panels.queryeditor.export;
 
-import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Serializable;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.List;
 
 import org.apache.wicket.MarkupContainer;
 import org.apache.wicket.ajax.AjaxRequestTarget;
-import org.apache.wicket.util.resource.AbstractResourceStreamWriter;
-import org.apache.wicket.util.resource.IResourceStream;
-import org.apache.wicket.util.resource.StringResourceStream;
-import org.cyclop.common.AppConfig;
+import org.apache.wicket.model.IModel;
 import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryResult;
+import org.cyclop.service.exporter.ColumnarQueryResultExporter;
 import org.cyclop.service.exporter.CsvQueryResultExporter;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.cyclop.service.exporter.JsonLinesQueryResultExporter;
+import org.cyclop.service.exporter.model.ExportFormat;
+import org.cyclop.web.panels.queryeditor.result.SwitchableQueryResultPanel;
+
+import com.datastax.driver.core.Row;
 
 /** @author Maciej Miklas */
 public class QueryResultExport implements Serializable {
 
-	private final static Logger LOG = LoggerFactory.getLogger(QueryResultExport.class);
-
-	private final static AppConfig.QueryExport conf = AppConfig.get().queryExport;
-
 	private final Downloader downloader;
 
 	private final CsvQueryResultExporter exporter;
 
+	private final ColumnarQueryResultExporter columnarExporter;
+
+	private final JsonLinesQueryResultExporter jsonLinesExporter;
+
+	private final IModel<CqlQueryResult> resultModel;
+
+	private final SwitchableQueryResultPanel resultPanel;
+
 	private CqlQuery query;
 
-	public QueryResultExport(MarkupContainer parent, CsvQueryResultExporter exporter) {
+	private ExportFormat format = ExportFormat.CSV;
+
+	public QueryResultExport(MarkupContainer parent, CsvQueryResultExporter exporter,
+			ColumnarQueryResultExporter columnarExporter, JsonLinesQueryResultExporter jsonLinesExporter,
+			IModel<CqlQueryResult> resultModel, SwitchableQueryResultPanel resultPanel) {
 		this.exporter = exporter;
+		this.columnarExporter = columnarExporter;
+		this.jsonLinesExporter = jsonLinesExporter;
+		this.resultModel = resultModel;
+		this.resultPanel = resultPanel;
 		this.downloader = new Downloader();
 		parent.add(downloader);
 	}
 
-	public void initiateDownload(AjaxRequestTarget target, CqlQuery query) {
+	public void initiateDownload(AjaxRequestTarget target, CqlQuery query, ExportFormat format) {
 		downloader.initiateDownload(target);
 		this.query = query;
+		this.format = format;
+	}
+
+	/**
+	 * Exported query is the one being displayed - rows already fetched for display are exported without executing
+	 * query again.
+	 */
+	private void exportResult(OutputStream output) {
+		CqlQueryResult result = resultModel.getObject();
+		List<Row> fetched = resultPanel.getFetchedRows();
+		// nothing has been displayed - like after restoring serialized session
+		boolean displayed = !fetched.isEmpty() || !result.isEmpty();
+		switch (format) {
+		case COLUMNAR:
+			if (displayed) {
+				columnarExporter.exportAsColumnar(query, result, fetched, output);
+			} else {
+				columnarExporter.exportAsColumnar(query, output);
+			}
+			break;
+		case JSON_LINES:
+			if (displayed) {
+				jsonLinesExporter.exportAsJsonLines(query, result, fetched, output);
+			} else {
+				jsonLinesExporter.exportAsJsonLines(query, output);
+			}
+			break;
+		default:
+			if (displayed) {
+				exporter.exportAsCsv(query, result, fetched, output);
+			} else {
+				exporter.exportAsCsv(query, output);
+			}
+		}
 	}
 
-	private final class Downloader extends DownloadBehavior {
+	private final class Downloader extends ExportDownloader {
 
 		@Override
-		protected String getFileName() {
-			SimpleDateFormat formatter = new SimpleDateFormat(conf.fileNameDate);
-			String fileName = conf.fileName.replace("DATE", formatter.format(new Date()));
-			LOG.debug("CSV export file name: {}", fileName);
-			return fileName;
+		protected boolean hasData() {
+			return query != null;
 		}
 
 		@Override
-		protected IResourceStream getResourceStream() {
-			if (query == null) {
-				return new StringResourceStream("No Data");
-			}
-
-			return new AbstractResourceStreamWriter() {
+		protected ExportFormat getFormat() {
+			return format;
+		}
 
-				@Override
-				public void write(OutputStream output) throws IOException {
-					exporter.exportAsCsv(query, output);
-				}
-			};
+		@Override
+		protected void export(OutputStream output) {
+			exportResult(output);
 		}
 	}
 }
@@ -129,6 +129,11 @@ public abstract class QueryResultPanel extends Panel {
 		}
 	}
 
+	/** @return rows of current result that have been already fetched for display */
+	public List<Row> getFetchedRows() {
+		return rowDataProvider.getReadElements();
+	}
+
 	protected Component createRowKeyColumn(String wid, Row row, IModel<CqlRowMetadata> metadataModel) {
 		CqlPartitionKey partitionKey = metadataModel.getObject().partitionKey;
 
@@ -145,6 +150,7 @@ public abstract class QueryResultPanel extends Panel {
 	protected final void onModelChanged() {
 		super.onModelChanged();
 		if (queryResultModel.getObject().isEmpty()) {
+			rowDataProvider.replaceModel();
 			showCqlResultText("Result is empty");
 		} else {
 			showResultsTable();
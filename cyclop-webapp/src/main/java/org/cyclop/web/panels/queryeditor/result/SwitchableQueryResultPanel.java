@@ -16,6 +16,8 @@
  */
 package org.cyclop.web.panels.queryeditor.result;
 
+import java.util.List;
+
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.markup.html.panel.Panel;
 import org.apache.wicket.model.IModel;
@@ -23,6 +25,8 @@ import org.cyclop.model.CqlQueryResult;
 import org.cyclop.web.panels.queryeditor.result.horizontal.QueryResultHorizontalPanel;
 import org.cyclop.web.panels.queryeditor.result.vertical.QueryResultVerticalPanel;
 
+import com.datastax.driver.core.Row;
+
 /** @author Maciej Miklas */
 public class SwitchableQueryResultPanel extends Panel {
 
@@ -60,6 +64,10 @@ public class SwitchableQueryResultPanel extends Panel {
 		QueryResultPanel.appendQeuryResultJs(target);
 	}
 
+	public List<Row> getFetchedRows() {
+		return queryResultPanel.getFetchedRows();
+	}
+
 	@Override
 	protected void onModelChanged() {
 		super.onModelChanged();
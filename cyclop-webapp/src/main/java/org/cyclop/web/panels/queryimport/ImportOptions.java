@@ -28,13 +28,15 @@ public final class ImportOptions implements Serializable {
 
 	private boolean parallel = false;
 
+	private boolean batch = false;
+
 	private String scriptFile;
 
 	@Override
 	public String toString() {
 		return MoreObjects.toStringHelper(this).add("includeInHistory", includeInHistory)
-				.add("continueWithErrors", continueWithErrors).add("parallel", parallel).add("scriptFile", scriptFile)
-				.toString();
+				.add("continueWithErrors", continueWithErrors).add("parallel", parallel).add("batch", batch)
+				.add("scriptFile", scriptFile).toString();
 	}
 
 	public boolean isParallel() {
@@ -45,6 +47,14 @@ public final class ImportOptions implements Serializable {
 		this.parallel = parallel;
 	}
 
+	public boolean isBatch() {
+		return batch;
+	}
+
+	public void setBatch(boolean batch) {
+		this.batch = batch;
+	}
+
 	public boolean isIncludeInHistory() {
 		return includeInHistory;
 	}
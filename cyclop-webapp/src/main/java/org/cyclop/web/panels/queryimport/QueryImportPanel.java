@@ -16,7 +16,8 @@
  */
 package org.cyclop.web.panels.queryimport;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 
@@ -75,6 +76,10 @@ public class QueryImportPanel extends Panel {
 	@Named(QueryImporter.IMPL_PARALLEL)
 	private QueryImporter parallelImporter;
 
+	@Inject
+	@Named(QueryImporter.IMPL_BATCH)
+	private QueryImporter batchImporter;
+
 	@Inject
 	private UserManager um;
 
@@ -110,6 +115,7 @@ public class QueryImportPanel extends Panel {
 		importOptions.setContinueWithErrors(prefs.isImportContinueWithErrors());
 		importOptions.setIncludeInHistory(prefs.isImportIncludeInHistory());
 		importOptions.setParallel(prefs.isImportParallel());
+		importOptions.setBatch(prefs.isImportBatch());
 		return importOptions;
 	}
 
@@ -125,14 +131,22 @@ public class QueryImportPanel extends Panel {
 	}
 
 	private void executeImport(AjaxRequestTarget target, ImportOptions importOptions, FileUpload upload) {
-		byte[] fileContentBytes = upload.getBytes();
-		LOG.debug("Importing file of {} bytes", fileContentBytes.length);
+		LOG.debug("Importing file of {} bytes", upload.getSize());
 
 		ImportResultWriter result = new ImportResultWriter();
 
 		ImportConfig config = createImportConfig(importOptions);
-		ImportStats stats = getImporter(importOptions).importScript(new ByteArrayInputStream(fileContentBytes), result,
-				config);
+		ImportStats stats;
+
+		// script is streamed from upload's temp file - it does not have to fit into memory
+		try (InputStream input = upload.getInputStream()) {
+			stats = getImporter(importOptions).importScript(input, result, config);
+		} catch (IOException e) {
+			LOG.warn("Cannot read uploaded script: " + e.getMessage());
+			LOG.debug(e.getMessage(), e);
+			sendJsResponse(target, "Cannot read uploaded script: " + e.getMessage());
+			return;
+		}
 
 		resultModel.setObject(result.getResult());
 
@@ -152,6 +166,9 @@ public class QueryImportPanel extends Panel {
 	}
 
 	private QueryImporter getImporter(ImportOptions importOptions) {
+		if (importOptions.isBatch()) {
+			return batchImporter;
+		}
 		return importOptions.isParallel() ? parallelImporter : serialImporter;
 
 	}
@@ -239,6 +256,9 @@ public class QueryImportPanel extends Panel {
 
 		CheckBox parallel = new CheckBox("parallel");
 		form.add(parallel);
+
+		CheckBox batch = new CheckBox("batch");
+		form.add(batch);
 	}
 
 	private void populateQuery(ListItem<ImportResult> item, ImportResult entry) {
@@ -277,7 +297,7 @@ public class QueryImportPanel extends Panel {
 		UserPreferences prefs = um.readPreferences();
 		prefs.setImportContinueWithErrors(importOptions.isContinueWithErrors())
 				.setImportIncludeInHistory(importOptions.isIncludeInHistory())
-				.setImportParallel(importOptions.isParallel());
+				.setImportParallel(importOptions.isParallel()).setImportBatch(importOptions.isBatch());
 		um.storePreferences(prefs);
 	}
 
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryType;
+import org.junit.Test;
+
+/** @author Maciej Miklas */
+public class TestQueryHelper {
+
+	@Test
+	public void testIsSchemaChange() {
+		assertTrue(QueryHelper.isSchemaChange(q("CREATE TABLE abc (id int PRIMARY KEY)")));
+		assertTrue(QueryHelper.isSchemaChange(q("create\ntable abc (id int PRIMARY KEY)")));
+		assertTrue(QueryHelper.isSchemaChange(q(" alter table abc add col text")));
+		assertTrue(QueryHelper.isSchemaChange(q("drop keyspace abc")));
+	}
+
+	@Test
+	public void testIsSchemaChange_NoChange() {
+		assertFalse(QueryHelper.isSchemaChange(q("select * from created")));
+		assertFalse(QueryHelper.isSchemaChange(q("insert into drops (id) values (1)")));
+		assertFalse(QueryHelper.isSchemaChange(q("truncate abc")));
+		assertFalse(QueryHelper.isSchemaChange(q("use creates")));
+	}
+
+	@Test
+	public void testExtractToken() {
+		assertEquals("cqldemo.myb", QueryHelper.extractToken(q("select * from cqldemo.MyB"), -1));
+		assertEquals("first_n", QueryHelper.extractToken(q("select id,first_n"), -1));
+		assertEquals("pag", QueryHelper.extractToken(q("select * from books where pages=1"), 29));
+		assertEquals("val", QueryHelper.extractToken(q("insert into abc (id) values (val"), 100));
+	}
+
+	@Test
+	public void testExtractToken_Empty() {
+		assertEquals("", QueryHelper.extractToken(q("select * from "), -1));
+		assertEquals("", QueryHelper.extractToken(q("select * from books where id="), -1));
+		assertEquals("", QueryHelper.extractToken(q("select"), 0));
+	}
+
+	@Test
+	public void testExtractSpace() {
+		assertEquals("cqldemo", QueryHelper.keySpaceName(QueryHelper.extractSpace(q("USE CqlDemo;")).get()));
+		assertEquals("MyKs", QueryHelper.keySpaceName(QueryHelper.extractSpace(q(" use \"MyKs\" ")).get()));
+		assertEquals("My\"Ks", QueryHelper.keySpaceName(QueryHelper.extractSpace(q("use \"My\"\"Ks\"")).get()));
+		assertFalse(QueryHelper.extractSpace(q("select * from cqldemo.mybooks")).isPresent());
+		assertFalse(QueryHelper.extractSpace(q("use ;")).isPresent());
+	}
+
+	private static CqlQuery q(String cql) {
+		return new CqlQuery(CqlQueryType.UNKNOWN, cql);
+	}
+}
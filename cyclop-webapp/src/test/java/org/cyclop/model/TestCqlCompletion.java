@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/** @author Maciej Miklas */
+public class TestCqlCompletion {
+
+	private final CqlCompletion completion = CqlCompletion.Builder.naturalOrder().all(CqlKeyword.Def.WHERE.value)
+			.all(CqlKeyword.Def20.IF.value).full(CqlKeyword.Def.IN_BL.value).min(CqlKeyword.Def.IN.value)
+			.all(new CqlTable("mybooks")).build();
+
+	@Test
+	public void testFilter_AllAccepted() {
+		assertSame(completion, completion.filter(p -> true));
+	}
+
+	@Test
+	public void testFilter_Copy() {
+		CqlCompletion filtered = completion.filter(p -> !p.equals(CqlKeyword.Def20.IF.value)
+				&& !p.equals(CqlKeyword.Def.IN.value));
+
+		// same order as sorted by builder
+		CqlCompletion expected = CqlCompletion.Builder.naturalOrder().all(CqlKeyword.Def.WHERE.value)
+				.full(CqlKeyword.Def.IN_BL.value).all(new CqlTable("mybooks")).build();
+		assertEquals(expected.fullCompletion.asList(), filtered.fullCompletion.asList());
+		assertEquals(expected.minCompletion.asList(), filtered.minCompletion.asList());
+	}
+}
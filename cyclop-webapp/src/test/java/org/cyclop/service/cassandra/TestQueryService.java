@@ -23,8 +23,12 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 
 import javax.inject.Inject;
 
@@ -100,6 +104,88 @@ public class TestQueryService extends AbstractTestCase {
 		vh.verifyContainsTableNamesCqlDemo(col, true);
 	}
 
+	@Test
+	public void testFindTableNames_SchemaChangeInvalidatesCache() {
+		Optional<CqlKeySpace> space = Optional.of(new CqlKeySpace("cqldemo"));
+		CqlTable table = new CqlTable("cqldemo", "schemacachetest");
+		assertFalse(qs.findTableNames(space).contains(new CqlTable("schemacachetest")));
+
+		qs.executeSimple(new CqlQuery(CqlQueryType.CREATE_TABLE,
+				"create table cqldemo.schemacachetest (id int primary key)"), false);
+		try {
+			assertTrue(qs.findTableNames(space).contains(new CqlTable("schemacachetest")));
+			assertTrue(qs.checkTableExists(table));
+		} finally {
+			qs.execute(new CqlQuery(CqlQueryType.DROP_TABLE, "drop table cqldemo.schemacachetest"), false);
+		}
+		assertFalse(qs.findTableNames(space).contains(new CqlTable("schemacachetest")));
+	}
+
+	@Test
+	public void testExecute_TypeMapRefreshedAfterSchemaChange() {
+		if (!cassandraSession.getCassandraVersion().after(VER_1_2)) {
+			// clustering keys are not recognized by 1.2
+			return;
+		}
+		CqlQuery select = new CqlQuery(CqlQueryType.SELECT, "select * from cqldemo.typemaptest");
+		CqlExtendedColumnName clustering = new CqlExtendedColumnName(CqlColumnType.CLUSTERING_KEY,
+				CqlDataType.create(DataType.cint()), "c");
+		CqlExtendedColumnName partition = new CqlExtendedColumnName(CqlColumnType.PARTITION_KEY,
+				CqlDataType.create(DataType.cint()), "c");
+
+		qs.executeSimple(new CqlQuery(CqlQueryType.CREATE_TABLE,
+				"create table cqldemo.typemaptest (id int, c int, primary key(id, c))"), false);
+		try {
+			qs.executeSimple(new CqlQuery(CqlQueryType.INSERT, "insert into cqldemo.typemaptest (id, c) values (1, 2)"),
+					false);
+			assertTrue(qs.execute(select, false).rowMetadata.columns.contains(clustering));
+		} finally {
+			qs.executeSimple(new CqlQuery(CqlQueryType.DROP_TABLE, "drop table cqldemo.typemaptest"), false);
+		}
+
+		qs.executeSimple(new CqlQuery(CqlQueryType.CREATE_TABLE,
+				"create table cqldemo.typemaptest (c int primary key, id int)"), false);
+		try {
+			qs.executeSimple(new CqlQuery(CqlQueryType.INSERT, "insert into cqldemo.typemaptest (id, c) values (1, 2)"),
+					false);
+			assertTrue(qs.execute(select, false).rowMetadata.columns.contains(partition));
+		} finally {
+			qs.executeSimple(new CqlQuery(CqlQueryType.DROP_TABLE, "drop table cqldemo.typemaptest"), false);
+		}
+	}
+
+	@Test
+	public void testExecute_SparseColumnsFromSampledRows() {
+		qs.executeSimple(new CqlQuery(CqlQueryType.CREATE_TABLE,
+				"create table cqldemo.sparsetest (id int primary key, v1 int, v2 int, v3 int, v4 int)"), false);
+		try {
+			// each row has value in different column - so no single row contains all of them
+			for (int id = 1; id <= 4; id++) {
+				qs.executeSimple(new CqlQuery(CqlQueryType.INSERT, "insert into cqldemo.sparsetest (id, v" + id
+						+ ") values (" + id + ", " + id + ")"), false);
+			}
+			CqlQueryResult res = qs.execute(new CqlQuery(CqlQueryType.SELECT, "select * from cqldemo.sparsetest"),
+					false);
+			String colsStr = res.rowMetadata.columns.toString();
+			assertEquals(colsStr, 5, res.rowMetadata.columns.size());
+			for (int id = 1; id <= 4; id++) {
+				assertTrue(colsStr, res.rowMetadata.columns.contains(new CqlExtendedColumnName(CqlColumnType.REGULAR,
+						CqlDataType.create(DataType.cint()), "v" + id)));
+			}
+
+			// rows read while discovering columns are not lost
+			int rowsSize = 0;
+			for (Row row : res) {
+				rowsSize++;
+				int id = row.getInt("id");
+				assertEquals(id, row.getInt("v" + id));
+			}
+			assertEquals(4, rowsSize);
+		} finally {
+			qs.executeSimple(new CqlQuery(CqlQueryType.DROP_TABLE, "drop table cqldemo.sparsetest"), false);
+		}
+	}
+
 	@Test
 	public void testFindTableNames_SpaceSystem() {
 		ImmutableSortedSet<CqlTable> col = qs.findTableNames(Optional.of(new CqlKeySpace("system")));
@@ -212,11 +298,107 @@ public class TestQueryService extends AbstractTestCase {
 		assertEquals(50, rowsCnt);
 	}
 
+	@Test
+	public void testExecute_UseQuotedKeyspace() {
+		qs.executeSimple(new CqlQuery(CqlQueryType.CREATE_KEYSPACE, "create keyspace \"MixedCaseKs\" with "
+				+ "replication = {'class': 'SimpleStrategy', 'replication_factor': 1}"), false);
+		try {
+			qs.execute(new CqlQuery(CqlQueryType.USE, "USE \"MixedCaseKs\""));
+			assertEquals("MixedCaseKs", cassandraSession.getSession().getLoggedKeyspace());
+
+			qs.executeSimple(new CqlQuery(CqlQueryType.CREATE_TABLE, "create table quotedtest (id int primary key)"),
+					false);
+			qs.executeSimple(new CqlQuery(CqlQueryType.INSERT, "insert into quotedtest (id) values (1)"), false);
+			assertTrue(qs.execute(new CqlQuery(CqlQueryType.SELECT, "select * from quotedtest"), false).iterator()
+					.hasNext());
+		} finally {
+			qs.execute(new CqlQuery(CqlQueryType.USE, "USE cqldemo"));
+			qs.executeSimple(new CqlQuery(CqlQueryType.DROP_KEYSPACE, "drop keyspace \"MixedCaseKs\""), false);
+		}
+	}
+
 	@Test(expected = BeanValidationException.class)
 	public void testExecute_IncorrectParams() {
 		qs.execute(new CqlQuery(null, null));
 	}
 
+	@Test
+	public void testExecuteAsync_Select() throws Exception {
+		qs.execute(new CqlQuery(CqlQueryType.USE, "USE CqlDemo"));
+		CqlQuery query = new CqlQuery(CqlQueryType.SELECT, "select * from CompoundTest where deesc='TEST_SET_1'");
+
+		CqlQueryResult res = qs.executeAsync(query, true).get();
+		try (QueryHistory.HistoryIterator iterator = hs.read().iterator()) {
+			assertEquals(query, iterator.next().query);
+		}
+		assertEquals(qs.execute(query, false).rowMetadata, res.rowMetadata);
+		assertTrue(res.iterator().hasNext());
+	}
+
+	@Test
+	public void testExecute_ResumeWithPagingState() {
+		if (!cassandraSession.getCassandraVersion().after(VER_1_2)) {
+			// native paging is not supported by 1.2
+			return;
+		}
+		CqlQuery query = new CqlQuery(CqlQueryType.SELECT, "select id from cqldemo.mybooks");
+
+		CqlQueryResult res = qs.execute(query, false, 2, Optional.empty());
+		Iterator<Row> rows = res.iterator();
+		assertFalse(res.getPagingState().isPresent());
+		rows.next();
+		rows.next();
+		Optional<String> pagingState = res.getPagingState();
+		assertTrue(pagingState.isPresent());
+		Row third = rows.next();
+
+		CqlQueryResult resumed = qs.execute(query, false, 2, pagingState);
+		assertEquals(third.getUUID("id"), resumed.iterator().next().getUUID("id"));
+	}
+
+	@Test
+	public void testExecute_PagingStateOffset() {
+		if (!cassandraSession.getCassandraVersion().after(VER_1_2)) {
+			return;
+		}
+		CqlQuery query = new CqlQuery(CqlQueryType.SELECT, "select id from cqldemo.mybooks");
+		List<UUID> all = new ArrayList<>();
+		qs.execute(query, false).forEach(r -> all.add(r.getUUID("id")));
+
+		CqlQueryResult res = qs.execute(query, false, 3, Optional.empty());
+		Iterator<Row> rows = res.iterator();
+		int read = 0;
+		while (rows.hasNext()) {
+			rows.next();
+			read++;
+			Optional<String> pagingState = res.getPagingState();
+			int offset = res.getPagingStateOffset();
+			assertTrue(offset <= read);
+			if (!pagingState.isPresent()) {
+				assertEquals(0, offset);
+				continue;
+			}
+			Iterator<Row> resumed = qs.execute(query, false, 3, pagingState).iterator();
+			if (offset < all.size()) {
+				assertEquals(all.get(offset), resumed.next().getUUID("id"));
+			} else {
+				assertFalse(resumed.hasNext());
+			}
+		}
+		assertEquals(all.size(), read);
+	}
+
+	@Test(expected = QueryException.class)
+	public void testExecute_IncorrectPagingState() {
+		qs.execute(new CqlQuery(CqlQueryType.SELECT, "select id from cqldemo.mybooks"), false, 2,
+				Optional.of("not-a-paging-state"));
+	}
+
+	@Test(expected = ExecutionException.class)
+	public void testExecuteAsync_QueryError() throws Exception {
+		qs.executeAsync(new CqlQuery(CqlQueryType.SELECT, "select * from bara.bara"), false).get();
+	}
+
 	@Test(expected = BeanValidationException.class)
 	public void testExecuteSimple_IncorrectParams() {
 		qs.executeSimple(new CqlQuery(null, null), false);
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.cassandra.intern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.inject.Inject;
+
+import org.cyclop.test.AbstractTestCase;
+import org.junit.Test;
+
+import com.datastax.driver.core.Session;
+
+/** @author Maciej Miklas */
+public class TestClusterRegistry extends AbstractTestCase {
+
+	@Inject
+	private ClusterRegistry registry;
+
+	@Test
+	public void testSameCredentialsShareSession() {
+		try (SessionLease lease1 = registry.acquire("test", "test1234");
+				SessionLease lease2 = registry.acquire("test", "test1234")) {
+			assertSame(lease1.getSession(), lease2.getSession());
+			assertEquals(lease1.getCassandraVersion(), lease2.getCassandraVersion());
+		}
+	}
+
+	@Test
+	public void testUseKeyspaceDoesNotAffectOtherLease() {
+		try (SessionLease lease1 = registry.acquire("test", "test1234");
+				SessionLease lease2 = registry.acquire("test", "test1234")) {
+			Session noSpace = lease2.getSession();
+			lease1.useKeyspace("cqldemo");
+
+			assertNotSame(noSpace, lease1.getSession());
+			assertSame(noSpace, lease2.getSession());
+			assertEquals("cqldemo", lease1.getSession().getLoggedKeyspace());
+
+			lease2.useKeyspace("cqldemo");
+			assertSame(lease1.getSession(), lease2.getSession());
+		}
+	}
+
+	@Test
+	public void testEvictKeepsLeasedCluster() {
+		try (SessionLease lease = registry.acquire("test", "test1234")) {
+			Session session = lease.getSession();
+			registry.evictIdle();
+
+			try (SessionLease lease2 = registry.acquire("test", "test1234")) {
+				assertSame(session, lease2.getSession());
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrentAcquireSharesCluster() throws Exception {
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<SessionLease> leases = new ArrayList<>();
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<SessionLease>> acquired = new ArrayList<>();
+			for (int idx = 0; idx < threads; idx++) {
+				acquired.add(executor.submit(() -> {
+					start.await();
+					return registry.acquire("test", "test1234");
+				}));
+			}
+			start.countDown();
+			for (Future<SessionLease> lease : acquired) {
+				leases.add(lease.get());
+			}
+			for (SessionLease lease : leases) {
+				assertSame(leases.get(0).getSession(), lease.getSession());
+			}
+		} finally {
+			leases.forEach(SessionLease::close);
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testSharedLeaseOutlivesOriginal() {
+		SessionLease lease = registry.acquire("test", "test1234");
+		lease.useKeyspace("cqldemo");
+		Session session = lease.getSession();
+
+		try (SessionLease shared = lease.share()) {
+			lease.close();
+			registry.evictIdle();
+
+			assertSame(session, shared.getSession());
+			assertEquals("cqldemo", shared.getSession().getLoggedKeyspace());
+			shared.getSession().execute("select * from mybooks limit 1");
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClosedLease() {
+		SessionLease lease = registry.acquire("test", "test1234");
+		lease.close();
+		lease.getSession();
+	}
+}
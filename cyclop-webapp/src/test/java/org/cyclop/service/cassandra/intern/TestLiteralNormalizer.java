@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.cassandra.intern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.cyclop.service.cassandra.intern.LiteralNormalizer.Literal;
+import org.cyclop.service.cassandra.intern.LiteralNormalizer.NormalizedQuery;
+import org.junit.Test;
+
+import com.datastax.driver.core.DataType;
+
+/** @author Maciej Miklas */
+public class TestLiteralNormalizer {
+
+	@Test
+	public void testNormalize_Select() {
+		NormalizedQuery norm = normalize("select * from cqldemo.MyBooks where id = 'abc''s' and pages > -12 limit 10");
+		assertEquals("select * from cqldemo.MyBooks where id = ? and pages > ? limit ?", norm.cql);
+		assertEquals(3, norm.literals.size());
+		assertEquals("abc's", norm.literals.get(0).toValue(DataType.text()));
+		assertEquals(-12, norm.literals.get(1).toValue(DataType.cint()));
+		assertEquals(10L, norm.literals.get(2).toValue(DataType.bigint()));
+	}
+
+	@Test
+	public void testNormalize_Insert() throws Exception {
+		NormalizedQuery norm = normalize("INSERT INTO t1 (\"Id\", c2, c3, c4) VALUES "
+				+ "(c37d661d-7e61-49ea-96a5-68c34e83db3a, 0x0a0B, 2.5, '127.0.0.1') USING TTL 100");
+		assertEquals("INSERT INTO t1 (\"Id\", c2, c3, c4) VALUES (?, ?, ?, ?) USING TTL ?", norm.cql);
+		assertEquals(UUID.fromString("c37d661d-7e61-49ea-96a5-68c34e83db3a"),
+				norm.literals.get(0).toValue(DataType.uuid()));
+		assertEquals(2.5d, norm.literals.get(2).toValue(DataType.cdouble()));
+		assertEquals(InetAddress.getByName("127.0.0.1"), norm.literals.get(3).toValue(DataType.inet()));
+	}
+
+	@Test
+	public void testNormalize_CollectionsNotReplaced() {
+		NormalizedQuery norm = normalize("update t1 set tags = {'a', 'b'}, ids = [1, 2] where id = 5");
+		assertEquals("update t1 set tags = {'a', 'b'}, ids = [1, 2] where id = ?", norm.cql);
+		assertEquals(1, norm.literals.size());
+	}
+
+	@Test
+	public void testNormalize_IdentifiersNotReplaced() {
+		NormalizedQuery norm = normalize("select c1, c_2 from t1x2 where \"a'1\" = 1");
+		assertEquals("select c1, c_2 from t1x2 where \"a'1\" = ?", norm.cql);
+	}
+
+	@Test
+	public void testNormalize_NotSupported() {
+		assertFalse(LiteralNormalizer.normalize("create table t1 (id int PRIMARY KEY)").isPresent());
+		assertFalse(LiteralNormalizer.normalize("select * from t1").isPresent());
+		assertFalse(LiteralNormalizer.normalize("select * from t1 where id = 1 -- comment").isPresent());
+		assertFalse(LiteralNormalizer.normalize("select * from t1 where id = 'abc").isPresent());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testToValue_TypeMismatch() {
+		normalize("delete from t1 where id = 'abc'").literals.get(0).toValue(DataType.cint());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testToValue_IncorrectNumber() {
+		new Literal(Literal.Kind.NUMBER, "2.5").toValue(DataType.cint());
+	}
+
+	private static NormalizedQuery normalize(String cql) {
+		Optional<NormalizedQuery> norm = LiteralNormalizer.normalize(cql);
+		assertTrue(cql, norm.isPresent());
+		return norm.get();
+	}
+}
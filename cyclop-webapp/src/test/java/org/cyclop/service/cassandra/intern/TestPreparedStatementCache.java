@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.cassandra.intern;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+
+import javax.inject.Inject;
+
+import org.cyclop.test.AbstractTestCase;
+import org.junit.Test;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Session;
+
+/** @author Maciej Miklas */
+public class TestPreparedStatementCache extends AbstractTestCase {
+
+	@Inject
+	private ClusterRegistry registry;
+
+	private final PreparedStatementCache cache = new PreparedStatementCache(10);
+
+	@Test
+	public void testPrepare_Cached() {
+		try (SessionLease lease = registry.acquire("test", "test1234")) {
+			Session session = lease.getSession();
+			Optional<PreparedStatement> prepared = cache.prepare(session, "select * from cqldemo.mybooks where id=?");
+			assertTrue(prepared.isPresent());
+			assertSame(prepared.get(), cache.prepare(session, "select * from cqldemo.mybooks where id=?").get());
+		}
+	}
+
+	@Test
+	public void testPrepare_InvalidQuery() {
+		try (SessionLease lease = registry.acquire("test", "test1234")) {
+			Session session = lease.getSession();
+			assertFalse(cache.prepare(session, "select * frm cqldemo.mybooks").isPresent());
+			assertFalse(cache.prepare(session, "select * from cqldemo.mybooks where bara=?").isPresent());
+		}
+	}
+}
@@ -17,6 +17,7 @@
 package org.cyclop.service.completion;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -25,6 +26,7 @@ import java.util.Collection;
 import javax.inject.Inject;
 
 import org.cyclop.model.CassandraVersion;
+import org.cyclop.model.CompletionSession;
 import org.cyclop.model.ContextCqlCompletion;
 import org.cyclop.model.CqlKeyword;
 import org.cyclop.model.CqlKeywordValue;
@@ -778,6 +780,38 @@ public class TestCompletionService extends AbstractTestCase {
 		vh.verifyContainsOnlyKeywords(cmp, CqlKeyword.Def.WHERE.value, CqlKeyword.Def.USING_TIMESTAMP.value);
 	}
 
+	@Test
+	public void testFindCompletion_SessionTyping() {
+		String query = "select * from cqldemo.mybooks where pages=2 and title='abc' order by pages";
+		CompletionSession session = new CompletionSession();
+		for (int cursor = 0; cursor < query.length(); cursor++) {
+			verifySessionCompletion(query.substring(0, cursor + 1), cursor, session);
+		}
+		assertFalse(session.toString(), session.getSteps().isEmpty());
+	}
+
+	@Test
+	public void testFindCompletion_SessionEdits() {
+		CompletionSession session = new CompletionSession();
+		String[] edits = { "select * from cqldemo.mybooks where pages=2", "select * from cqldemo.mybooks where ",
+				"select * from cqldemo.mybooks wh", "select * fr", "select * from cqldemo.mybooks order by ",
+				"select id, title from cqldemo.mybooks where ", "insert into cqldemo.mybooks (id) values", "sel",
+				"select * from cqldemo.mybooks where pages=2" };
+		for (String edit : edits) {
+			verifySessionCompletion(edit, edit.length() - 1, session);
+
+			// edit in the middle of the query, cursor at the end
+			String changed = edit.replaceFirst("\\*", "id");
+			verifySessionCompletion(changed, changed.length() - 1, session);
+		}
+	}
+
+	private void verifySessionCompletion(String query, int cursor, CompletionSession session) {
+		CqlQuery cqlQuery = new CqlQuery(CqlQueryType.UNKNOWN, query);
+		ContextCqlCompletion expected = cs.findCompletion(cqlQuery, cursor);
+		assertEquals(query + " -> " + session, expected, cs.findCompletion(cqlQuery, cursor, session));
+	}
+
 	private void verifyDropIndexAfterDrop(ContextCqlCompletion completion) {
 		vh.verifyFullAndMinCompletionTheSame(completion, 5);
 
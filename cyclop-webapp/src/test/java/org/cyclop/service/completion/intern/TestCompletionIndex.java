@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.completion.intern;
+
+import static org.junit.Assert.assertEquals;
+
+import org.cyclop.model.CqlColumnName;
+import org.cyclop.model.CqlPart;
+import org.cyclop.model.CqlTable;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/** @author Maciej Miklas */
+public class TestCompletionIndex {
+
+	private final ImmutableList<CqlPart> hint = ImmutableList.of(new CqlColumnName("id"), new CqlColumnName(
+			"first_name"), new CqlColumnName("last_name"), new CqlColumnName("name"), new CqlColumnName("firstname"),
+			new CqlColumnName("author_id"), new CqlTable("cqldemo.mybooks"));
+
+	private final CompletionIndex index = new CompletionIndex(hint);
+
+	@Test
+	public void testFindBest_EmptyToken() {
+		assertEquals(hint.subList(0, 3), index.findBest("", 3));
+		assertEquals(hint, index.findBest("", 100));
+	}
+
+	@Test
+	public void testFindBest_NoMatch() {
+		assertEquals(hint.subList(0, 2), index.findBest("xyz", 2));
+	}
+
+	@Test
+	public void testFindBest_Ranking() {
+		assertEquals(names("name", "last_name", "first_name", "firstname"), names(index.findBest("name", 10)));
+		assertEquals(names("id", "author_id"), names(index.findBest("id", 10)));
+		assertEquals(names("firstname", "first_name"), names(index.findBest("first", 10)));
+	}
+
+	@Test
+	public void testFindBest_SegmentPrefix() {
+		assertEquals(names("cqldemo.mybooks"), names(index.findBest("my", 10)));
+		assertEquals(names("author_id"), names(index.findBest("author_i", 10)));
+	}
+
+	@Test
+	public void testFindBest_Similar() {
+		assertEquals(names("first_name", "last_name", "firstname"), names(index.findBest("fist_name", 10)));
+	}
+
+	@Test
+	public void testFindBest_Limit() {
+		assertEquals(names("name", "last_name"), names(index.findBest("name", 2)));
+		assertEquals(names("name"), names(index.findBest("name", 1)));
+	}
+
+	private static ImmutableList<String> names(String... names) {
+		return ImmutableList.copyOf(names);
+	}
+
+	private static ImmutableList<String> names(ImmutableList<CqlPart> parts) {
+		ImmutableList.Builder<String> names = ImmutableList.builder();
+		parts.forEach(p -> names.add(p.partLc));
+		return names.build();
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.completion.intern.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/** @author Maciej Miklas */
+public class TestKeywordTrie {
+
+	private final ImmutableList<String> keywords = ImmutableList.of("select", "from", "where", "order by", "or",
+			"he", "she", "hers", "create", "create table");
+
+	private final KeywordTrie trie = new KeywordTrie(keywords);
+
+	@Test
+	public void testIndexOfMatchesString() {
+		String[] texts = { "", "select * from cqldemo.mybooks where id=1 order by pages",
+				"select from from fromfrom", "ushers and she or her", "orororder by", "create table where" };
+		for (String text : texts) {
+			KeywordTrie.Occurrences occurrences = trie.scan(text);
+			for (int id = 0; id < keywords.size(); id++) {
+				for (int from = -1; from <= text.length() + 1; from++) {
+					assertEquals(text + " -> " + keywords.get(id) + " from " + from,
+							text.indexOf(keywords.get(id), from), occurrences.indexOf(id, from));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFindPrefixes() {
+		assertArrayEquals(new int[] { 8, 9 }, trie.findPrefixes("create table mybooks"));
+		assertArrayEquals(new int[] { 8 }, trie.findPrefixes("create index"));
+		assertArrayEquals(new int[] { 0 }, trie.findPrefixes("select"));
+		assertArrayEquals(new int[] { 5, 7 }, trie.findPrefixes("hers"));
+		assertArrayEquals(new int[0], trie.findPrefixes("selec"));
+		assertArrayEquals(new int[0], trie.findPrefixes(" select"));
+		assertArrayEquals(new int[0], trie.findPrefixes(""));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyKeyword() {
+		new KeywordTrie(ImmutableList.of("select", ""));
+	}
+}
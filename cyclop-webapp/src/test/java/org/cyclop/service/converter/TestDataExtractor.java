@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.converter;
+
+import static org.cyclop.common.Gullectors.toImmutableList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.cyclop.model.CqlColumnType;
+import org.cyclop.model.CqlDataType;
+import org.cyclop.model.CqlExtendedColumnName;
+import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryResult;
+import org.cyclop.model.CqlQueryType;
+import org.cyclop.service.cassandra.QueryService;
+import org.cyclop.test.AbstractTestCase;
+import org.junit.Test;
+
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.Row;
+import com.google.common.collect.ImmutableList;
+
+/** @author Maciej Miklas */
+public class TestDataExtractor extends AbstractTestCase {
+
+	@Inject
+	private DataExtractor extractor;
+
+	@Inject
+	private DataConverter converter;
+
+	@Inject
+	private QueryService qs;
+
+	@Test
+	public void testReadersMatchExtractor() {
+		CqlQueryResult result = qs.execute(new CqlQuery(CqlQueryType.SELECT,
+				"select * from cqldemo.mybooks where pages=2299"), false);
+		ImmutableList<CqlExtendedColumnName> columns = result.rowMetadata.columns;
+		ImmutableList<ColumnReader> readers = null;
+		int rows = 0;
+		for (Row row : result) {
+			if (readers == null) {
+				readers = extractor.createReaders(columns, row.getColumnDefinitions());
+				assertEquals(columns.size(), readers.size());
+			}
+			for (int idx = 0; idx < columns.size(); idx++) {
+				CqlExtendedColumnName column = columns.get(idx);
+				ColumnReader reader = readers.get(idx);
+				assertEquals(column, reader.column);
+				assertEquals(row.isNull(column.partLc), reader.isNull(row));
+				assertEquals(extract(row, column), read(reader, row));
+				if (!column.dataType.isCollection()) {
+					assertEquals(converter.convert(extractor.extractSingleValue(row, column).value),
+							reader.format(row));
+				}
+			}
+			rows++;
+		}
+		assertTrue(rows > 0);
+	}
+
+	@Test
+	public void testReadersFormatNullAsEmpty() {
+		CqlQueryResult result = qs.execute(new CqlQuery(CqlQueryType.SELECT, "select * from cqldemo.mybooks"), false);
+		int nulls = 0;
+		for (Row row : result) {
+			// all columns of the row, also those without value in the first rows
+			ColumnDefinitions definitions = row.getColumnDefinitions();
+			List<CqlExtendedColumnName> columns = new ArrayList<>();
+			for (int idx = 0; idx < definitions.size(); idx++) {
+				columns.add(new CqlExtendedColumnName(CqlColumnType.REGULAR, CqlDataType.create(definitions
+						.getType(idx)), definitions.getName(idx)));
+			}
+			for (ColumnReader reader : extractor.createReaders(columns, definitions)) {
+				if (!reader.column.dataType.isCollection() && reader.isNull(row)) {
+					assertEquals(reader.column.part, "", reader.format(row));
+					nulls++;
+				}
+			}
+		}
+		assertTrue(nulls > 0);
+	}
+
+	@Test
+	public void testMetadataCarriesIndex() {
+		CqlQueryResult result = qs.execute(new CqlQuery(CqlQueryType.SELECT,
+				"select * from cqldemo.mybooks where pages=2299"), false);
+		int rows = 0;
+		for (Row row : result) {
+			for (CqlExtendedColumnName column : result.rowMetadata.columns) {
+				assertNotEquals(CqlExtendedColumnName.NO_INDEX, column.index);
+				assertEquals(row.getColumnDefinitions().getIndexOf(Metadata.quote(column.part)), column.index);
+				assertEquals(column.index, extractor.indexOf(row, column));
+
+				// column without index - like one created from schema - is being found by its name
+				CqlExtendedColumnName byName = new CqlExtendedColumnName(column.columnType, column.dataType,
+						column.part);
+				assertEquals(column, byName);
+				assertEquals(column.index, extractor.indexOf(row, byName));
+				assertEquals(extract(row, column), extract(row, byName));
+			}
+			rows++;
+		}
+		assertTrue(rows > 0);
+	}
+
+	/** @return value extracted trough one of the typed extractor methods, in the form returned by column reader */
+	private Object extract(Row row, CqlExtendedColumnName column) {
+		switch (column.dataType.name) {
+		case SET:
+		case LIST:
+			return extractor.extractCollection(row, column).stream().map(val -> val.value)
+					.collect(toImmutableList());
+		case MAP:
+			Map<Object, Object> map = new HashMap<>();
+			extractor.extractMap(row, column).forEach((key, val) -> map.put(key.value, val.value));
+			return map;
+		default:
+			return extractor.isNull(row, column) ? null : extractor.extractSingleValue(row, column).value;
+		}
+	}
+
+	private static Object read(ColumnReader reader, Row row) {
+		Object read = reader.read(row);
+		return read instanceof Collection ? ImmutableList.copyOf((Collection<?>) read) : read;
+	}
+}
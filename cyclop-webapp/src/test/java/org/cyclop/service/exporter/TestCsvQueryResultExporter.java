@@ -17,22 +17,61 @@
 package org.cyclop.service.exporter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.inject.Inject;
 
+import org.cyclop.model.CqlColumnType;
+import org.cyclop.model.CqlDataType;
+import org.cyclop.model.CqlExtendedColumnName;
+import org.cyclop.model.CqlKeySpace;
 import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryResult;
 import org.cyclop.model.CqlQueryType;
+import org.cyclop.model.CqlRowMetadata;
+import org.cyclop.model.CqlTable;
+import org.cyclop.model.exception.ServiceException;
+import org.cyclop.service.cassandra.QueryService;
+import org.cyclop.service.exporter.model.ExportCheckpoint;
 import org.cyclop.test.AbstractTestCase;
 import org.junit.Test;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.Row;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 public class TestCsvQueryResultExporter extends AbstractTestCase {
 
 	@Inject
 	private CsvQueryResultExporter exporter;
 
+	@Inject
+	private QueryService qs;
+
 	@Test
 	public void testExportAsCsv_ResultEmpty() {
 		CqlQuery query = new CqlQuery(CqlQueryType.SELECT, "select id from cqldemo.mybooks where pages=-1");
@@ -204,4 +243,214 @@ public class TestCsvQueryResultExporter extends AbstractTestCase {
 			}
 		}
 	}
+
+	@Test
+	public void testExportAsCsv_FetchedRowsAndPagingState() throws Exception {
+		CqlQuery query = new CqlQuery(CqlQueryType.SELECT, "select * from cqldemo.mybooks");
+		String expected = exporter.exportAsCsv(query);
+
+		// second page has been partially read
+		CqlQueryResult result = qs.execute(query, false, 2, Optional.empty());
+		List<Row> fetched = new ArrayList<>();
+		Iterator<Row> it = result.iterator();
+		for (int i = 0; i < 3; i++) {
+			fetched.add(it.next());
+		}
+		assertEquals(2, result.getPagingStateOffset());
+
+		assertEquals(expected, exportDisplayed(query, result, fetched));
+	}
+
+	@Test
+	public void testExportAsCsv_AllRowsFetched() throws Exception {
+		CqlQuery query = new CqlQuery(CqlQueryType.SELECT, "select * from cqldemo.mybooks where pages=2299");
+		String expected = exporter.exportAsCsv(query);
+
+		CqlQueryResult result = qs.execute(query, false);
+		List<Row> fetched = ImmutableList.copyOf(result.iterator());
+
+		assertEquals(expected, exportDisplayed(query, result, fetched));
+	}
+
+	@Test
+	public void testExportAsCsv_NothingFetched() throws Exception {
+		CqlQuery query = new CqlQuery(CqlQueryType.SELECT, "select * from cqldemo.mybooks");
+		String expected = exporter.exportAsCsv(query);
+
+		CqlQueryResult result = qs.execute(query, false);
+		assertEquals(expected, exportDisplayed(query, result, ImmutableList.of()));
+	}
+
+	@Test
+	public void testExportTableAsCsv_SameRowsAsQuery() throws Exception {
+		// table export contains all columns of the table, also those without values
+		String queryResult = exportAllColumns(new CqlQuery(CqlQueryType.SELECT, "select * from cqldemo.mybooks"));
+		ExportCheckpoint checkpoint = new ExportCheckpoint();
+		String tableResult = exportTable(checkpoint);
+
+		String[] queryLines = queryResult.split("\n");
+		String[] tableLines = tableResult.split("\n");
+		assertEquals("SELECT * FROM \"cqldemo\".\"mybooks\"", tableLines[0]);
+		assertEquals(queryLines[1], tableLines[1]);
+		assertEquals(queryLines[2], tableLines[2]);
+		assertEquals(toRows(queryLines), toRows(tableLines));
+		assertEquals(queryLines.length, tableLines.length);
+
+		assertTrue(checkpoint.isFinished());
+		assertEquals(16, checkpoint.getRangesCount());
+	}
+
+	@Test
+	public void testExportTableAsCsv_ResumeFinished() throws Exception {
+		ExportCheckpoint checkpoint = new ExportCheckpoint();
+		exportTable(checkpoint);
+		assertTrue(checkpoint.isFinished());
+
+		assertEquals("", exportTable(checkpoint));
+		assertTrue(checkpoint.isFinished());
+	}
+
+	@Test
+	public void testExportTableAsCsv_ResumeAfterFailedRange() throws Exception {
+		Object target = AopUtils.isAopProxy(exporter) ? ((Advised) exporter).getTargetSource().getTarget() : exporter;
+		AtomicBoolean failed = new AtomicBoolean();
+		ExportCheckpoint checkpoint = new ExportCheckpoint();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		// one range fails after its first row has been read
+		ReflectionTestUtils.setField(target, "queryService", failingRange(failed));
+		try {
+			exporter.exportTableAsCsv(new CqlTable(new CqlKeySpace("cqldemo"), "mybooks"), out, checkpoint);
+			fail("Export should fail");
+		} catch (ServiceException e) {
+			assertTrue(failed.get());
+			assertFalse(checkpoint.isFinished());
+		} finally {
+			ReflectionTestUtils.setField(target, "queryService", qs);
+		}
+
+		String resumed = out.toString("UTF-8") + exportTable(checkpoint);
+		assertTrue(checkpoint.isFinished());
+
+		String[] queryLines = exportAllColumns(new CqlQuery(CqlQueryType.SELECT, "select * from cqldemo.mybooks"))
+				.split("\n");
+		String[] resumedLines = resumed.split("\n");
+		assertEquals("SELECT * FROM \"cqldemo\".\"mybooks\"", resumedLines[0]);
+		assertEquals(queryLines[2], resumedLines[2]);
+		assertEquals(sortedRows(queryLines), sortedRows(resumedLines));
+	}
+
+	@Test
+	public void testExportTableAsCsv_SparseTable() throws Exception {
+		qs.executeSimple(new CqlQuery(CqlQueryType.CREATE_TABLE,
+				"create table cqldemo.sparseexport (id int primary key, v1 int, v2 int, v3 int, v4 int)"), false);
+		try {
+			// each row has value in different column - ranges discover different columns from their rows
+			for (int id = 1; id <= 4; id++) {
+				qs.executeSimple(new CqlQuery(CqlQueryType.INSERT, "insert into cqldemo.sparseexport (id, v" + id
+						+ ") values (" + id + ", " + id + ")"), false);
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			exporter.exportTableAsCsv(new CqlTable(new CqlKeySpace("cqldemo"), "sparseexport"), out,
+					new ExportCheckpoint());
+			String[] lines = out.toString("UTF-8").split("\n");
+
+			List<String> header = cells(lines[2]);
+			assertEquals(header.toString(), 5, header.size());
+			assertEquals(7, lines.length);
+			for (String line : Arrays.asList(lines).subList(3, lines.length)) {
+				List<String> row = cells(line);
+				String id = row.get(header.indexOf("id"));
+				for (int col = 1; col <= 4; col++) {
+					String value = row.get(header.indexOf("v" + col));
+					assertEquals(line, id.equals(Integer.toString(col)) ? id : "", value);
+				}
+			}
+		} finally {
+			qs.executeSimple(new CqlQuery(CqlQueryType.DROP_TABLE, "drop table cqldemo.sparseexport"), false);
+		}
+	}
+
+	/** @return query export with all columns of result, and not only those having values in its first rows */
+	private String exportAllColumns(CqlQuery query) throws UnsupportedEncodingException {
+		CqlQueryResult result = qs.execute(query, false);
+		Iterator<Row> rows = result.iterator();
+		Row first = rows.next();
+		ColumnDefinitions definitions = first.getColumnDefinitions();
+		ImmutableList.Builder<CqlExtendedColumnName> columns = ImmutableList.builder();
+		for (int idx = 0; idx < definitions.size(); idx++) {
+			columns.add(new CqlExtendedColumnName(CqlColumnType.REGULAR, CqlDataType.create(definitions.getType(idx)),
+					definitions.getName(idx)));
+		}
+		CqlQueryResult allColumns = new CqlQueryResult(Iterators.concat(Iterators.singletonIterator(first), rows),
+				new CqlRowMetadata(columns.build(), null));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		exporter.exportAsCsv(query, allColumns, ImmutableList.of(), out);
+		return out.toString("UTF-8");
+	}
+
+	private static List<String> cells(String line) {
+		List<String> cells = new ArrayList<>();
+		for (String cell : line.split(";", -1)) {
+			cells.add(cell.replace("\"", ""));
+		}
+		return cells;
+	}
+
+	private String exportDisplayed(CqlQuery query, CqlQueryResult result, List<Row> fetched)
+			throws UnsupportedEncodingException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		exporter.exportAsCsv(query, result, fetched, out);
+		return out.toString("UTF-8");
+	}
+
+	private String exportTable(ExportCheckpoint checkpoint) throws UnsupportedEncodingException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		exporter.exportTableAsCsv(new CqlTable(new CqlKeySpace("cqldemo"), "mybooks"), out, checkpoint);
+		return out.toString("UTF-8");
+	}
+
+	/** @return query service returning result, which fails after first row, for first not empty token range */
+	private QueryService failingRange(AtomicBoolean failed) {
+		return (QueryService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { QueryService.class },
+				(proxy, method, args) -> {
+					Object res;
+					try {
+						res = method.invoke(qs, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+					if (!method.getName().equals("executeAsync")) {
+						return res;
+					}
+					CqlQueryResult result = (CqlQueryResult) ((ListenableFuture<?>) res).get();
+					List<Row> rows = ImmutableList.copyOf(result.iterator());
+					Iterator<Row> rowsIt = rows.iterator();
+					if (!rows.isEmpty() && failed.compareAndSet(false, true)) {
+						rowsIt = Iterators.concat(Iterators.singletonIterator(rows.get(0)), new Iterator<Row>() {
+							@Override
+							public boolean hasNext() {
+								throw new IllegalStateException("Range failed");
+							}
+
+							@Override
+							public Row next() {
+								throw new IllegalStateException("Range failed");
+							}
+						});
+					}
+					return Futures.immediateFuture(new CqlQueryResult(rowsIt, result.rowMetadata));
+				});
+	}
+
+	private List<String> sortedRows(String[] lines) {
+		List<String> rows = new ArrayList<>(Arrays.asList(lines).subList(3, lines.length));
+		Collections.sort(rows);
+		return rows;
+	}
+
+	private Set<String> toRows(String[] lines) {
+		return new HashSet<>(Arrays.asList(lines).subList(3, lines.length));
+	}
 }
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import javax.inject.Inject;
+
+import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryType;
+import org.cyclop.model.exception.ServiceException;
+import org.cyclop.service.exporter.model.ExportFormat;
+import org.cyclop.service.exporter.model.ExportJob;
+import org.cyclop.test.AbstractTestCase;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+/** @author Maciej Miklas */
+public class TestExportJobService extends AbstractTestCase {
+
+	private final static CqlQuery QUERY = new CqlQuery(CqlQueryType.SELECT,
+			"select id, pages, authors, price, publishdate from cqldemo.mybooks where pages=2299");
+
+	@Inject
+	private ExportJobService exportJobService;
+
+	@Inject
+	private CsvQueryResultExporter csvExporter;
+
+	@Test
+	public void testExportCsv() throws Exception {
+		String id = exportJobService.submit(QUERY, ExportFormat.CSV);
+		ExportJob job = awaitFinished(id);
+		assertEquals(ExportJob.State.COMPLETED, job.state);
+		assertEquals(5, job.rows);
+		assertTrue(job.finishedMillis >= job.startedMillis);
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		csvExporter.exportAsCsv(QUERY, expected);
+
+		ByteArrayOutputStream exported = new ByteArrayOutputStream();
+		try (InputStream in = exportJobService.openResult(id)) {
+			ByteStreams.copy(in, exported);
+		}
+		assertEquals(expected.toString("UTF-8"), exported.toString("UTF-8"));
+		assertEquals(exported.size(), job.bytes);
+
+		exportJobService.remove(id);
+		assertFalse(exportJobService.getJobs().stream().anyMatch(j -> j.id.equals(id)));
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		String id = exportJobService.submit(QUERY, ExportFormat.JSON_LINES);
+		exportJobService.cancel(id);
+		ExportJob job = awaitFinished(id);
+		assertEquals(ExportJob.State.CANCELLED, job.state);
+		exportJobService.remove(id);
+	}
+
+	@Test
+	public void testThrottle() throws Exception {
+		String id = exportJobService.submit(QUERY, ExportFormat.COLUMNAR);
+		ExportJob job = awaitFinished(id);
+		assertEquals(ExportJob.State.COMPLETED, job.state);
+
+		// 5 rows limited to 10 per second - first one is not delayed
+		assertTrue(job.finishedMillis - job.startedMillis >= 300);
+		exportJobService.remove(id);
+	}
+
+	@Test(expected = ServiceException.class)
+	public void testOpenResultNotExisting() {
+		exportJobService.openResult("not-existing");
+	}
+
+	private ExportJob awaitFinished(String id) throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			ExportJob job = exportJobService.getJobs().stream().filter(j -> j.id.equals(id)).findFirst().get();
+			if (job.state.isFinished()) {
+				return job;
+			}
+			Thread.sleep(100);
+		}
+		throw new AssertionError("Export job did not finish: " + id);
+	}
+}
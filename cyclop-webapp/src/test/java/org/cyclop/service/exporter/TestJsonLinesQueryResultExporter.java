@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryResult;
+import org.cyclop.model.CqlQueryType;
+import org.cyclop.service.cassandra.QueryService;
+import org.cyclop.test.AbstractTestCase;
+import org.junit.Test;
+
+import com.datastax.driver.core.Row;
+import com.google.common.collect.ImmutableList;
+
+/** @author Maciej Miklas */
+public class TestJsonLinesQueryResultExporter extends AbstractTestCase {
+
+	private final static CqlQuery QUERY = new CqlQuery(CqlQueryType.SELECT,
+			"select id, pages, authors, price, publishdate from cqldemo.mybooks where pages=2299");
+
+	@Inject
+	private JsonLinesQueryResultExporter exporter;
+
+	@Inject
+	private QueryService qs;
+
+	@Test
+	public void testExportTypedValues() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		exporter.exportAsJsonLines(QUERY, out);
+		String[] lines = out.toString("UTF-8").split("\n");
+		assertEquals(5, lines.length);
+
+		ObjectMapper mapper = new ObjectMapper();
+		JsonNode first = mapper.readTree(lines[0]);
+		assertEquals("43da06c5-bf5c-4468-b92c-cb8aacb29675", first.get("id").getTextValue());
+		assertTrue(first.get("pages").isInt());
+		assertEquals(2299, first.get("pages").getIntValue());
+		assertTrue(first.get("authors").isArray());
+		assertEquals(4, first.get("authors").size());
+		assertEquals("Gambardella, Matthew", first.get("authors").get(2).getTextValue());
+		assertTrue(first.get("price").isObject());
+		assertEquals(3.45, first.get("price").get("D").getDoubleValue(), 0);
+		assertTrue(first.get("publishdate").getTextValue().endsWith("Z"));
+
+		JsonNode second = mapper.readTree(lines[1]);
+		assertEquals("0f6939a7-62f7-4ed0-a909-6fc302764c8d", second.get("id").getTextValue());
+		assertTrue(second.get("authors").isNull());
+		assertEquals(34.0, second.get("price").get("EU").getDoubleValue(), 0);
+		assertTrue(second.get("publishdate").isNull());
+	}
+
+	@Test
+	public void testExportDisplayed() throws Exception {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		exporter.exportAsJsonLines(QUERY, expected);
+
+		CqlQueryResult result = qs.execute(QUERY, false);
+		List<Row> fetched = ImmutableList.of(result.iterator().next());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		exporter.exportAsJsonLines(QUERY, result, fetched, out);
+
+		assertEquals(expected.toString("UTF-8"), out.toString("UTF-8"));
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter.intern;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryType;
+import org.cyclop.service.exporter.ColumnarQueryResultExporter;
+import org.cyclop.test.AbstractTestCase;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/** @author Maciej Miklas */
+public class TestColumnarQueryResultExporter extends AbstractTestCase {
+
+	private final static String QUERY = "select id, pages, authors, price, publishdate from cqldemo.mybooks "
+			+ "where pages=2299";
+
+	@Inject
+	private ColumnarQueryResultExporter exporter;
+
+	@Test
+	public void testExportAndRead() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		exporter.exportAsColumnar(new CqlQuery(CqlQueryType.SELECT, QUERY), out);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+
+		byte[] magic = new byte[4];
+		in.readFully(magic);
+		assertArrayEquals(ColumnarQueryResultExporterImpl.MAGIC, magic);
+		assertEquals(ColumnarQueryResultExporterImpl.VERSION, in.readByte());
+		assertEquals(QUERY, ColumnarEncoding.TEXT.read(in));
+
+		List<Column> columns = readColumns(in);
+		assertEquals(5, columns.size());
+		assertColumn(columns.get(0), "id", ColumnarQueryResultExporterImpl.KIND_SINGLE, ColumnarEncoding.UUID, null);
+		assertColumn(columns.get(1), "pages", ColumnarQueryResultExporterImpl.KIND_SINGLE, ColumnarEncoding.INT, null);
+		assertColumn(columns.get(2), "authors", ColumnarQueryResultExporterImpl.KIND_SET, ColumnarEncoding.TEXT,
+				null);
+		assertColumn(columns.get(3), "price", ColumnarQueryResultExporterImpl.KIND_MAP, ColumnarEncoding.TEXT,
+				ColumnarEncoding.DOUBLE);
+		assertColumn(columns.get(4), "publishdate", ColumnarQueryResultExporterImpl.KIND_SINGLE,
+				ColumnarEncoding.TIMESTAMP, null);
+
+		List<List<Object>> rows = readRows(in, columns);
+		assertEquals(5, rows.size());
+
+		List<Object> first = rows.get(0);
+		assertEquals(UUID.fromString("43da06c5-bf5c-4468-b92c-cb8aacb29675"), first.get(0));
+		assertEquals(2299, first.get(1));
+		assertEquals(ImmutableList.of("Anna Zajac", "Fryderyk Zajac", "Gambardella, Matthew", "Marcin Miklas 2"),
+				first.get(2));
+		assertEquals(ImmutableMap.of("D", 3.45, "E", 2.11, "F", 4.3), first.get(3));
+
+		List<Object> second = rows.get(1);
+		assertEquals(UUID.fromString("0f6939a7-62f7-4ed0-a909-6fc302764c8d"), second.get(0));
+		assertNull(second.get(2));
+		assertEquals(ImmutableMap.of("DE", 4.0, "EU", 34.0), second.get(3));
+		assertNull(second.get(4));
+	}
+
+	@Test
+	public void testEncodings() throws Exception {
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bout);
+		List<Object> values = Arrays.asList(true, 12, 13L, 1.5f, 2.5d, UUID.randomUUID(), new Date(123),
+				"text \u017c", new BigDecimal("-12.345"), new BigInteger("-123456789012345678901"),
+				ByteBuffer.wrap(new byte[] { 1, 2, 3 }), InetAddress.getByName("127.0.0.1"));
+		for (ColumnarEncoding enc : ColumnarEncoding.values()) {
+			enc.write(out, values.get(enc.ordinal()));
+		}
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bout.toByteArray()));
+		for (ColumnarEncoding enc : ColumnarEncoding.values()) {
+			assertEquals(values.get(enc.ordinal()), enc.read(in));
+			assertEquals(enc, ColumnarEncoding.forCode(enc.code));
+		}
+	}
+
+	private static void assertColumn(Column column, String name, byte kind, ColumnarEncoding encoding,
+			ColumnarEncoding valueEncoding) {
+		assertEquals(name, column.name);
+		assertEquals(kind, column.kind);
+		assertEquals(encoding, column.encoding);
+		assertEquals(valueEncoding, column.valueEncoding);
+	}
+
+	private static List<Column> readColumns(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		List<Column> columns = new ArrayList<>();
+		for (int idx = 0; idx < count; idx++) {
+			Column column = new Column();
+			column.name = (String) ColumnarEncoding.TEXT.read(in);
+			column.kind = in.readByte();
+			column.encoding = ColumnarEncoding.forCode(in.readByte());
+			if (column.kind == ColumnarQueryResultExporterImpl.KIND_MAP) {
+				column.valueEncoding = ColumnarEncoding.forCode(in.readByte());
+			}
+			columns.add(column);
+		}
+		return columns;
+	}
+
+	private static List<List<Object>> readRows(DataInputStream in, List<Column> columns) throws IOException {
+		List<List<Object>> rows = new ArrayList<>();
+		int groupSize;
+		while ((groupSize = in.readInt()) > 0) {
+			List<List<Object>> group = new ArrayList<>();
+			for (int idx = 0; idx < groupSize; idx++) {
+				group.add(new ArrayList<>());
+			}
+			for (Column column : columns) {
+				byte[] present = new byte[(groupSize + 7) / 8];
+				in.readFully(present);
+				for (int idx = 0; idx < groupSize; idx++) {
+					boolean isPresent = (present[idx / 8] & (1 << (idx % 8))) != 0;
+					group.get(idx).add(isPresent ? readValue(in, column) : null);
+				}
+			}
+			rows.addAll(group);
+		}
+		assertEquals(-1, in.read());
+		return rows;
+	}
+
+	private static Object readValue(DataInputStream in, Column column) throws IOException {
+		if (column.kind == ColumnarQueryResultExporterImpl.KIND_SINGLE) {
+			return column.encoding.read(in);
+		}
+		int size = in.readInt();
+		if (column.kind == ColumnarQueryResultExporterImpl.KIND_MAP) {
+			Map<Object, Object> map = new LinkedHashMap<>();
+			for (int idx = 0; idx < size; idx++) {
+				map.put(column.encoding.read(in), column.valueEncoding.read(in));
+			}
+			return map;
+		}
+		List<Object> list = new ArrayList<>();
+		for (int idx = 0; idx < size; idx++) {
+			list.add(column.encoding.read(in));
+		}
+		return list;
+	}
+
+	private final static class Column {
+		String name;
+		byte kind;
+		ColumnarEncoding encoding;
+		ColumnarEncoding valueEncoding;
+	}
+}
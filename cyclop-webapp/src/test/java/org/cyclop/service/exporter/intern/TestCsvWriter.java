@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter.intern;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+
+import org.cyclop.common.AppConfig;
+import org.junit.Test;
+
+/** @author Maciej Miklas */
+public class TestCsvWriter {
+
+	@Test
+	public void testValue_TrimAndRemoveCr() throws Exception {
+		assertEquals("\"ab\"", write(config(true, true), " \n a\r\nb \r\n"));
+	}
+
+	@Test
+	public void testValue_NoTrim() throws Exception {
+		assertEquals("\" ab \"", write(config(false, true), " a\nb "));
+	}
+
+	@Test
+	public void testValue_KeepCr() throws Exception {
+		assertEquals("\"a\nb\"", write(config(true, false), " a\nb "));
+	}
+
+	@Test
+	public void testValue_Null() throws Exception {
+		assertEquals("\"\"", write(config(true, true), null));
+	}
+
+	@Test
+	public void testNestedValues() throws Exception {
+		StringWriter buf = new StringWriter();
+		try (CsvWriter out = new CsvWriter(buf, config(true, true))) {
+			out.startValue().value(" a ").separator(", ").value("b\n").endValue().raw(";");
+		}
+		assertEquals("\"\"a\", \"b\"\";", buf.toString());
+	}
+
+	private static String write(AppConfig.QueryExport conf, String val) throws Exception {
+		StringWriter buf = new StringWriter();
+		try (CsvWriter out = new CsvWriter(buf, conf)) {
+			out.value(val);
+		}
+		return buf.toString();
+	}
+
+	private static AppConfig.QueryExport config(boolean trim, boolean removeCrChars) throws Exception {
+		return new AppConfig.QueryExport("export.csv", "yyyy-MM-dd", "CR====CR", "CR", ";", ",", "=", "\"", "\"", 10,
+				removeCrChars, trim, "UTF-8", 16, 4, false, 6, 1024, "export.cqlc", 100,
+				"export.jsonl");
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.exporter.intern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/** @author Maciej Miklas */
+public class TestSpoolWriter {
+
+	@Test
+	public void testInMemory() throws Exception {
+		StringWriter target = new StringWriter();
+		try (SpoolWriter spool = new SpoolWriter(StandardCharsets.UTF_8, 10)) {
+			spool.write("abc");
+			spool.write(new char[] { 'x', 'd', 'e' }, 1, 2);
+			assertFalse(spool.isSpilled());
+			spool.transferTo(target);
+		}
+		assertEquals("abcde", target.toString());
+	}
+
+	@Test
+	public void testSpilledToFile() throws Exception {
+		StringWriter target = new StringWriter();
+		try (SpoolWriter spool = new SpoolWriter(StandardCharsets.UTF_8, 4)) {
+			spool.write("abc");
+			spool.write("d\u00e9f");
+			assertTrue(spool.isSpilled());
+			spool.write("gh", 1, 1);
+			spool.transferTo(target);
+		}
+		assertEquals("abcd\u00e9fh", target.toString());
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryResult;
+import org.cyclop.model.CqlQueryType;
+import org.cyclop.service.cassandra.QueryService;
+import org.cyclop.service.importer.model.ImportConfig;
+import org.cyclop.service.importer.model.ImportStats;
+import org.junit.Test;
+
+import com.datastax.driver.core.Row;
+
+/** @author Maciej Miklas */
+public class TestBatchQueryImporter extends AbstractImporterCase {
+
+	@Inject
+	@Named(QueryImporter.IMPL_BATCH)
+	private QueryImporter importer;
+
+	@Inject
+	private QueryService queryService;
+
+	@Override
+	QueryImporter getImporter() {
+		return importer;
+	}
+
+	@Test
+	public void testBreakAfterError() throws Exception {
+		try (InputStream fio = getClass().getResourceAsStream("/cql/testImportOrdered.cql")) {
+			ResultConsumer rc = new ResultConsumer();
+			ImportStats stats = importer.importScript(fio, rc, new ImportConfig().withContinueWithErrors(false)
+					.withUpdateHistory(true));
+
+			assertEquals(rc.toString(), 3, rc.size());
+			assertEquals(rc.toString(), 1, rc.error.size());
+			assertEquals(rc.toString(), 2, rc.success.size());
+			assertEquals(rc.toString(), 1, stats.errorCount);
+			assertEquals(rc.toString(), 2, stats.successCount);
+		}
+	}
+
+	@Test
+	public void testImportOrdered() throws Exception {
+		try (InputStream fio = getClass().getResourceAsStream("/cql/testImportOrdered.cql")) {
+			ResultConsumer rc = new ResultConsumer();
+			ImportStats stats = importer.importScript(fio, rc, new ImportConfig().withContinueWithErrors(true)
+					.withUpdateHistory(true));
+
+			assertTrue(rc.toString(), rc.success.contains(new CqlQuery(CqlQueryType.UNKNOWN, "USE CqlDemo")));
+			for (int i = 1; i < 12; i++) {
+				String q1 = "ALTER TABLE MyBooks ADD tc_" + i + " varchar";
+				assertTrue(q1, rc.success.contains(new CqlQuery(CqlQueryType.UNKNOWN, q1)));
+			}
+			assertEquals(4, rc.error.size());
+			assertEquals(4, stats.errorCount);
+			assertEquals(2044, rc.success.size());
+			assertEquals(rc.success.size(), stats.successCount);
+		}
+	}
+
+	@Test
+	public void testImportSameCellTwice() throws Exception {
+		String where = " WHERE id=a9c3a5bd-fb3a-4f4c-9f2e-3b6f0c4a6e21;\n";
+		String script = "INSERT INTO CqlDemo.MyBooks (id, title, pages) VALUES (a9c3a5bd-fb3a-4f4c-9f2e-3b6f0c4a6e21, "
+				+ "'ccc', 3);\n" + "UPDATE CqlDemo.MyBooks SET title='bbb'" + where
+				+ "UPDATE CqlDemo.MyBooks SET genre='g1', pages=2" + where
+				+ "UPDATE CqlDemo.MyBooks SET title='aaa', pages=1" + where;
+
+		try (InputStream fio = new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8))) {
+			ResultConsumer rc = new ResultConsumer();
+			ImportStats stats = importer.importScript(fio, rc, new ImportConfig().withContinueWithErrors(true)
+					.withUpdateHistory(false));
+			assertEquals(rc.toString(), 0, stats.errorCount);
+			assertEquals(rc.toString(), 4, stats.successCount);
+		}
+
+		// the last write wins, even though greater values would win on timestamp tie
+		Row row = queryService.execute(new CqlQuery(CqlQueryType.SELECT, "select title, genre, pages from "
+				+ "CqlDemo.MyBooks where id=a9c3a5bd-fb3a-4f4c-9f2e-3b6f0c4a6e21")).iterator().next();
+		assertEquals("aaa", row.getString("title"));
+		assertEquals("g1", row.getString("genre"));
+		assertEquals(1, row.getInt("pages"));
+
+		queryService.execute(new CqlQuery(CqlQueryType.DELETE, "delete from CqlDemo.MyBooks"
+				+ " where id=a9c3a5bd-fb3a-4f4c-9f2e-3b6f0c4a6e21"));
+	}
+
+	@Test
+	public void testImportSameCellWrittenDifferently() throws Exception {
+		// the same key in different case and with leading zero
+		String script = "INSERT INTO CqlDemo.CompoundTest (id, id2, id3, deesc) VALUES "
+				+ "(5d1e2c3a-0b4f-4e7a-9c6d-1f2a3b4c5d6e, 1, 'x', 'ccc');\n"
+				+ "UPDATE CqlDemo.CompoundTest SET deesc='aaa' WHERE id=5D1E2C3A-0B4F-4E7A-9C6D-1F2A3B4C5D6E "
+				+ "AND id2=01 AND id3='x';\n";
+
+		try (InputStream fio = new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8))) {
+			ResultConsumer rc = new ResultConsumer();
+			ImportStats stats = importer.importScript(fio, rc, new ImportConfig().withContinueWithErrors(true)
+					.withUpdateHistory(false));
+			assertEquals(rc.toString(), 0, stats.errorCount);
+			assertEquals(rc.toString(), 2, stats.successCount);
+		}
+
+		Row row = queryService.execute(new CqlQuery(CqlQueryType.SELECT, "select deesc from CqlDemo.CompoundTest "
+				+ "where id=5d1e2c3a-0b4f-4e7a-9c6d-1f2a3b4c5d6e and id2=1 and id3='x'")).iterator().next();
+		assertEquals("aaa", row.getString("deesc"));
+
+		queryService.execute(new CqlQuery(CqlQueryType.DELETE, "delete from CqlDemo.CompoundTest"
+				+ " where id=5d1e2c3a-0b4f-4e7a-9c6d-1f2a3b4c5d6e"));
+	}
+
+	@Test
+	public void testImportIncorrectQueryInBatch() throws Exception {
+		String update = "UPDATE CqlDemo.MyCounter SET cval=cval+1 WHERE id=44a2054c-f98b-43a7-833d-0e1358fdaa82;\n";
+		String script = update + update
+				+ "UPDATE CqlDemo.MyCounter SET notExisting=notExisting+1 WHERE id=44a2054c-f98b-43a7-833d-0e1358fdaa82;\n"
+				+ update;
+
+		try (InputStream fio = new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8))) {
+			ResultConsumer rc = new ResultConsumer();
+			ImportStats stats = importer.importScript(fio, rc, new ImportConfig().withContinueWithErrors(true)
+					.withUpdateHistory(false));
+			assertEquals(rc.toString(), 1, stats.errorCount);
+			assertEquals(rc.toString(), 3, stats.successCount);
+		}
+
+		CqlQueryResult res = queryService.execute(new CqlQuery(CqlQueryType.SELECT,
+				"select cval from CqlDemo.MyCounter where id=44a2054c-f98b-43a7-833d-0e1358fdaa82"));
+		assertEquals(3, res.iterator().next().getLong("cval"));
+	}
+}
@@ -16,13 +16,21 @@
  */
 package org.cyclop.service.importer;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryResult;
+import org.cyclop.model.CqlQueryType;
+import org.cyclop.model.exception.QueryException;
+import org.cyclop.service.cassandra.QueryService;
 import org.cyclop.service.importer.model.ImportConfig;
 import org.cyclop.service.importer.model.ImportStats;
 import org.junit.Test;
@@ -34,6 +42,9 @@ public class TestParallelImporter extends AbstractImporterCase {
 	@Named(QueryImporter.IMPL_PARALLEL)
 	private QueryImporter importer;
 
+	@Inject
+	private QueryService queryService;
+
 	@Override
 	QueryImporter getImporter() {
 		return importer;
@@ -62,4 +73,52 @@ public class TestParallelImporter extends AbstractImporterCase {
 			assertTrue(rc.toString(), stats.successCount < 100);
 		}
 	}
+
+	@Test
+	public void testImportUseKeyspace() throws Exception {
+		StringBuilder script = new StringBuilder("USE CqlDemo;\n");
+		for (int idx = 0; idx < 20; idx++) {
+			script.append("UPDATE MyCounter SET cval=cval+1 WHERE id=44a2054c-f98b-43a7-833d-0e1358fdaa82;\n");
+		}
+
+		try (InputStream fio = new ByteArrayInputStream(script.toString().getBytes(StandardCharsets.UTF_8))) {
+			ResultConsumer rc = new ResultConsumer();
+			ImportStats stats = importer.importScript(fio, rc, new ImportConfig().withContinueWithErrors(false)
+					.withUpdateHistory(false));
+			assertEquals(rc.toString(), 0, stats.errorCount);
+			assertEquals(rc.toString(), 21, stats.successCount);
+		}
+
+		CqlQueryResult res = queryService.execute(new CqlQuery(CqlQueryType.SELECT,
+				"select cval from CqlDemo.MyCounter where id=44a2054c-f98b-43a7-833d-0e1358fdaa82"));
+		assertEquals(20, res.iterator().next().getLong("cval"));
+	}
+
+	@Test
+	public void testImportSchemaChangeBeforeInserts() throws Exception {
+		try {
+			queryService.executeSimple(new CqlQuery(CqlQueryType.DROP_TABLE, "drop table CqlDemo.ImportBarrier"),
+					false);
+		} catch (QueryException e) {
+			// table does not exist yet
+		}
+
+		StringBuilder script = new StringBuilder();
+		script.append("CREATE TABLE CqlDemo.ImportBarrier (id int PRIMARY KEY, val text);\n");
+		for (int idx = 0; idx < 30; idx++) {
+			script.append("INSERT INTO CqlDemo.ImportBarrier (id, val) VALUES (").append(idx).append(", 'v');\n");
+		}
+
+		try (InputStream fio = new ByteArrayInputStream(script.toString().getBytes(StandardCharsets.UTF_8))) {
+			ResultConsumer rc = new ResultConsumer();
+			ImportStats stats = importer.importScript(fio, rc, new ImportConfig().withContinueWithErrors(false)
+					.withUpdateHistory(false).withMaxInFlight(16));
+			assertEquals(rc.toString(), 0, stats.errorCount);
+			assertEquals(rc.toString(), 31, stats.successCount);
+		}
+
+		CqlQueryResult res = queryService.execute(new CqlQuery(CqlQueryType.SELECT,
+				"select count(*) from CqlDemo.ImportBarrier"));
+		assertEquals(30, res.iterator().next().getLong("count"));
+	}
 }
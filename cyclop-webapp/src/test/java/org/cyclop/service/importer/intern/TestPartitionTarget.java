@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.service.importer.intern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+
+import org.cyclop.model.CqlQuery;
+import org.cyclop.model.CqlQueryType;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/** @author Maciej Miklas */
+public class TestPartitionTarget {
+
+	@Test
+	public void testParse_Insert() {
+		PartitionTarget target = parse("INSERT INTO CqlDemo.MyBooks (id, \"Title\", pages, price, tags) VALUES "
+				+ "(44a2054c-f98b-43a7-833d-0e1358fdaa82, 'it''s', -12, 2.5, {'a','b'}) USING TTL 5");
+		assertEquals(Optional.of("CqlDemo"), target.keySpace);
+		assertEquals("MyBooks", target.table);
+		assertEquals(ImmutableMap.of("id", "44a2054c-f98b-43a7-833d-0e1358fdaa82", "Title", "'it''s'", "pages", "-12",
+				"price", "2.5"), target.values);
+		assertEquals(ImmutableSet.of("id", "Title", "pages", "price", "tags"), target.columns);
+	}
+
+	@Test
+	public void testParse_Update() {
+		PartitionTarget target = parse("update t1 using ttl 4 set a = 'x' where K1 = 'a' and k2 = 5 and c in (1,2)");
+		assertFalse(target.keySpace.isPresent());
+		assertEquals("t1", target.table);
+		assertEquals(ImmutableMap.of("k1", "'a'", "k2", "5"), target.values);
+		assertEquals(ImmutableSet.of("a"), target.columns);
+	}
+
+	@Test
+	public void testParse_UpdateColumns() {
+		PartitionTarget target = parse("update t1 set \"A\" = 'x', cnt = cnt + 1, tags['k'] = 'v' where id = 1");
+		assertEquals(ImmutableSet.of("A", "cnt", "tags"), target.columns);
+	}
+
+	@Test
+	public void testParse_FunctionValue() {
+		PartitionTarget target = parse("insert into t1 (id, created) values (now(), dateOf(now()))");
+		assertTrue(target.values.isEmpty());
+		assertEquals(ImmutableSet.of("id", "created"), target.columns);
+	}
+
+	@Test
+	public void testParse_NotSupported() {
+		assertFalse(PartitionTarget.parse(q("insert into t1 (id) values (1) if not exists")).isPresent());
+		assertFalse(PartitionTarget.parse(q("delete from t1 where id = 1")).isPresent());
+		assertFalse(PartitionTarget.parse(q("select * from t1 where id = 1")).isPresent());
+		assertFalse(PartitionTarget.parse(q("insert into t1 (id,title) value (1, 'a')")).isPresent());
+	}
+
+	private static PartitionTarget parse(String cql) {
+		Optional<PartitionTarget> target = PartitionTarget.parse(q(cql));
+		assertTrue(cql, target.isPresent());
+		return target.get();
+	}
+
+	private static CqlQuery q(String cql) {
+		return new CqlQuery(CqlQueryType.UNKNOWN, cql);
+	}
+}
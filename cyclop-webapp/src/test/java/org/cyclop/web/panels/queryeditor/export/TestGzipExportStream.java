@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cyclop.web.panels.queryeditor.export;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+/** @author Maciej Miklas */
+public class TestGzipExportStream {
+
+	@Test
+	public void testCompressAndRead() throws Exception {
+		byte[] data = new byte[100000];
+		Arrays.fill(data, (byte) 'a');
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GzipExportStream gzip = new GzipExportStream(out, 9, 1024)) {
+			gzip.write(data);
+		}
+		assertTrue(out.size() < data.length / 10);
+		assertArrayEquals(data, unzip(out.toByteArray()));
+	}
+
+	@Test
+	public void testFlushAfterLimit() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GzipExportStream gzip = new GzipExportStream(out, 6, 10);
+		int header = out.size();
+
+		gzip.write(new byte[] { 'a', 'b', 'c' });
+		assertEquals(header, out.size());
+
+		gzip.write(new byte[] { 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k' });
+		assertTrue(out.size() > header);
+	}
+
+	private static byte[] unzip(byte[] data) throws Exception {
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+			return ByteStreams.toByteArray(in);
+		}
+	}
+}
@@ -100,6 +100,14 @@ public abstract class IterableDataProvider<E> implements IDataProvider<E> {
 		return iterator.hasMoreData();
 	}
 
+	/**
+	 * @return elements already read from {@link #iterator()} - in the same order. Remaining elements can be still
+	 *         read from {@link #iterator()}
+	 */
+	public List<E> getReadElements() {
+		return iterator.cached();
+	}
+
 	void setCurrentPage(long currentPage) {
 		this.currentPage = currentPage;
 	}
@@ -16,6 +16,7 @@
  */
 package org.cyclop.web.components.iterablegrid;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -134,4 +135,9 @@ final class NavigableIterator<E> implements Iterator<E> {
 	public int readSize() {
 		return read.size();
 	}
+
+	/** @return all elements read so far from wrapped iterator, in their original order */
+	public List<E> cached() {
+		return Collections.unmodifiableList(cache);
+	}
 }